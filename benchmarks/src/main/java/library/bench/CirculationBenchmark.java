@@ -0,0 +1,70 @@
+package library.bench;
+
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.CirculationService;
+import library.data.LendingTracker;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A borrow followed by a return through CirculationService, next to the same pair of calls made
+ * straight on LendingTracker. The tracker calls are the part that runs under its single monitor,
+ * so their share of the service time bounds how much a global section costs the desks.
+ * Run with -t to compare thread counts; each thread lends to its own borrower.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CirculationBenchmark {
+    private static final LocalDate TODAY = LocalDate.of(2024, 1, 1);
+
+    @Param({"10000"})
+    public int scale;
+
+    private BookInventory inventory;
+    private LendingTracker tracker;
+    private CirculationService service;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Desk {
+        String borrowerId;
+
+        @Setup(Level.Trial)
+        public void setUp(CirculationBenchmark bench) {
+            borrowerId = SyntheticData.borrowerId(bench.threads.getAndIncrement());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        inventory = SyntheticData.inventory(SyntheticData.books(scale, 1));
+        BorrowerRegistry registry = SyntheticData.registry(SyntheticData.borrowers(SyntheticData.borrowerCount(scale), 2));
+        tracker = new LendingTracker();
+        service = new CirculationService(inventory, registry, tracker);
+    }
+
+    @Benchmark
+    public CirculationService.Result serviceBorrowReturn(Desk desk) {
+        String isbn = SyntheticData.isbn(ThreadLocalRandom.current().nextInt(scale));
+        CirculationService.Result result = service.borrowBook(desk.borrowerId, isbn, TODAY);
+        if (result == CirculationService.Result.SUCCESS) service.returnBook(desk.borrowerId, isbn, TODAY);
+        return result;
+    }
+
+    @Benchmark
+    public Transaction trackerBorrowReturn(Desk desk) {
+        String isbn = SyntheticData.isbn(ThreadLocalRandom.current().nextInt(scale));
+        tracker.borrowBook(new Transaction(isbn, desk.borrowerId, TODAY, null, TransactionStatus.BORROWED));
+        return tracker.returnBook(desk.borrowerId, isbn, TODAY);
+    }
+}
@@ -0,0 +1,57 @@
+package library.bench;
+
+import library.data.BorrowerRegistry;
+import library.data.ChangeEventBus;
+import library.model.Borrower;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the change stream adds to a store mutator: BorrowerRegistry.addBorrower with no bus
+ * attached (listeners = -1) and with a bus feeding 0, 1 or 2 listeners.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventBusBenchmark {
+    private static final int BORROWERS = 1 << 16;
+
+    @Param({"-1", "0", "1", "2"})
+    public int listeners;
+
+    private BorrowerRegistry registry;
+    private ChangeEventBus bus;
+    private List<Borrower> borrowers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        borrowers = SyntheticData.borrowers(BORROWERS, 2);
+        registry = new BorrowerRegistry();
+        if (listeners >= 0) {
+            bus = new ChangeEventBus(8192, null);
+            for (int i = 0; i < listeners; i++) {
+                Blackhole sink = new Blackhole("Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+                bus.subscribe("listener-" + i, (event, endOfBatch) -> sink.consume(event.getBorrowerId()));
+            }
+            bus.start();
+            registry.setEventBus(bus);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.setEventBus(null);
+        if (bus != null) bus.close();
+    }
+
+    @Benchmark
+    public void addBorrower() {
+        registry.addBorrower(borrowers.get(next++ & (BORROWERS - 1)));
+    }
+}
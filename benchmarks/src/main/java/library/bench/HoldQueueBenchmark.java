@@ -0,0 +1,50 @@
+package library.bench;
+
+import library.data.Reservations;
+import library.model.Hold;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serving the next hold on a title as its queue grows: each operation allocates the head
+ * of the queue, fulfils it and places a new hold, so the queue keeps its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HoldQueueBenchmark {
+    private static final String ISBN = "978-0-00-000000-0";
+    private static final LocalDate TODAY = LocalDate.of(2024, 1, 1);
+
+    @Param({"100", "10000", "1000000"})
+    public int holds;
+
+    private Reservations reservations;
+    private Hold.Priority[] priorities;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        priorities = new Hold.Priority[1024];
+        for (int i = 0; i < priorities.length; i++) priorities[i] = Hold.Priority.values()[random.nextInt(3)];
+        reservations = new Reservations();
+        for (next = 0; next < holds; next++) {
+            reservations.place(ISBN, "B" + next, priorities[next & 1023], TODAY);
+        }
+    }
+
+    @Benchmark
+    public Hold allocateNext() {
+        Hold hold = reservations.allocate(ISBN, TODAY);
+        reservations.fulfil(ISBN, hold.getBorrowerId());
+        reservations.place(ISBN, "B" + next, priorities[next & 1023], TODAY);
+        next++;
+        return hold;
+    }
+}
@@ -0,0 +1,151 @@
+package library.bench;
+
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.CirculationService;
+import library.data.LendingTracker;
+import library.data.ReportAggregates;
+import library.model.Book;
+import library.model.Borrower;
+import library.server.LibraryHttpServer;
+import library.util.LatencyHistogram;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for the HTTP/JSON API. Each simulated client sends its next request as soon as the
+ * previous one is answered, so the number of clients is the number of requests in flight.
+ * The mix is 60% book lookups, 15% searches, 10% borrower lookups and 15% borrows/returns.
+ * Prints throughput, latency percentiles and status counts.
+ *
+ * Usage (after packaging the benchmarks module):
+ * <pre>
+ *     java -cp target/benchmarks.jar library.bench.HttpLoadTest [clients] [seconds] [scale|url]
+ * </pre>
+ * With a scale (default 100000) a server is started in-process on synthetic data; with a URL such as
+ * http://localhost:8080 a running server is tested instead, using the ISBNs and IDs of SyntheticData.
+ */
+public class HttpLoadTest {
+    private final HttpClient client;
+    private final String base;
+    private final int books;
+    private final int borrowers;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+    private volatile boolean running = true;
+
+    private HttpLoadTest(String base, int books, int borrowers) {
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30)).build();
+        this.base = base;
+        this.books = books;
+        this.borrowers = borrowers;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String target = args.length > 2 ? args[2] : "100000";
+
+        LibraryHttpServer server = null;
+        String base;
+        int scale;
+        if (target.startsWith("http")) {
+            base = target.replaceAll("/+$", "");
+            scale = Integer.getInteger("scale", 100000);
+        } else {
+            scale = Integer.parseInt(target);
+            server = startServer(scale);
+            base = "http://localhost:" + server.getPort();
+        }
+        System.out.printf("%d clients for %ds against %s (%s)%n", clients, seconds, base,
+            server == null ? "remote" : (LibraryHttpServer.hasVirtualThreads() ? "virtual threads" : "platform thread pool"));
+
+        HttpLoadTest test = new HttpLoadTest(base, scale, SyntheticData.borrowerCount(scale));
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) test.next(i, 0);
+        Thread.sleep(seconds * 1000L);
+        test.running = false;
+        long elapsed = System.nanoTime() - start;
+        while (test.inFlight.get() > 0 && System.nanoTime() - start < elapsed + 30_000_000_000L) Thread.sleep(10);
+        test.report(elapsed);
+        if (server != null) server.stop(0);
+        System.exit(0);
+    }
+
+    private static LibraryHttpServer startServer(int scale) throws Exception {
+        ReportAggregates aggregates = new ReportAggregates();
+        BookInventory inventory = new BookInventory();
+        inventory.setReportAggregates(aggregates);
+        for (Book b : SyntheticData.books(scale, 1)) inventory.addBook(b);
+        BorrowerRegistry registry = new BorrowerRegistry();
+        for (Borrower b : SyntheticData.borrowers(SyntheticData.borrowerCount(scale), 2)) registry.addBorrower(b);
+        LendingTracker tracker = new LendingTracker();
+        tracker.setReportAggregates(aggregates);
+        CirculationService circulation = new CirculationService(inventory, registry, tracker);
+        LibraryHttpServer server = new LibraryHttpServer(0, inventory, registry, tracker, circulation, aggregates,
+            store -> { }, Integer.getInteger("library.http.threads", 64));
+        server.start();
+        return server;
+    }
+
+    /**
+     * Sends the next request of a client; the response handler sends the one after.
+     * @param clientId The client, which owns borrower clientId (mod borrowers) for loans
+     * @param step Number of requests the client has sent
+     */
+    private void next(int clientId, long step) {
+        if (!running) return;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(100);
+        HttpRequest.Builder request;
+        if (pick < 60) {
+            request = HttpRequest.newBuilder(URI.create(base + "/books/" + SyntheticData.isbn(random.nextInt(books))));
+        } else if (pick < 75) {
+            request = HttpRequest.newBuilder(URI.create(base + "/books?limit=10&q=" + (pick % 2 == 0 ? "river" : "gold+night")));
+        } else if (pick < 85) {
+            request = HttpRequest.newBuilder(URI.create(base + "/borrowers/" + SyntheticData.borrowerId(random.nextInt(borrowers))));
+        } else {
+            // Alternate borrowing and returning the client's own book so loans do not pile up
+            String params = "borrower=" + SyntheticData.borrowerId(clientId % borrowers)
+                + "&isbn=" + SyntheticData.isbn(clientId % books);
+            request = HttpRequest.newBuilder(URI.create(base + (step % 2 == 0 ? "/loans?" : "/returns?") + params))
+                .POST(HttpRequest.BodyPublishers.noBody());
+        }
+        inFlight.incrementAndGet();
+        long sent = System.nanoTime();
+        client.sendAsync(request.timeout(Duration.ofSeconds(60)).build(), HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, error) -> {
+                latency.record(System.nanoTime() - sent);
+                if (error != null) failures.increment();
+                else if (response.statusCode() >= 500) serverErrors.increment();
+                // 404 and 409 are expected answers (unknown ID, book already on loan)
+                else if (response.statusCode() >= 400 && response.statusCode() != 404 && response.statusCode() != 409) clientErrors.increment();
+                else ok.increment();
+                inFlight.decrementAndGet();
+                next(clientId, pick < 85 ? step : step + 1);
+            });
+    }
+
+    private void report(long elapsedNanos) {
+        long total = latency.getCount();
+        System.out.printf("requests   %d (%.0f req/s)%n", total, total / (elapsedNanos / 1e9));
+        System.out.printf("ok         %d%n", ok.sum());
+        System.out.printf("4xx        %d%n", clientErrors.sum());
+        System.out.printf("5xx        %d%n", serverErrors.sum());
+        System.out.printf("failed     %d%n", failures.sum());
+        System.out.printf("latency    mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+            latency.getMean() / 1e6, latency.getPercentile(50) / 1e6, latency.getPercentile(90) / 1e6,
+            latency.getPercentile(99) / 1e6, latency.getPercentile(99.9) / 1e6, latency.getMax() / 1e6);
+    }
+}
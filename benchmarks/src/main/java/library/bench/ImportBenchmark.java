@@ -0,0 +1,48 @@
+package library.bench;
+
+import library.data.BookInventory;
+import library.util.ImportReport;
+import library.util.StorageFormat;
+import org.openjdk.jmh.annotations.*;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of a books file through the import pipeline, by number of parse/validate workers.
+ * Compare with PersistenceBenchmark.loadBooks for the single-threaded loader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+    @Param({"10000", "1000000"})
+    public int scale;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    private File dir;
+    private String booksFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("library-bench").toFile();
+        booksFile = new File(dir, "books.txt").getPath();
+        SyntheticData.inventory(SyntheticData.books(scale, 1)).saveToFile(booksFile, StorageFormat.TEXT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new File(booksFile).delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public ImportReport importBooks() throws Exception {
+        return new BookInventory().importFromFile(booksFile, workers);
+    }
+}
@@ -0,0 +1,80 @@
+package library.bench;
+
+import library.data.BookInventory;
+import library.model.Book;
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookInventory add, lookup, remove and keyword search, plus a read-mostly mix run by
+ * nine reader threads against one writer thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int scale;
+
+    private BookInventory inventory;
+    private Book extraBook;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = SyntheticData.inventory(SyntheticData.books(scale, 1));
+        extraBook = SyntheticData.book(scale, new Random(2));
+    }
+
+    @Benchmark
+    public Book getBookByIsbn() {
+        return inventory.getBookByIsbn(SyntheticData.isbn(ThreadLocalRandom.current().nextInt(scale)));
+    }
+
+    @Benchmark
+    public Book getBookByIsbnMiss() {
+        return inventory.getBookByIsbn("missing-" + ThreadLocalRandom.current().nextInt(scale));
+    }
+
+    /**
+     * Adds a book and removes it again, so the catalogue size stays constant.
+     */
+    @Benchmark
+    public Book addThenRemove() {
+        inventory.addBook(extraBook);
+        return inventory.removeBook(extraBook.getIsbn());
+    }
+
+    @Benchmark
+    public Object searchBooks() {
+        return inventory.searchBooks("river gho", 10);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(9)
+    public Book mixedRead() {
+        return inventory.getBookByIsbn(SyntheticData.isbn(ThreadLocalRandom.current().nextInt(scale)));
+    }
+
+    /**
+     * Replaces or removes a random existing book; removed books are added back by later calls.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Object mixedWrite() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = random.nextInt(scale);
+        if (random.nextBoolean()) {
+            Book book = SyntheticData.book(id, new Random(id));
+            inventory.addBook(book);
+            return book;
+        }
+        return inventory.removeBook(SyntheticData.isbn(id));
+    }
+}
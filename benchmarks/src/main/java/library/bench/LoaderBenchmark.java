@@ -0,0 +1,73 @@
+package library.bench;
+
+import library.data.LendingTracker;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import library.util.FileManager;
+import library.util.StorageFormat;
+import org.openjdk.jmh.annotations.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the line-list loader (FileManager.readLines + String.split) with the
+ * memory-mapped reader behind LendingTracker.loadFromFile on a text transactions file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoaderBenchmark {
+    @Param({"10000", "1000000"})
+    public int scale;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int borrowerCount = SyntheticData.borrowerCount(scale);
+        LendingTracker tracker = SyntheticData.tracker(SyntheticData.transactions(scale, scale, borrowerCount, 3));
+        file = Files.createTempFile("transactions-bench", ".txt").toFile();
+        tracker.saveToFile(file.getPath(), StorageFormat.TEXT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<Transaction> lineList() throws IOException {
+        return loadWithLineList(file.getPath());
+    }
+
+    @Benchmark
+    public LendingTracker mapped() throws Exception {
+        LendingTracker tracker = new LendingTracker();
+        tracker.loadFromFile(file.getPath(), StorageFormat.TEXT);
+        return tracker;
+    }
+
+    /**
+     * The original loading path: read every line into a list, then split each one with a regex.
+     */
+    private static List<Transaction> loadWithLineList(String filename) throws IOException {
+        List<Transaction> result = new ArrayList<>();
+        for (String line : FileManager.readLines(filename)) {
+            String[] parts = line.split("\\|");
+            if (parts.length >= 5) {
+                LocalDate borrowDate = LocalDate.parse(parts[2]);
+                LocalDate returnDate = parts[3].isEmpty() ? null : LocalDate.parse(parts[3]);
+                result.add(new Transaction(parts[0], parts[1], borrowDate, returnDate, TransactionStatus.valueOf(parts[4])));
+            }
+        }
+        return result;
+    }
+}
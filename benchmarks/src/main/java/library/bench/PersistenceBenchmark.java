@@ -0,0 +1,91 @@
+package library.bench;
+
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.LendingTracker;
+import library.util.StorageFormat;
+import org.openjdk.jmh.annotations.*;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * loadFromFile and saveToFile of every store, in both storage formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int scale;
+
+    @Param({"TEXT", "BINARY"})
+    public StorageFormat format;
+
+    private File dir;
+    private BookInventory inventory;
+    private BorrowerRegistry registry;
+    private LendingTracker tracker;
+    private String booksFile, borrowersFile, transactionsFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int borrowerCount = SyntheticData.borrowerCount(scale);
+        inventory = SyntheticData.inventory(SyntheticData.books(scale, 1));
+        registry = SyntheticData.registry(SyntheticData.borrowers(borrowerCount, 2));
+        tracker = SyntheticData.tracker(SyntheticData.transactions(scale, scale, borrowerCount, 3));
+        dir = Files.createTempDirectory("library-bench").toFile();
+        booksFile = new File(dir, "books" + format.getExtension()).getPath();
+        borrowersFile = new File(dir, "borrowers" + format.getExtension()).getPath();
+        transactionsFile = new File(dir, "transactions" + format.getExtension()).getPath();
+        inventory.saveToFile(booksFile, format);
+        registry.saveToFile(borrowersFile, format);
+        tracker.saveToFile(transactionsFile, format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public void saveBooks() throws Exception {
+        inventory.saveToFile(booksFile, format);
+    }
+
+    @Benchmark
+    public BookInventory loadBooks() throws Exception {
+        BookInventory loaded = new BookInventory();
+        loaded.loadFromFile(booksFile, format);
+        return loaded;
+    }
+
+    @Benchmark
+    public void saveBorrowers() throws Exception {
+        registry.saveToFile(borrowersFile, format);
+    }
+
+    @Benchmark
+    public BorrowerRegistry loadBorrowers() throws Exception {
+        BorrowerRegistry loaded = new BorrowerRegistry();
+        loaded.loadFromFile(borrowersFile, format);
+        return loaded;
+    }
+
+    @Benchmark
+    public void saveTransactions() throws Exception {
+        tracker.saveToFile(transactionsFile, format);
+    }
+
+    @Benchmark
+    public LendingTracker loadTransactions() throws Exception {
+        LendingTracker loaded = new LendingTracker();
+        loaded.loadFromFile(transactionsFile, format);
+        return loaded;
+    }
+}
@@ -0,0 +1,108 @@
+package library.bench;
+
+import library.data.BorrowerRegistry;
+import library.data.LendingTracker;
+import library.model.Book;
+import library.model.Borrower;
+import library.model.Transaction;
+import library.report.ParallelReportEngine;
+import library.report.ReportGenerator;
+import org.openjdk.jmh.annotations.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every ReportGenerator report over a synthetic lending history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int scale;
+
+    private List<Book> books;
+    private List<Borrower> borrowers;
+    private List<Transaction> transactions;
+    private LendingTracker tracker;
+    private BorrowerRegistry registry;
+    private int month;
+    private int year;
+    private final ParallelReportEngine parallel = new ParallelReportEngine();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int borrowerCount = SyntheticData.borrowerCount(scale);
+        books = SyntheticData.books(scale, 1);
+        borrowers = SyntheticData.borrowers(borrowerCount, 2);
+        transactions = SyntheticData.transactions(scale, scale, borrowerCount, 3);
+        tracker = SyntheticData.tracker(transactions);
+        registry = SyntheticData.registry(borrowers);
+        Transaction middle = transactions.get(transactions.size() / 2);
+        month = middle.getBorrowDate().getMonthValue();
+        year = middle.getBorrowDate().getYear();
+    }
+
+    @Benchmark
+    public List<Book> mostBorrowedBooks() {
+        return ReportGenerator.mostBorrowedBooks(transactions, books, month, year);
+    }
+
+    @Benchmark
+    public List<Book> mostBorrowedBooksTop10() {
+        return ReportGenerator.mostBorrowedBooks(transactions, books, month, year, 10);
+    }
+
+    @Benchmark
+    public List<Borrower> mostActiveBorrowersMonthTop10() {
+        return ReportGenerator.mostActiveBorrowers(transactions, borrowers, month, year, 10);
+    }
+
+    @Benchmark
+    public List<Borrower> mostActiveBorrowersMonthTop10Indexed() {
+        return ReportGenerator.mostActiveBorrowers(tracker, registry, month, year, 10);
+    }
+
+    @Benchmark
+    public List<Borrower> topFines() {
+        return ReportGenerator.topFines(borrowers);
+    }
+
+    @Benchmark
+    public Map<String, Integer> inventoryByCategory() {
+        return ReportGenerator.inventoryByCategory(books);
+    }
+
+    @Benchmark
+    public List<Borrower> mostActiveBorrowersAllTime() {
+        return ReportGenerator.mostActiveBorrowers(transactions, borrowers, 0, 0);
+    }
+
+    @Benchmark
+    public List<Borrower> mostActiveBorrowersTop10() {
+        return ReportGenerator.mostActiveBorrowers(transactions, borrowers, 0, 0, 10);
+    }
+
+    @Benchmark
+    public Map<String, Integer> borrowingTrends() {
+        return ReportGenerator.borrowingTrends(transactions);
+    }
+
+    @Benchmark
+    public Map<String, Integer> borrowingTrendsParallel() {
+        return parallel.borrowingTrends(transactions);
+    }
+
+    @Benchmark
+    public List<Borrower> mostActiveBorrowersAllTimeParallel() {
+        return parallel.mostActiveBorrowers(transactions, borrowers, 0, 0);
+    }
+
+    @Benchmark
+    public List<Book> booksNeverBorrowed() {
+        return ReportGenerator.booksNeverBorrowed(books, transactions);
+    }
+}
@@ -0,0 +1,91 @@
+package library.bench;
+
+import library.data.BookInventory;
+import library.model.Book;
+import library.util.SearchUtils;
+import library.util.SortUtils;
+import org.openjdk.jmh.annotations.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchUtils and SortUtils, plus the sorted views that replaced re-sorting in the menu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchSortBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int scale;
+
+    private List<Book> books;
+    private List<Book> booksByIsbn;
+    private BookInventory inventory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        books = SyntheticData.books(scale, 1);
+        Collections.shuffle(books, new Random(3));
+        booksByIsbn = new ArrayList<>(books);
+        booksByIsbn.sort(Comparator.comparing(Book::getIsbn));
+        inventory = SyntheticData.inventory(books);
+    }
+
+    /**
+     * Worst case: the title is not in the catalogue, so every book is compared.
+     */
+    @Benchmark
+    public Book linearSearchByTitleMiss() {
+        return SearchUtils.linearSearchByTitle(books, "No Such Title");
+    }
+
+    @Benchmark
+    public Book binarySearchByIsbn() {
+        return SearchUtils.binarySearchByIsbn(booksByIsbn, SyntheticData.isbn(ThreadLocalRandom.current().nextInt(scale)));
+    }
+
+    @Benchmark
+    public List<Book> mergeSortByYear() {
+        List<Book> copy = new ArrayList<>(books);
+        SortUtils.mergeSortByYear(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public List<Book> listBooksSortedByTitle() {
+        return inventory.listBooksSortedByTitle();
+    }
+
+    @Benchmark
+    public List<Book> getBooksByYearRange() {
+        return inventory.getBooksByYearRange(1990, 2000);
+    }
+
+    /**
+     * Selection sort is quadratic, so it only runs at sizes that finish in reasonable time.
+     */
+    @State(Scope.Benchmark)
+    public static class SmallCatalogue {
+        @Param({"1000", "10000"})
+        public int size;
+
+        List<Book> books;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            books = SyntheticData.books(size, 1);
+            Collections.shuffle(books, new Random(3));
+        }
+    }
+
+    @Benchmark
+    public List<Book> selectionSortByTitle(SmallCatalogue catalogue) {
+        List<Book> copy = new ArrayList<>(catalogue.books);
+        SortUtils.selectionSortByTitle(copy);
+        return copy;
+    }
+}
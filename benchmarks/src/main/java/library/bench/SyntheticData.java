@@ -0,0 +1,104 @@
+package library.bench;
+
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.LendingTracker;
+import library.model.Book;
+import library.model.Borrower;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * SyntheticData generates reproducible catalogues, patrons and lending histories for benchmarks.
+ * For a given scale there are scale books, scale / 10 borrowers (at least 100) and scale transactions.
+ */
+public final class SyntheticData {
+    public static final String[] CATEGORIES = {
+        "Novel", "History", "Science", "Poetry", "Children", "Biography", "Religion", "Law", "Medicine", "Engineering"
+    };
+    private static final String[] WORDS = {
+        "ghost", "river", "night", "king", "market", "harvest", "road", "village", "storm", "gold",
+        "children", "forest", "dream", "fire", "season", "drum", "coast", "journey", "stone", "light",
+        "history", "science", "letters", "songs", "voices", "promise", "secret", "garden", "city", "shadow"
+    };
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final int DAYS = 3650;
+
+    private SyntheticData() {
+    }
+
+    public static int borrowerCount(int scale) {
+        return Math.max(100, scale / 10);
+    }
+
+    public static String isbn(int i) {
+        return String.valueOf(9780000000000L + i);
+    }
+
+    public static String borrowerId(int i) {
+        return String.valueOf(10_000_000 + i);
+    }
+
+    public static Book book(int i, Random random) {
+        String title = WORDS[random.nextInt(WORDS.length)] + " of the " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+        return new Book(title, "Author " + random.nextInt(Math.max(1, i / 4 + 1)), isbn(i),
+            CATEGORIES[random.nextInt(CATEGORIES.length)], 1900 + random.nextInt(125),
+            "Publisher " + random.nextInt(500), "Shelf " + random.nextInt(1000));
+    }
+
+    public static List<Book> books(int count, long seed) {
+        Random random = new Random(seed);
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) books.add(book(i, random));
+        return books;
+    }
+
+    public static List<Borrower> borrowers(int count, long seed) {
+        Random random = new Random(seed);
+        List<Borrower> borrowers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Borrower b = new Borrower("Borrower " + i, borrowerId(i), "024" + (1_000_000 + random.nextInt(9_000_000)));
+            b.setFinesOwed(random.nextInt(20) == 0 ? random.nextInt(100) : 0.0);
+            borrowers.add(b);
+        }
+        return borrowers;
+    }
+
+    /**
+     * Generates a lending history in borrow-date order. About 5% of loans are still open.
+     */
+    public static List<Transaction> transactions(int count, int bookCount, int borrowerCount, long seed) {
+        Random random = new Random(seed);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate borrowed = FIRST_DAY.plusDays((long) i * DAYS / Math.max(1, count));
+            // Skewed popularity: a few books and borrowers account for most loans
+            int book = (int) (bookCount * Math.pow(random.nextDouble(), 3));
+            int borrower = (int) (borrowerCount * Math.pow(random.nextDouble(), 2));
+            boolean open = random.nextInt(20) == 0;
+            transactions.add(new Transaction(isbn(book), borrowerId(borrower), borrowed,
+                open ? null : borrowed.plusDays(1 + random.nextInt(21)), open ? TransactionStatus.BORROWED : TransactionStatus.RETURNED));
+        }
+        return transactions;
+    }
+
+    public static BookInventory inventory(List<Book> books) {
+        BookInventory inventory = new BookInventory();
+        for (Book b : books) inventory.addBook(b);
+        return inventory;
+    }
+
+    public static BorrowerRegistry registry(List<Borrower> borrowers) {
+        BorrowerRegistry registry = new BorrowerRegistry();
+        for (Borrower b : borrowers) registry.addBorrower(b);
+        return registry;
+    }
+
+    public static LendingTracker tracker(List<Transaction> transactions) {
+        LendingTracker tracker = new LendingTracker();
+        for (Transaction t : transactions) tracker.borrowBook(t);
+        return tracker;
+    }
+}
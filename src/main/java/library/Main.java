@@ -2,11 +2,24 @@ package library;
 
 import library.data.BookInventory;
 import library.data.BorrowerRegistry;
+import library.data.ChangeEvent;
+import library.data.ChangeEventBus;
+import library.data.CirculationService;
+import library.data.Holdings;
 import library.data.LendingTracker;
+import library.data.ReportAggregates;
+import library.data.TransactionJournal;
 import library.model.Book;
 import library.model.Borrower;
+import library.model.Hold;
 import library.model.Transaction;
+import library.report.ParallelReportEngine;
+import library.server.LibraryHttpServer;
+import library.util.Metrics;
+import library.util.PersistenceScheduler;
+import library.util.StorageFormat;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * Main class for the Ebenezer Community Library System.
@@ -17,89 +30,345 @@ import java.util.*;
 public class Main {
     // Scanner for user input
     private static final Scanner scanner = new Scanner(System.in);
+    // Storage mode, selected with -Dlibrary.storage=memory|disk (memory by default).
+    // Disk mode keeps books and borrowers in hash files with an LRU cache of -Dlibrary.cacheSize entries.
+    private static final boolean DISK_STORAGE = "disk".equalsIgnoreCase(System.getProperty("library.storage"));
+    private static final int CACHE_SIZE = Integer.getInteger("library.cacheSize", 10000);
+    private static final String BOOKS_DB = "src/main/resources/books.db";
+    private static final String BORROWERS_DB = "src/main/resources/borrowers.db";
     // Core data managers
-    private static final BookInventory bookInventory = new BookInventory();
-    private static final BorrowerRegistry borrowerRegistry = new BorrowerRegistry();
+    private static final BookInventory bookInventory = openInventory();
+    private static final BorrowerRegistry borrowerRegistry = openRegistry();
     private static final LendingTracker lendingTracker = new LendingTracker();
+    private static final ReportAggregates reportAggregates = new ReportAggregates();
+    // Fork/join engine for reports that must scan a whole year of history
+    private static final ParallelReportEngine reportEngine = new ParallelReportEngine();
+    private static final CirculationService circulation = new CirculationService(bookInventory, borrowerRegistry, lendingTracker);
+    // Storage format, selected with -Dlibrary.format=text|binary (text by default)
+    private static final StorageFormat FORMAT = StorageFormat.fromName(System.getProperty("library.format"));
     // File paths for persistence
-    private static final String BOOKS_FILE = "src/main/resources/books.txt";
-    private static final String BORROWERS_FILE = "src/main/resources/borrowers.txt";
-    private static final String TRANSACTIONS_FILE = "src/main/resources/transactions.txt";
+    private static final String BOOKS_FILE = "src/main/resources/books" + FORMAT.getExtension();
+    private static final String BORROWERS_FILE = "src/main/resources/borrowers" + FORMAT.getExtension();
+    private static final String TRANSACTIONS_FILE = "src/main/resources/transactions" + FORMAT.getExtension();
+    private static final String TRANSACTIONS_JOURNAL = "src/main/resources/transactions.journal";
+    // Copies per title and branch (always text)
+    private static final String HOLDINGS_FILE = "src/main/resources/holdings.txt";
+    // Holds waiting or ready for collection (always text)
+    private static final String HOLDS_FILE = "src/main/resources/holds.txt";
+    // Background saving: changed stores are written at most every -Dlibrary.flushInterval ms
+    // (0 saves after every change), or sooner once -Dlibrary.flushThreshold changes are pending
+    private static final PersistenceScheduler persistence = new PersistenceScheduler(
+        Long.getLong("library.flushInterval", 2000), Integer.getInteger("library.flushThreshold", 50),
+        (store, e) -> System.out.println("[Error saving " + store + " to file]"));
+    // Metrics (-Dlibrary.metrics=true) are written here on exit when -Dlibrary.metricsFile is set (.json or text)
+    private static final String METRICS_FILE = System.getProperty("library.metricsFile");
+    // Change stream from the stores to background listeners (persistence, metrics)
+    private static ChangeEventBus changeEvents;
+    private static final int DEFAULT_EVENT_BUFFER_SIZE = 8192;
+    private static final int EVENT_BUFFER_SIZE = Integer.getInteger("library.eventBufferSize", DEFAULT_EVENT_BUFFER_SIZE);
+    // Loans shown per page in the loan history screen
+    private static final int HISTORY_PAGE_SIZE = 20;
+    // Server mode (--server [port] or -Dlibrary.mode=server) serves the JSON API instead of the menu
+    private static final int DEFAULT_HTTP_PORT = 8080;
+    // Request threads used when the JVM has no virtual threads
+    private static final int HTTP_THREADS = Integer.getInteger("library.http.threads", 64);
 
     /**
      * Program entry point. Loads data, displays menu, and handles user choices.
+     * With --server [port] it starts the HTTP/JSON API instead and runs until stopped.
      */
     public static void main(String[] args) {
         System.out.println("Welcome to the Ebenezer Community Library System!");
-        // Load books, borrowers, and transactions from file at startup
+        // Report counters follow every change to the catalogue and lending history
+        bookInventory.setReportAggregates(reportAggregates);
+        lendingTracker.setReportAggregates(reportAggregates);
+        // Load books, borrowers, and transactions from file at startup.
+        // A disk store is only filled from the files the first time, while it is still empty.
+        if (bookInventory.isDiskBacked() && bookInventory.size() > 0) {
+            System.out.println("[Opened book store with " + bookInventory.size() + " books]");
+        } else {
+            try {
+                bookInventory.loadFromFile(BOOKS_FILE, FORMAT);
+                System.out.println("[Loaded books from file]");
+            } catch (Exception e) {
+                System.out.println("[No books file found or error loading books]");
+            }
+        }
+        if (borrowerRegistry.isDiskBacked() && borrowerRegistry.size() > 0) {
+            System.out.println("[Opened borrower store with " + borrowerRegistry.size() + " borrowers]");
+        } else {
+            try {
+                borrowerRegistry.loadFromFile(BORROWERS_FILE, FORMAT);
+                System.out.println("[Loaded borrowers from file]");
+            } catch (Exception e) {
+                System.out.println("[No borrowers file found or error loading borrowers]");
+            }
+        }
         try {
-            bookInventory.loadFromFile(BOOKS_FILE);
-            System.out.println("[Loaded books from file]");
+            bookInventory.getHoldings().loadFromFile(HOLDINGS_FILE);
+            System.out.println("[Loaded holdings from file]");
         } catch (Exception e) {
-            System.out.println("[No books file found or error loading books]");
+            System.out.println("[No holdings file found, each title has one copy]");
         }
         try {
-            borrowerRegistry.loadFromFile(BORROWERS_FILE);
-            System.out.println("[Loaded borrowers from file]");
+            lendingTracker.enableJournal(TRANSACTIONS_JOURNAL);
         } catch (Exception e) {
-            System.out.println("[No borrowers file found or error loading borrowers]");
+            System.out.println("[Could not open transaction journal, saving full snapshots instead]");
         }
         try {
-            lendingTracker.loadFromFile(TRANSACTIONS_FILE);
+            lendingTracker.loadFromFile(TRANSACTIONS_FILE, FORMAT);
             System.out.println("[Loaded transactions from file]");
+        } catch (TransactionJournal.OutOfStepException e) {
+            // Starting with part of the history would overwrite the files with it on the next save
+            System.out.println("[Error] " + e.getMessage() + ". The transaction journal " + TRANSACTIONS_JOURNAL
+                + " does not belong to " + TRANSACTIONS_FILE + "; restore the matching files before starting.");
+            return;
         } catch (Exception e) {
             System.out.println("[No transactions file found or error loading transactions]");
         }
+        try {
+            circulation.getReservations().loadFromFile(HOLDS_FILE);
+            System.out.println("[Loaded holds from file]");
+        } catch (Exception e) {
+            System.out.println("[No holds file found]");
+        }
+        // Copies out on loan follow from the open loans in the history, copies set aside from the holds
+        int unrecorded = circulation.restoreHoldings();
+        if (unrecorded > 0) {
+            System.out.println("[" + unrecorded + " open loan(s) found no copy in the holdings; the copies are counted until"
+                + " they are returned but not saved. Add them under Copies & Availability if the library owns them]");
+        }
+        Metrics.gauge("inventory.books", bookInventory::size);
+        Metrics.gauge("borrowers.count", borrowerRegistry::size);
+        Metrics.gauge("lending.transactions", lendingTracker::getTransactionCount);
+        Metrics.gauge("lending.openLoans", lendingTracker::getOpenLoanCount);
+        Metrics.gauge("lending.overdueLoans", lendingTracker::getOverdueCount);
+        Metrics.gauge("persistence.changes", persistence::getChangeCount);
+        Metrics.gauge("persistence.flushes", persistence::getFlushCount);
+        persistence.register("books", Main::writeBooks);
+        persistence.register("borrowers", Main::writeBorrowers);
+        persistence.register("transactions", Main::writeTransactions);
+        persistence.register("holdings", () -> bookInventory.getHoldings().saveToFile(HOLDINGS_FILE));
+        persistence.register("holds", () -> circulation.getReservations().saveToFile(HOLDS_FILE));
+        persistence.start();
+        startChangeEvents();
+        if ((args.length > 0 && args[0].equals("--server")) || "server".equalsIgnoreCase(System.getProperty("library.mode"))) {
+            runServer(args.length > 1 ? args[1] : null);
+            return;
+        }
+        // Flush pending changes even if the program is interrupted (the server has its own hook)
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopChangeEvents();
+            persistence.close();
+        }));
+        circulation.setHoldReadyListener(hold -> System.out.println("[Hold ready: ISBN " + hold.getBookIsbn()
+            + " set aside for borrower " + hold.getBorrowerId() + " until " + hold.getReadyUntil() + "]"));
         boolean running = true;
         while (running) {
             printMenu();
             String choice = scanner.nextLine();
             switch (choice) {
-                case "1": addBookMenu(); saveBooks(); break;
-                case "2": removeBookMenu(); saveBooks(); break;
+                case "1": addBookMenu(); break;
+                case "2": removeBookMenu(); saveHoldings(); break;
                 case "3": listBooksMenu(); break;
-                case "4": addBorrowerMenu(); saveBorrowers(); break;
+                case "4": addBorrowerMenu(); break;
                 case "5": listBorrowersMenu(); break;
-                case "6": borrowBookMenu(); saveBorrowers(); saveTransactions(); break;
-                case "7": returnBookMenu(); saveBorrowers(); saveTransactions(); break;
+                case "6": borrowBookMenu(); saveBorrowers(); saveHolds(); break;
+                case "7": returnBookMenu(); saveBorrowers(); saveHolds(); break;
                 case "8": overdueMenu(); saveBorrowers(); saveTransactions(); break;
                 case "9": reportMenu(); break;
                 case "10": searchSortMenu(); break;
+                case "11": importMenu(); break;
+                case "12": historyMenu(); break;
+                case "13": copiesMenu(); break;
+                case "14": holdsMenu(); saveHolds(); break;
                 case "0": running = false; break;
                 default: System.out.println("Invalid option. Try again.");
             }
         }
-        // Save all data to file on exit
-        saveBooks();
-        saveBorrowers();
-        saveTransactions();
+        // Save all pending changes on exit
+        shutdown();
         System.out.println("Goodbye!");
     }
 
-    private static void saveBooks() {
+    /**
+     * Saves all pending changes and releases the stores: the change stream, the persistence
+     * scheduler, the transaction journal and, in disk mode, the hash files. Writes the metrics
+     * file when one was requested. Used on exit from the menu and by the server's shutdown hook.
+     */
+    private static void shutdown() {
+        stopChangeEvents();
+        persistence.close();
+        try {
+            lendingTracker.closeJournal();
+        } catch (Exception e) {
+            System.out.println("[Error closing transaction journal]");
+        }
+        if (DISK_STORAGE) {
+            if (bookInventory.getCache() != null) System.out.println("[Book cache: " + bookInventory.getCache() + "]");
+            if (borrowerRegistry.getCache() != null) System.out.println("[Borrower cache: " + borrowerRegistry.getCache() + "]");
+            try {
+                bookInventory.close();
+                borrowerRegistry.close();
+            } catch (Exception e) {
+                System.out.println("[Error closing disk stores]");
+            }
+        }
+        if (Metrics.isEnabled() && METRICS_FILE != null) {
+            try {
+                Metrics.writeTo(METRICS_FILE);
+            } catch (Exception e) {
+                System.out.println("[Error writing metrics file]");
+            }
+        }
+    }
+
+    /**
+     * Attaches the change stream to the stores once the data is loaded. A listener marks the
+     * stores behind the events dirty for the persistence scheduler, once per batch; with metrics
+     * enabled another one counts the changes by type (events.book_added, events.loan_opened, ...).
+     */
+    private static void startChangeEvents() {
+        BiConsumer<String, Exception> onError = (listener, e) -> System.out.println("[Error in change listener " + listener + "]");
+        try {
+            changeEvents = new ChangeEventBus(EVENT_BUFFER_SIZE, onError);
+        } catch (IllegalArgumentException e) {
+            System.out.println("[Error] " + e.getMessage() + ", using " + DEFAULT_EVENT_BUFFER_SIZE);
+            changeEvents = new ChangeEventBus(DEFAULT_EVENT_BUFFER_SIZE, onError);
+        }
+        changeEvents.subscribe("persistence", new SaveOnChange());
+        ChangeEventBus bus = changeEvents;
+        if (Metrics.isEnabled()) {
+            Metrics.Counter[] counters = new Metrics.Counter[ChangeEvent.Type.values().length];
+            for (ChangeEvent.Type type : ChangeEvent.Type.values()) {
+                counters[type.ordinal()] = Metrics.counter("events." + type.name().toLowerCase());
+            }
+            changeEvents.subscribe("metrics", (event, endOfBatch) -> counters[event.getType().ordinal()].increment());
+            Metrics.gauge("events.lag.metrics", () -> bus.getLag("metrics"));
+        }
+        Metrics.gauge("events.published", bus::getPublishedCount);
+        Metrics.gauge("events.dropped", bus::getDroppedCount);
+        Metrics.gauge("events.lag.persistence", () -> bus.getLag("persistence"));
+        changeEvents.start();
+        bookInventory.setEventBus(changeEvents);
+        borrowerRegistry.setEventBus(changeEvents);
+        lendingTracker.setEventBus(changeEvents);
+    }
+
+    /**
+     * Marks the books, borrowers and transactions files dirty for the changes in each batch of
+     * events. After dropped events all three are marked, since the files are written from the
+     * stores and not from the events. Changes that publish no event (a borrower's loans and
+     * fines, fine accrual, copies and holds) are still marked by the menu and the server.
+     */
+    private static final class SaveOnChange implements ChangeEventBus.Listener {
+        private boolean books, borrowers, transactions;
+
+        @Override
+        public void onEvent(ChangeEvent event, boolean endOfBatch) {
+            switch (event.getType()) {
+                case BOOK_ADDED: case BOOK_REMOVED: books = true; break;
+                case BORROWER_ADDED: case BORROWER_REMOVED: borrowers = true; break;
+                default: transactions = true;
+            }
+            if (!endOfBatch) return;
+            if (books) saveBooks();
+            if (borrowers) saveBorrowers();
+            if (transactions) saveTransactions();
+            books = borrowers = transactions = false;
+        }
+
+        @Override
+        public void onDropped(long count) {
+            saveBooks();
+            saveBorrowers();
+            saveTransactions();
+        }
+    }
+
+    private static void stopChangeEvents() {
+        if (changeEvents == null) return;
+        bookInventory.setEventBus(null);
+        borrowerRegistry.setEventBus(null);
+        lendingTracker.setEventBus(null);
+        changeEvents.close();
+    }
+
+    /**
+     * Starts the HTTP/JSON API and returns; the server keeps the program running until it is
+     * interrupted, when pending changes are saved.
+     * @param portArg Port from the command line, or null for the default
+     */
+    private static void runServer(String portArg) {
+        int port = DEFAULT_HTTP_PORT;
+        if (portArg != null) {
+            try {
+                port = Integer.parseInt(portArg);
+            } catch (NumberFormatException e) {
+                System.out.println("[Error] Invalid port: " + portArg);
+                shutdown();
+                return;
+            }
+        }
         try {
-            bookInventory.saveToFile(BOOKS_FILE);
+            LibraryHttpServer server = new LibraryHttpServer(port, bookInventory, borrowerRegistry, lendingTracker, circulation,
+                reportAggregates, persistence::markDirty, HTTP_THREADS);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(1);
+                shutdown();
+            }));
+            System.out.println("[Serving on port " + server.getPort() + " with "
+                + (LibraryHttpServer.hasVirtualThreads() ? "virtual threads" : HTTP_THREADS + " request threads")
+                + "; press Ctrl+C to stop]");
         } catch (Exception e) {
-            System.out.println("[Error saving books to file]");
+            System.out.println("[Error] Could not start server: " + e.getMessage());
+            shutdown();
         }
     }
 
-    private static void saveBorrowers() {
+    private static BookInventory openInventory() {
+        if (!DISK_STORAGE) return new BookInventory();
         try {
-            borrowerRegistry.saveToFile(BORROWERS_FILE);
+            return new BookInventory(BOOKS_DB, CACHE_SIZE);
         } catch (Exception e) {
-            System.out.println("[Error saving borrowers to file]");
+            System.out.println("[Could not open book store, keeping books in memory]");
+            return new BookInventory();
         }
     }
 
-    private static void saveTransactions() {
+    private static BorrowerRegistry openRegistry() {
+        if (!DISK_STORAGE) return new BorrowerRegistry();
         try {
-            lendingTracker.saveToFile(TRANSACTIONS_FILE);
+            return new BorrowerRegistry(BORROWERS_DB, CACHE_SIZE);
         } catch (Exception e) {
-            System.out.println("[Error saving transactions to file]");
+            System.out.println("[Could not open borrower store, keeping borrowers in memory]");
+            return new BorrowerRegistry();
         }
     }
 
+    // Changes are saved by the persistence scheduler; these only mark the store as changed
+    private static void saveBooks() { persistence.markDirty("books"); }
+    private static void saveBorrowers() { persistence.markDirty("borrowers"); }
+    private static void saveTransactions() { persistence.markDirty("transactions"); }
+    private static void saveHoldings() { persistence.markDirty("holdings"); }
+    private static void saveHolds() { persistence.markDirty("holds"); }
+
+    private static void writeBooks() throws Exception {
+        // Disk stores are written on every change; saving only forces them to the device
+        if (bookInventory.isDiskBacked()) bookInventory.sync();
+        else bookInventory.saveToFile(BOOKS_FILE, FORMAT);
+    }
+
+    private static void writeBorrowers() throws Exception {
+        if (borrowerRegistry.isDiskBacked()) borrowerRegistry.sync();
+        else borrowerRegistry.saveToFile(BORROWERS_FILE, FORMAT);
+    }
+
+    private static void writeTransactions() throws Exception {
+        lendingTracker.commit(TRANSACTIONS_FILE, FORMAT);
+    }
+
     private static void printMenu() {
         System.out.println("\nMenu:");
         System.out.println("1. Add Book");
@@ -112,6 +381,10 @@ public class Main {
         System.out.println("8. Check Overdue & Update Fines");
         System.out.println("9. Reports");
         System.out.println("10. Search/Sort Books");
+        System.out.println("11. Bulk Import Books/Borrowers");
+        System.out.println("12. Loan History (Borrower/Book)");
+        System.out.println("13. Copies & Availability");
+        System.out.println("14. Holds & Reservations");
         System.out.println("0. Exit");
         System.out.print("Select option: ");
     }
@@ -124,12 +397,14 @@ public class Main {
         System.out.println("4. Most Active Borrowers (All Time)");
         System.out.println("5. Borrowing Trends (Books Borrowed Per Month)");
         System.out.println("6. Books Never Borrowed");
+        System.out.println("7. Performance Metrics");
+        System.out.println("8. Year-End Report");
         System.out.print("Select report: ");
         String choice = scanner.nextLine();
         switch (choice) {
             case "1": {
                 List<library.model.Book> mostBorrowed = library.report.ReportGenerator.mostBorrowedBooks(
-                    lendingTracker.getAllTransactions(), bookInventory.listAllBooks(), java.time.LocalDate.now().getMonthValue(), java.time.LocalDate.now().getYear());
+                    reportAggregates, bookInventory, java.time.LocalDate.now().getMonthValue(), java.time.LocalDate.now().getYear(), Integer.MAX_VALUE);
                 System.out.println("Most Borrowed Books:");
                 mostBorrowed.forEach(System.out::println);
                 break;
@@ -141,7 +416,7 @@ public class Main {
                 break;
             }
             case "3": {
-                java.util.Map<String, Integer> catMap = library.report.ReportGenerator.inventoryByCategory(bookInventory.listAllBooks());
+                java.util.Map<String, Integer> catMap = reportAggregates.inventoryByCategory();
                 System.out.println("Inventory by Category:");
                 for (var entry : catMap.entrySet()) {
                     System.out.println(entry.getKey() + ": " + entry.getValue());
@@ -150,15 +425,15 @@ public class Main {
             }
             case "4": {
                 List<library.model.Borrower> mostActive = library.report.ReportGenerator.mostActiveBorrowers(
-                    lendingTracker.getAllTransactions(), borrowerRegistry.listAllBorrowers(), 0, 0);
+                    reportAggregates, borrowerRegistry, 10);
                 System.out.println("Most Active Borrowers (All Time):");
-                for (int i = 0; i < Math.min(10, mostActive.size()); i++) {
+                for (int i = 0; i < mostActive.size(); i++) {
                     System.out.println((i+1) + ". " + mostActive.get(i));
                 }
                 break;
             }
             case "5": {
-                java.util.Map<String, Integer> trends = library.report.ReportGenerator.borrowingTrends(lendingTracker.getAllTransactions());
+                java.util.Map<String, Integer> trends = reportAggregates.borrowingTrends();
                 System.out.println("Books Borrowed Per Month:");
                 for (var entry : trends.entrySet()) {
                     System.out.println(entry.getKey() + ": " + entry.getValue());
@@ -166,55 +441,298 @@ public class Main {
                 break;
             }
             case "6": {
-                List<library.model.Book> neverBorrowed = library.report.ReportGenerator.booksNeverBorrowed(
-                    bookInventory.listAllBooks(), lendingTracker.getAllTransactions());
+                List<library.model.Book> neverBorrowed = reportAggregates.booksNeverBorrowed();
                 System.out.println("Books Never Borrowed:");
                 neverBorrowed.forEach(System.out::println);
                 break;
             }
+            case "7": {
+                System.out.println("Performance Metrics:");
+                System.out.print(Metrics.toText());
+                break;
+            }
+            case "8":
+                yearEndReport();
+                break;
             default:
                 System.out.println("Invalid report option.");
         }
     }
 
+    /**
+     * Prints a year's loans per month and its ten most active borrowers.
+     * The report counters only keep all-time borrower totals, so the year's history is
+     * read from the borrow-date index and counted by the parallel report engine.
+     */
+    private static void yearEndReport() {
+        System.out.print("Year: ");
+        int year;
+        java.time.LocalDate first;
+        try {
+            year = Integer.parseInt(scanner.nextLine().trim());
+            first = java.time.LocalDate.of(year, 1, 1);
+        } catch (NumberFormatException | java.time.DateTimeException e) {
+            System.out.println("[Error] Invalid year. Please enter a valid numeric year (e.g., 2024).");
+            return;
+        }
+        List<Transaction> transactions = lendingTracker.transactionsBetween(first, first.withDayOfYear(first.lengthOfYear()));
+        System.out.println("Year-End Report " + year + ": " + transactions.size() + " loans");
+        System.out.println("Books Borrowed Per Month:");
+        for (var entry : reportEngine.borrowingTrends(transactions).entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+        }
+        List<Borrower> mostActive = reportEngine.mostActiveBorrowers(transactions, borrowerRegistry.listAllBorrowers(), 0, year, 10);
+        System.out.println("Most Active Borrowers:");
+        for (int i = 0; i < mostActive.size(); i++) {
+            System.out.println((i+1) + ". " + mostActive.get(i));
+        }
+    }
+
+    private static void importMenu() {
+        System.out.println("\nBulk Import:");
+        System.out.println("1. Import Books (title|author|isbn|category|year|publisher|shelfLocation)");
+        System.out.println("2. Import Borrowers (name|id|contact[|fines|isbn1,isbn2,...])");
+        System.out.print("Select option: ");
+        String choice = scanner.nextLine().trim();
+        if (!choice.equals("1") && !choice.equals("2")) {
+            System.out.println("Invalid import option.");
+            return;
+        }
+        System.out.print("File to import (.csv for comma-separated): ");
+        String filename = scanner.nextLine().trim();
+        if (!new java.io.File(filename).isFile()) {
+            System.out.println("[Error] File not found. Please check the path and try again.");
+            return;
+        }
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        try {
+            library.util.ImportReport report = choice.equals("1")
+                ? bookInventory.importFromFile(filename, workers)
+                : borrowerRegistry.importFromFile(filename, workers);
+            System.out.print(report);
+        } catch (Exception e) {
+            System.out.println("[Error] Import failed: " + e.getMessage());
+        }
+    }
+
     private static void searchSortMenu() {
         System.out.println("\nSearch/Sort Books:");
         System.out.println("1. Search by Title (Linear)");
         System.out.println("2. Search by ISBN (Binary, sorted by ISBN)");
-        System.out.println("3. Sort by Title (Selection Sort)");
-        System.out.println("4. Sort by Year (Merge Sort)");
+        System.out.println("3. List by Title");
+        System.out.println("4. List by Year");
+        System.out.println("5. Keyword Search (Title/Author/Publisher)");
+        System.out.println("6. List by Year Range");
         System.out.print("Select option: ");
         String choice = scanner.nextLine();
-        List<library.model.Book> books = bookInventory.listAllBooks();
         switch (choice) {
             case "1":
                 System.out.print("Enter title: ");
                 String title = scanner.nextLine();
-                library.model.Book found = library.util.SearchUtils.linearSearchByTitle(books, title);
+                library.model.Book found = library.util.SearchUtils.linearSearchByTitle(bookInventory.listAllBooks(), title);
                 System.out.println(found != null ? found : "Book not found.");
                 break;
             case "2":
-                books.sort(Comparator.comparing(library.model.Book::getIsbn));
                 System.out.print("Enter ISBN: ");
                 String isbn = scanner.nextLine();
-                library.model.Book foundIsbn = library.util.SearchUtils.binarySearchByIsbn(books, isbn);
+                library.model.Book foundIsbn = library.util.SearchUtils.binarySearchByIsbn(bookInventory.listBooksSortedByIsbn(), isbn);
                 System.out.println(foundIsbn != null ? foundIsbn : "Book not found.");
                 break;
             case "3":
-                library.util.SortUtils.selectionSortByTitle(books);
                 System.out.println("Books sorted by title:");
-                books.forEach(System.out::println);
+                bookInventory.listBooksSortedByTitle().forEach(System.out::println);
                 break;
             case "4":
-                library.util.SortUtils.mergeSortByYear(books);
                 System.out.println("Books sorted by year:");
-                books.forEach(System.out::println);
+                bookInventory.listBooksSortedByYear().forEach(System.out::println);
+                break;
+            case "5":
+                System.out.print("Enter keywords: ");
+                String query = scanner.nextLine();
+                List<library.model.Book> matches = bookInventory.searchBooks(query, 20);
+                if (matches.isEmpty()) System.out.println("No matching books.");
+                else matches.forEach(System.out::println);
+                break;
+            case "6": {
+                int fromYear, toYear;
+                try {
+                    System.out.print("From year: ");
+                    fromYear = Integer.parseInt(scanner.nextLine().trim());
+                    System.out.print("To year: ");
+                    toYear = Integer.parseInt(scanner.nextLine().trim());
+                } catch (NumberFormatException e) {
+                    System.out.println("[Error] Invalid year. Please enter a valid numeric year (e.g., 2024).");
+                    break;
+                }
+                List<library.model.Book> inRange = bookInventory.getBooksByYearRange(fromYear, toYear);
+                if (inRange.isEmpty()) System.out.println("No books published in that range.");
+                else inRange.forEach(System.out::println);
+                break;
+            }
+            default:
+                System.out.println("Invalid option.");
+        }
+    }
+
+    private static void copiesMenu() {
+        System.out.println("\nCopies & Availability:");
+        System.out.println("1. Add Copies of a Book");
+        System.out.println("2. Show Availability of a Book");
+        System.out.print("Select option: ");
+        String choice = scanner.nextLine().trim();
+        if (!choice.equals("1") && !choice.equals("2")) {
+            System.out.println("Invalid option.");
+            return;
+        }
+        System.out.print("Enter ISBN: ");
+        String isbn = scanner.nextLine().trim();
+        Book book = bookInventory.getBookByIsbn(isbn);
+        if (book == null) {
+            System.out.println("[Error] Book not found. Please check the ISBN and try again.");
+            return;
+        }
+        Holdings holdings = bookInventory.getHoldings();
+        if (choice.equals("1")) {
+            System.out.print("Branch (Enter for " + Holdings.DEFAULT_BRANCH + "): ");
+            String branch = scanner.nextLine().trim();
+            if (branch.isEmpty()) branch = Holdings.DEFAULT_BRANCH;
+            if (branch.contains("|")) {
+                System.out.println("[Error] Branch name cannot contain '|'.");
+                return;
+            }
+            System.out.print("Number of copies: ");
+            int count;
+            try {
+                count = Integer.parseInt(scanner.nextLine().trim());
+            } catch (NumberFormatException e) {
+                System.out.println("[Error] Invalid number. Please enter a whole number of copies.");
+                return;
+            }
+            if (count <= 0) {
+                System.out.println("[Error] Number of copies must be positive.");
+                return;
+            }
+            for (int i = 0; i < count; i++) holdings.addCopy(isbn, branch);
+            saveHoldings();
+        }
+        System.out.println(book);
+        System.out.println("Available: " + holdings.availableCount(isbn) + " of " + holdings.copyCount(isbn) + " copies");
+        for (var entry : holdings.availabilityByBranch(isbn).entrySet()) {
+            System.out.println("- " + entry.getKey() + ": " + entry.getValue() + " on the shelf");
+        }
+    }
+
+    private static void holdsMenu() {
+        System.out.println("\nHolds & Reservations:");
+        System.out.println("1. Place Hold");
+        System.out.println("2. Cancel Hold");
+        System.out.println("3. Show Holds of a Borrower");
+        System.out.println("4. Show Hold Queue of a Book");
+        System.out.print("Select option: ");
+        String choice = scanner.nextLine().trim();
+        java.time.LocalDate today = java.time.LocalDate.now();
+        switch (choice) {
+            case "1": {
+                System.out.print("Borrower ID: "); String borrowerId = scanner.nextLine().trim();
+                System.out.print("Book ISBN: "); String isbn = scanner.nextLine().trim();
+                System.out.print("Priority (HIGH, NORMAL, LOW; Enter for NORMAL): ");
+                String input = scanner.nextLine().trim();
+                Hold.Priority priority;
+                try {
+                    priority = input.isEmpty() ? Hold.Priority.NORMAL : Hold.Priority.valueOf(input.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.out.println("[Error] Invalid priority. Please enter HIGH, NORMAL or LOW.");
+                    return;
+                }
+                switch (circulation.placeHold(borrowerId, isbn, priority, today)) {
+                    case SUCCESS:
+                        System.out.println("Hold placed. Position in queue: " + circulation.getReservations().position(isbn, borrowerId));
+                        break;
+                    case BORROWER_NOT_FOUND:
+                        System.out.println("[Error] Borrower not found. Please check the ID and try again.");
+                        break;
+                    case BOOK_NOT_FOUND:
+                        System.out.println("[Error] Book not found. Please check the ISBN and try again.");
+                        break;
+                    case ALREADY_BORROWED:
+                        System.out.println("[Error] Borrower already has this book on loan.");
+                        break;
+                    case ALREADY_HELD:
+                        System.out.println("[Error] Borrower already has a hold on this book.");
+                        break;
+                    default:
+                        System.out.println("[Error] A copy of this book is on the shelf. Borrow it instead.");
+                }
+                break;
+            }
+            case "2": {
+                System.out.print("Borrower ID: "); String borrowerId = scanner.nextLine().trim();
+                System.out.print("Book ISBN: "); String isbn = scanner.nextLine().trim();
+                if (circulation.cancelHold(borrowerId, isbn, today) == CirculationService.Result.SUCCESS) {
+                    System.out.println("Hold cancelled.");
+                } else {
+                    System.out.println("[Error] No hold found for this borrower and book.");
+                }
                 break;
+            }
+            case "3": {
+                System.out.print("Borrower ID: "); String borrowerId = scanner.nextLine().trim();
+                List<Hold> holds = circulation.getReservations().holdsOf(borrowerId);
+                if (holds.isEmpty()) {
+                    System.out.println("No holds found.");
+                    return;
+                }
+                for (Hold hold : holds) {
+                    int position = circulation.getReservations().position(hold.getBookIsbn(), borrowerId);
+                    System.out.println(hold + (position > 0 ? ", Position=" + position : ""));
+                }
+                break;
+            }
+            case "4": {
+                System.out.print("Book ISBN: "); String isbn = scanner.nextLine().trim();
+                List<Hold> queue = circulation.getReservations().queueOf(isbn);
+                if (queue.isEmpty()) {
+                    System.out.println("No holds found.");
+                    return;
+                }
+                for (Hold hold : queue) System.out.println(hold);
+                break;
+            }
             default:
                 System.out.println("Invalid option.");
         }
     }
 
+    private static void historyMenu() {
+        System.out.println("\nLoan History:");
+        System.out.println("1. Books Borrowed by a Borrower");
+        System.out.println("2. Borrowers of a Book");
+        System.out.print("Select option: ");
+        String choice = scanner.nextLine().trim();
+        if (!choice.equals("1") && !choice.equals("2")) {
+            System.out.println("Invalid option.");
+            return;
+        }
+        boolean byBorrower = choice.equals("1");
+        System.out.print(byBorrower ? "Enter Borrower ID: " : "Enter ISBN: ");
+        String key = scanner.nextLine().trim();
+        int total = byBorrower ? lendingTracker.historySizeOfBorrower(key) : lendingTracker.historySizeOfBook(key);
+        if (total == 0) {
+            System.out.println("No loans found.");
+            return;
+        }
+        System.out.println(total + " loan(s), newest first:");
+        for (int offset = 0; offset < total; offset += HISTORY_PAGE_SIZE) {
+            List<Transaction> page = byBorrower
+                ? lendingTracker.historyOfBorrower(key, offset, HISTORY_PAGE_SIZE)
+                : lendingTracker.historyOfBook(key, offset, HISTORY_PAGE_SIZE);
+            page.forEach(System.out::println);
+            if (offset + HISTORY_PAGE_SIZE >= total) break;
+            System.out.print("Press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) break;
+        }
+    }
+
     private static void overdueMenu() {
         lendingTracker.updateOverdueFines(borrowerRegistry);
         List<Transaction> overdue = lendingTracker.getOverdueTransactions();
@@ -340,24 +858,22 @@ public class Main {
             System.out.println("[Error] Book ISBN cannot be empty. Please enter a valid ISBN.");
             return;
         }
-        Borrower borrower = borrowerRegistry.getBorrowerById(borrowerId);
-        Book book = bookInventory.getBookByIsbn(isbn);
-        if (borrower == null) {
-            System.out.println("[Error] Borrower not found. Please check the ID and try again.");
-            return;
-        }
-        if (book == null) {
-            System.out.println("[Error] Book not found. Please check the ISBN and try again.");
-            return;
-        }
-        if (borrower.getBorrowedBooks().contains(isbn)) {
-            System.out.println("[Error] Borrower already has this book on loan.");
-            return;
+        switch (circulation.borrowBook(borrowerId, isbn, java.time.LocalDate.now())) {
+            case SUCCESS:
+                System.out.println("Book borrowed.");
+                break;
+            case BORROWER_NOT_FOUND:
+                System.out.println("[Error] Borrower not found. Please check the ID and try again.");
+                break;
+            case BOOK_NOT_FOUND:
+                System.out.println("[Error] Book not found. Please check the ISBN and try again.");
+                break;
+            case ALREADY_BORROWED:
+                System.out.println("[Error] Borrower already has this book on loan.");
+                break;
+            default:
+                System.out.println("[Error] No copy of this book is currently available. You can place a hold (option 14).");
         }
-        borrower.addBorrowedBook(isbn);
-        Transaction t = new Transaction(isbn, borrowerId, java.time.LocalDate.now(), null, "BORROWED");
-        lendingTracker.borrowBook(t);
-        System.out.println("Book borrowed.");
     }
 
     private static void returnBookMenu() {
@@ -384,24 +900,10 @@ public class Main {
             System.out.println("[Error] You have not borrowed this book.");
             return;
         }
-        // Find the corresponding transaction (most recent BORROWED or OVERDUE for this book and borrower)
-        Transaction toReturn = null;
-        List<Transaction> allTx = lendingTracker.getAllTransactions();
-        for (int i = allTx.size() - 1; i >= 0; i--) {
-            Transaction t = allTx.get(i);
-            if (t.getBookIsbn().equals(isbnToReturn) && t.getBorrowerId().equals(borrowerId)
-                && (t.getStatus().equals("BORROWED") || t.getStatus().equals("OVERDUE"))) {
-                toReturn = t;
-                break;
-            }
-        }
-        if (toReturn == null) {
+        if (circulation.returnBook(borrowerId, isbnToReturn, java.time.LocalDate.now()) != CirculationService.Result.SUCCESS) {
             System.out.println("[Error] No active transaction found for this book.");
             return;
         }
-        toReturn.setStatus("RETURNED");
-        toReturn.setReturnDate(java.time.LocalDate.now());
-        borrower.removeBorrowedBook(isbnToReturn);
         System.out.println("Book returned: " + (bookInventory.getBookByIsbn(isbnToReturn) != null ? bookInventory.getBookByIsbn(isbnToReturn) : isbnToReturn));
     }
 }
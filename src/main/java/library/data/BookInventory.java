@@ -1,41 +1,197 @@
 package library.data;
 
 import library.model.Book;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import library.util.FileManager;
+import library.util.ImportPipeline;
+import library.util.ImportReport;
+import library.util.LruCache;
+import library.util.MappedRecordReader;
+import library.util.Metrics;
+import library.util.BinarySnapshotReader;
+import library.util.BinarySnapshotWriter;
+import library.util.StorageFormat;
 
 /**
  * BookInventory manages the collection of books in the library.
  * It provides fast lookup by ISBN and grouping by category using custom data structures.
  * Supports file-based persistence for saving/loading the inventory.
+ * Safe for concurrent use: lookups are lock-free, and each add/remove holds the lock stripe
+ * of its ISBN while it updates the ISBN map, the category sets and the indexes together.
+ *
+ * In disk mode the books live in an on-disk hash file with an LRU cache in front of it,
+ * so the heap only holds the cache. ISBN lookups are served from the cache or one file
+ * probe; category, sorted, range and keyword queries scan the file instead of keeping
+ * in-memory indexes.
  */
 public class BookInventory {
     // Maps ISBN to Book for fast lookup
-    private Map<String, Book> booksByIsbn = new HashMap<>();
-    // Maps category to list of books for grouping
-    private Map<String, List<Book>> booksByCategory = new HashMap<>();
+    private final Map<String, Book> booksByIsbn;
+    // Maps category to the set of books in it for grouping
+    private Map<String, Set<Book>> booksByCategory = new ConcurrentHashMap<>();
+    // Lock stripes; an ISBN always maps to the same stripe
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+    // Inverted index over title, author and publisher tokens for keyword search
+    private BookSearchIndex searchIndex = new BookSearchIndex();
+    // Sorted views by title, year and ISBN, kept up to date on every change
+    private SortedBookViews sortedViews = new SortedBookViews();
+    // Report counters notified of every add/remove (optional)
+    private volatile ReportAggregates aggregates;
+    // Change stream notified of every add/remove (optional)
+    private volatile ChangeEventBus events;
+    // Physical copies of each title and which are on the shelf
+    private final Holdings holdings = new Holdings(isbn -> getBookByIsbn(isbn) != null);
+    // Authoritative on-disk store in disk mode, null when the books are kept in memory
+    private final CachedDiskStore<Book> disk;
+    // Store tag used in binary snapshots
+    private static final byte SNAPSHOT_TYPE = 'B';
+    // Latency timers (no-ops unless metrics are enabled)
+    private static final Metrics.Timer LOOKUP_TIME = Metrics.timer("inventory.lookup");
+    private static final Metrics.Timer SEARCH_TIME = Metrics.timer("inventory.search");
+    private static final Metrics.Timer LOAD_TIME = Metrics.timer("inventory.load");
+    private static final Metrics.Timer SAVE_TIME = Metrics.timer("inventory.save");
+
+    public BookInventory() {
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+        booksByIsbn = new ConcurrentHashMap<>();
+        disk = null;
+    }
+
+    /**
+     * Creates an inventory in disk mode, backed by a hash file with an LRU cache in front.
+     * Books already in the file are available immediately.
+     * @param filename The hash file (created if missing)
+     * @param cacheSize Number of books kept in memory
+     * @throws IOException if the file cannot be opened
+     */
+    public BookInventory(String filename, int cacheSize) throws IOException {
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+        disk = new CachedDiskStore<>(filename, cacheSize, new BookCodec());
+        booksByIsbn = null;
+        booksByCategory = null;
+        searchIndex = null;
+        sortedViews = null;
+    }
+
+    /**
+     * @return true if the books are kept in an on-disk store
+     */
+    public boolean isDiskBacked() {
+        return disk != null;
+    }
+
+    /**
+     * Returns the number of books in the inventory.
+     */
+    public int size() {
+        return disk != null ? (int) disk.size() : booksByIsbn.size();
+    }
+
+    /**
+     * Attaches report counters, seeding them with the current catalogue.
+     * @param aggregates The counters to keep up to date
+     */
+    public void setReportAggregates(ReportAggregates aggregates) {
+        this.aggregates = aggregates;
+        if (disk != null) disk.forEach(aggregates::bookAdded);
+        else for (Book b : booksByIsbn.values()) aggregates.bookAdded(b);
+    }
+
+    /**
+     * Attaches a change stream; every later add or remove publishes an event to it.
+     * @param events The bus, or null to stop publishing
+     */
+    public void setEventBus(ChangeEventBus events) {
+        this.events = events;
+    }
+
+    /**
+     * Returns the copies of each title and their availability.
+     */
+    public Holdings getHoldings() {
+        return holdings;
+    }
+
+    private ReentrantLock stripeFor(String isbn) {
+        int h = isbn.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
 
     /**
      * Adds a book to the inventory, updating both ISBN and category maps.
+     * A book already stored under the same ISBN is replaced everywhere.
      * @param book The book to add
      */
     public void addBook(Book book) {
-        booksByIsbn.put(book.getIsbn(), book);
-        booksByCategory.computeIfAbsent(book.getCategory(), k -> new ArrayList<>()).add(book);
+        ReentrantLock lock = stripeFor(book.getIsbn());
+        lock.lock();
+        try {
+            Book previous;
+            if (disk != null) {
+                previous = disk.put(book.getIsbn(), book);
+            } else {
+                previous = booksByIsbn.put(book.getIsbn(), book);
+                if (previous != null) removeFromCategory(previous);
+                booksByCategory.computeIfAbsent(book.getCategory(), k -> ConcurrentHashMap.newKeySet()).add(book);
+                searchIndex.add(book);
+                sortedViews.add(book);
+            }
+            ReportAggregates agg = aggregates;
+            if (agg != null) {
+                if (previous != null) agg.bookRemoved(previous);
+                agg.bookAdded(book);
+            }
+            ChangeEventBus bus = events;
+            if (bus != null) {
+                if (previous != null) bus.bookRemoved(previous);
+                bus.bookAdded(book);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Removes a book by ISBN from the inventory and its category list.
+     * Removes a book by ISBN from the inventory and its category set.
      * @param isbn The ISBN of the book to remove
      * @return The removed Book, or null if not found
      */
     public Book removeBook(String isbn) {
-        Book removed = booksByIsbn.remove(isbn);
-        if (removed != null) {
-            List<Book> catList = booksByCategory.get(removed.getCategory());
-            if (catList != null) catList.remove(removed);
+        ReentrantLock lock = stripeFor(isbn);
+        lock.lock();
+        try {
+            if (disk != null) {
+                Book removed = disk.remove(isbn);
+                if (removed != null) holdings.removeTitle(isbn);
+                ReportAggregates agg = aggregates;
+                if (removed != null && agg != null) agg.bookRemoved(removed);
+                ChangeEventBus bus = events;
+                if (removed != null && bus != null) bus.bookRemoved(removed);
+                return removed;
+            }
+            Book removed = booksByIsbn.remove(isbn);
+            if (removed != null) {
+                holdings.removeTitle(isbn);
+                removeFromCategory(removed);
+                searchIndex.remove(isbn);
+                sortedViews.remove(isbn);
+                ReportAggregates agg = aggregates;
+                if (agg != null) agg.bookRemoved(removed);
+                ChangeEventBus bus = events;
+                if (bus != null) bus.bookRemoved(removed);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
         }
-        return removed;
+    }
+
+    private void removeFromCategory(Book book) {
+        Set<Book> catSet = booksByCategory.get(book.getCategory());
+        if (catSet != null) catSet.remove(book);
     }
 
     /**
@@ -44,7 +200,12 @@ public class BookInventory {
      * @return The Book if found, else null
      */
     public Book getBookByIsbn(String isbn) {
-        return booksByIsbn.get(isbn);
+        long start = Metrics.start();
+        try {
+            return disk != null ? disk.get(isbn) : booksByIsbn.get(isbn);
+        } finally {
+            LOOKUP_TIME.stop(start);
+        }
     }
 
     /**
@@ -52,7 +213,10 @@ public class BookInventory {
      * @return List of all books
      */
     public List<Book> listAllBooks() {
-        return new ArrayList<>(booksByIsbn.values());
+        if (disk == null) return new ArrayList<>(booksByIsbn.values());
+        List<Book> books = new ArrayList<>();
+        disk.forEach(books::add);
+        return books;
     }
 
     /**
@@ -61,7 +225,155 @@ public class BookInventory {
      * @return List of books in the category
      */
     public List<Book> getBooksByCategory(String category) {
-        return booksByCategory.getOrDefault(category, Collections.emptyList());
+        if (disk != null) {
+            List<Book> books = new ArrayList<>();
+            disk.forEach(b -> {
+                if (b.getCategory().equals(category)) books.add(b);
+            });
+            return books;
+        }
+        Set<Book> catSet = booksByCategory.get(category);
+        return catSet == null ? new ArrayList<>() : new ArrayList<>(catSet);
+    }
+
+    /**
+     * Lists all books ordered by title (collation order), without re-sorting.
+     * @return List of books sorted by title
+     */
+    public List<Book> listBooksSortedByTitle() {
+        return sortedViews().byTitle();
+    }
+
+    /**
+     * Lists all books ordered by year, then title, without re-sorting.
+     * @return List of books sorted by year
+     */
+    public List<Book> listBooksSortedByYear() {
+        return sortedViews().byYear();
+    }
+
+    /**
+     * Lists all books ordered by ISBN, without re-sorting.
+     * @return List of books sorted by ISBN
+     */
+    public List<Book> listBooksSortedByIsbn() {
+        return sortedViews().byIsbn();
+    }
+
+    /**
+     * Gets the books published between two years (inclusive) in O(log n + k).
+     * @param fromYear First year
+     * @param toYear Last year
+     * @return Books in the range, ordered by year then title
+     */
+    public List<Book> getBooksByYearRange(int fromYear, int toYear) {
+        if (disk == null) return sortedViews.yearRange(fromYear, toYear);
+        SortedBookViews views = new SortedBookViews();
+        disk.forEach(b -> {
+            if (b.getYear() >= fromYear && b.getYear() <= toYear) views.add(b);
+        });
+        return views.byYear();
+    }
+
+    /**
+     * Searches titles, authors and publishers by keywords using the inverted index.
+     * Every term must match the start of a word; results are ranked, title matches first.
+     * @param query One or more keywords or word prefixes
+     * @param limit Maximum number of results
+     * @return Matching books, best match first
+     */
+    public List<Book> searchBooks(String query, int limit) {
+        long start = Metrics.start();
+        try {
+            if (disk == null) return searchIndex.search(query, limit);
+            // Rank only the books that match every term, in a throwaway index
+            List<String> terms = BookSearchIndex.tokenize(query);
+            if (terms.isEmpty() || limit <= 0) return new ArrayList<>();
+            BookSearchIndex matches = new BookSearchIndex();
+            disk.forEach(b -> {
+                if (BookSearchIndex.matchesAll(b, terms)) matches.add(b);
+            });
+            return matches.search(query, limit);
+        } finally {
+            SEARCH_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Returns the sorted views; in disk mode they are built from a scan of the file.
+     */
+    private SortedBookViews sortedViews() {
+        if (disk == null) return sortedViews;
+        SortedBookViews views = new SortedBookViews();
+        disk.forEach(views::add);
+        return views;
+    }
+
+    // --- Bulk import ---
+
+    /**
+     * Imports books from a pipe-delimited (or .csv) file through the bulk import pipeline:
+     * rows are parsed and validated on worker threads, then inserted in file order.
+     * Rows with an ISBN seen earlier in the file or already in the inventory are rejected.
+     * Nothing is saved; the caller persists the inventory once afterwards.
+     * Each row: title|author|isbn|category|year|publisher|shelfLocation
+     * @param filename The file to import
+     * @param workers Number of parse/validate threads
+     * @return Counts, per-stage throughput and rejected rows
+     * @throws Exception if the file cannot be read
+     */
+    public ImportReport importFromFile(String filename, int workers) throws Exception {
+        int maxYear = java.time.LocalDate.now().getYear() + 1;
+        ImportPipeline<Book> pipeline = new ImportPipeline<>(
+            fields -> {
+                if (fields.size() != 7) throw new IllegalArgumentException("Expected 7 fields, found " + fields.size());
+                int year;
+                try {
+                    year = Integer.parseInt(fields.get(4).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid year '" + fields.get(4) + "'");
+                }
+                return new Book(fields.get(0).trim(), fields.get(1).trim(), fields.get(2).trim(), fields.get(3).trim(),
+                    year, fields.get(5).trim(), fields.get(6).trim());
+            },
+            b -> b.getTitle().isEmpty() ? "Title is empty"
+                : b.getAuthor().isEmpty() ? "Author is empty"
+                : b.getIsbn().isEmpty() ? "ISBN is empty"
+                : b.getCategory().isEmpty() ? "Category is empty"
+                : b.getYear() <= 0 || b.getYear() > maxYear ? "Year " + b.getYear() + " out of range"
+                : b.getPublisher().isEmpty() ? "Publisher is empty"
+                : b.getShelfLocation().isEmpty() ? "Shelf location is empty"
+                : null,
+            Book::getIsbn,
+            isbn -> getBookByIsbn(isbn) != null,
+            this::addBook,
+            workers);
+        return pipeline.run(filename);
+    }
+
+    // --- Disk mode ---
+
+    /**
+     * Forces books written in disk mode to the storage device. Does nothing in memory mode.
+     * @throws IOException if the file cannot be synced
+     */
+    public void sync() throws IOException {
+        if (disk != null) disk.sync();
+    }
+
+    /**
+     * Closes the on-disk store. Does nothing in memory mode.
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (disk != null) disk.close();
+    }
+
+    /**
+     * Returns the lookup cache of disk mode (hits, misses, evictions), or null in memory mode.
+     */
+    public LruCache<String, Book> getCache() {
+        return disk == null ? null : disk.getCache();
     }
 
     // --- File Persistence ---
@@ -89,20 +401,116 @@ public class BookInventory {
 
     /**
      * Loads the inventory from a file, clearing existing data first.
+     * The holdings are cleared too; reload them and restore the loans afterwards.
+     * The file is streamed through a memory-mapped parser without building a list of lines.
      * Each line must have 7 fields: title|author|isbn|category|year|publisher|shelfLocation
      * @param filename The file to read from
      * @throws Exception if file reading or parsing fails
      */
     public void loadFromFile(String filename) throws Exception {
+        clearAll();
+        MappedRecordReader.read(filename, r -> {
+            if (r.fieldCount() == 7) {
+                addBook(new Book(r.getString(0), r.getString(1), r.getString(2), r.getString(3),
+                    r.getInt(4), r.getString(5), r.getString(6)));
+            }
+        });
+    }
+
+    /**
+     * Saves the inventory in the given format.
+     * Binary layout: count, then per book title, author, isbn, category, year, publisher, shelfLocation.
+     * @param filename The file to write to
+     * @param format TEXT or BINARY
+     * @throws Exception if file writing fails
+     */
+    public void saveToFile(String filename, StorageFormat format) throws Exception {
+        long start = Metrics.start();
+        try {
+            if (format == StorageFormat.TEXT) {
+                saveToFile(filename);
+                return;
+            }
+            List<Book> books = listAllBooks();
+            try (BinarySnapshotWriter out = new BinarySnapshotWriter(filename, SNAPSHOT_TYPE)) {
+                out.writeInt(books.size());
+                for (Book b : books) {
+                    out.writeString(b.getTitle());
+                    out.writeString(b.getAuthor());
+                    out.writeString(b.getIsbn());
+                    out.writeString(b.getCategory());
+                    out.writeInt(b.getYear());
+                    out.writeString(b.getPublisher());
+                    out.writeString(b.getShelfLocation());
+                }
+                out.commit();
+            }
+        } finally {
+            SAVE_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Loads the inventory from a file in the given format, clearing existing data first.
+     * The holdings are cleared too; reload them and restore the loans afterwards.
+     * @param filename The file to read from
+     * @param format TEXT or BINARY
+     * @throws Exception if file reading fails or a binary snapshot is corrupt
+     */
+    public void loadFromFile(String filename, StorageFormat format) throws Exception {
+        long start = Metrics.start();
+        try {
+            if (format == StorageFormat.TEXT) {
+                loadFromFile(filename);
+                return;
+            }
+            try (BinarySnapshotReader in = new BinarySnapshotReader(filename, SNAPSHOT_TYPE)) {
+                clearAll();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    addBook(new Book(in.readString(), in.readString(), in.readString(), in.readString(),
+                        in.readInt(), in.readString(), in.readString()));
+                }
+            }
+        } finally {
+            LOAD_TIME.stop(start);
+        }
+    }
+
+    private void clearAll() {
+        ReportAggregates agg = aggregates;
+        if (agg != null) agg.clearBooks();
+        // Copies of the replaced books must not be saved back; the holdings file is reloaded afterwards
+        holdings.clear();
+        if (disk != null) {
+            disk.clear();
+            return;
+        }
         booksByIsbn.clear();
         booksByCategory.clear();
-        List<String> lines = FileManager.readLines(filename);
-        for (String line : lines) {
-            String[] parts = line.split("\\|");
-            if (parts.length == 7) {
-                Book b = new Book(parts[0], parts[1], parts[2], parts[3], Integer.parseInt(parts[4]), parts[5], parts[6]);
-                addBook(b);
-            }
+        searchIndex.clear();
+        sortedViews.clear();
+    }
+
+    /**
+     * On-disk form of a book: its seven fields in declaration order.
+     */
+    private static final class BookCodec implements CachedDiskStore.Codec<Book> {
+        @Override
+        public void encode(Book b, DataOutputStream out) throws IOException {
+            out.writeUTF(b.getTitle());
+            out.writeUTF(b.getAuthor());
+            out.writeUTF(b.getIsbn());
+            out.writeUTF(b.getCategory());
+            out.writeInt(b.getYear());
+            out.writeUTF(b.getPublisher());
+            out.writeUTF(b.getShelfLocation());
+        }
+
+        @Override
+        public Book decode(DataInputStream in) throws IOException {
+            return new Book(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                in.readInt(), in.readUTF(), in.readUTF());
         }
     }
 }
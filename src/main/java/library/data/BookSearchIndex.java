@@ -0,0 +1,234 @@
+package library.data;
+
+import library.model.Book;
+import library.util.IntList;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BookSearchIndex is a tokenized inverted index over book titles, authors and publishers.
+ * Each token maps to a postings list of document ids (one id per indexed book), so a keyword
+ * query only touches the postings of the tokens it matches instead of scanning the catalogue.
+ * Every query term is matched as a token prefix, and all terms must match (AND).
+ * Results are ranked by where and how well each term matched.
+ * Queries share a read lock; index updates take the write lock briefly.
+ */
+public class BookSearchIndex {
+    // Field bits stored in the low bits of each posting
+    private static final int TITLE = 1, AUTHOR = 2, PUBLISHER = 4;
+    private static final int FIELD_BITS = 3;
+
+    // Token -> postings (docId << FIELD_BITS | field mask), docIds ascending
+    private final TreeMap<String, IntList> postings = new TreeMap<>();
+    // ISBN -> docId of the live document for that ISBN
+    private final Map<String, Integer> docIdsByIsbn = new HashMap<>();
+    // docId -> Book, null once the book has been removed
+    private final List<Book> docs = new ArrayList<>();
+    // Number of removed documents whose postings have not been purged yet
+    private int removedDocs;
+    // Guards all of the above
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes a book. A book already indexed under the same ISBN is replaced.
+     * @param book The book to index
+     */
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            remove(book.getIsbn());
+            int docId = docs.size();
+            docs.add(book);
+            docIdsByIsbn.put(book.getIsbn(), docId);
+            Map<String, Integer> fields = new HashMap<>();
+            for (String token : tokenize(book.getTitle())) fields.merge(token, TITLE, (a, b) -> a | b);
+            for (String token : tokenize(book.getAuthor())) fields.merge(token, AUTHOR, (a, b) -> a | b);
+            for (String token : tokenize(book.getPublisher())) fields.merge(token, PUBLISHER, (a, b) -> a | b);
+            for (Map.Entry<String, Integer> e : fields.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new IntList(2)).add(docId << FIELD_BITS | e.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the book with the given ISBN from the index. Its postings are skipped at query
+     * time and purged once removed documents outnumber live ones.
+     * @param isbn The ISBN to remove
+     */
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIdsByIsbn.remove(isbn);
+            if (docId == null) return;
+            docs.set(docId, null);
+            if (++removedDocs > docIdsByIsbn.size()) rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every book from the index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docIdsByIsbn.clear();
+            docs.clear();
+            removedDocs = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds books matching every term of a query, best matches first.
+     * Each term is matched as a prefix of a title, author or publisher token, so
+     * "dil gho" finds "Dilemma of a Ghost". Title matches outrank author matches,
+     * which outrank publisher matches, and whole-token matches outrank prefixes.
+     * @param query Free-text query
+     * @param limit Maximum number of results
+     * @return Matching books, highest score first (ties by title, then ISBN)
+     */
+    public List<Book> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            List<String> terms = tokenize(query);
+            if (terms.isEmpty() || limit <= 0) return new ArrayList<>();
+            // Evaluate the most selective term first so the candidate set starts small
+            Map<String, SortedMap<String, IntList>> matches = new HashMap<>();
+            for (String term : terms) {
+                SortedMap<String, IntList> m = postings.subMap(term, term + Character.MAX_VALUE);
+                if (m.isEmpty()) return new ArrayList<>();
+                matches.put(term, m);
+            }
+            List<String> ordered = new ArrayList<>(matches.keySet());
+            ordered.sort(Comparator.comparingLong(term -> postingCount(matches.get(term))));
+
+            Map<Integer, Integer> scores = null;
+            for (String term : ordered) {
+                Map<Integer, Integer> termScores = new HashMap<>();
+                for (Map.Entry<String, IntList> e : matches.get(term).entrySet()) {
+                    boolean exact = e.getKey().equals(term);
+                    IntList list = e.getValue();
+                    for (int i = 0; i < list.size(); i++) {
+                        int posting = list.get(i);
+                        int docId = posting >>> FIELD_BITS;
+                        if (docs.get(docId) == null) continue;
+                        if (scores != null && !scores.containsKey(docId)) continue;
+                        termScores.merge(docId, score(posting, exact), Math::max);
+                    }
+                }
+                if (scores != null) {
+                    Map<Integer, Integer> previous = scores;
+                    termScores.replaceAll((docId, score) -> score + previous.get(docId));
+                }
+                scores = termScores;
+                if (scores.isEmpty()) return new ArrayList<>();
+            }
+
+            Comparator<Map.Entry<Integer, Integer>> byRank = (a, b) -> {
+                int cmp = Integer.compare(b.getValue(), a.getValue());
+                if (cmp != 0) return cmp;
+                Book x = docs.get(a.getKey()), y = docs.get(b.getKey());
+                cmp = x.getTitle().compareToIgnoreCase(y.getTitle());
+                return cmp != 0 ? cmp : x.getIsbn().compareTo(y.getIsbn());
+            };
+            List<Map.Entry<Integer, Integer>> ranked;
+            if (limit >= scores.size()) {
+                ranked = new ArrayList<>(scores.entrySet());
+                ranked.sort(byRank);
+            } else {
+                // Keep only the best `limit` matches in a heap whose head is the worst of them,
+                // instead of sorting every match for a short result page
+                PriorityQueue<Map.Entry<Integer, Integer>> best = new PriorityQueue<>(limit + 1, byRank.reversed());
+                for (Map.Entry<Integer, Integer> e : scores.entrySet()) {
+                    if (best.size() < limit) {
+                        best.add(e);
+                    } else if (byRank.compare(e, best.peek()) < 0) {
+                        best.poll();
+                        best.add(e);
+                    }
+                }
+                ranked = new ArrayList<>(best);
+                ranked.sort(byRank);
+            }
+            List<Book> result = new ArrayList<>(ranked.size());
+            for (Map.Entry<Integer, Integer> e : ranked) result.add(docs.get(e.getKey()));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long postingCount(SortedMap<String, IntList> m) {
+        long count = 0;
+        for (IntList list : m.values()) count += list.size();
+        return count;
+    }
+
+    /**
+     * Scores one posting: title 6, author 4, publisher 2, plus 1 for a whole-token match.
+     */
+    private static int score(int posting, boolean exact) {
+        int base = (posting & TITLE) != 0 ? 6 : (posting & AUTHOR) != 0 ? 4 : 2;
+        return exact ? base + 1 : base;
+    }
+
+    /**
+     * Splits text into lower-case tokens of letters and digits.
+     * @param text The text to split (may be null)
+     * @return List of tokens in order
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Checks whether every term matches the start of a title, author or publisher token,
+     * the same rule search applies. Used to filter books that are not in an index.
+     * @param book The book to check
+     * @param terms Lower-case query terms, as returned by tokenize
+     * @return true if the book matches all terms
+     */
+    public static boolean matchesAll(Book book, List<String> terms) {
+        List<String> tokens = tokenize(book.getTitle());
+        tokens.addAll(tokenize(book.getAuthor()));
+        tokens.addAll(tokenize(book.getPublisher()));
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Re-indexes the live books to drop postings of removed ones.
+     */
+    private void rebuild() {
+        List<Book> live = new ArrayList<>();
+        for (Book b : docs) if (b != null) live.add(b);
+        clear();
+        for (Book b : live) add(b);
+    }
+}
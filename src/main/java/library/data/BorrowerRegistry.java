@@ -1,23 +1,84 @@
 package library.data;
 
 import library.model.Borrower;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import library.util.FileManager;
+import library.util.ImportPipeline;
+import library.util.ImportReport;
+import library.util.LruCache;
+import library.util.MappedRecordReader;
+import library.util.Metrics;
+import library.util.BinarySnapshotReader;
+import library.util.BinarySnapshotWriter;
+import library.util.StorageFormat;
 
 /**
  * BorrowerRegistry manages all borrowers in the library system.
  * Provides fast lookup by ID and supports file-based persistence.
+ * Backed by a concurrent map so several desks can look up borrowers at once.
+ * In disk mode the borrowers live in an on-disk hash file with an LRU cache in front of it;
+ * a borrower changed after lookup must be written back with updateBorrower.
  */
 public class BorrowerRegistry {
-    // Maps borrower ID to Borrower object for fast lookup
-    private Map<String, Borrower> borrowersById = new HashMap<>();
+    // Maps borrower ID to Borrower object for fast lookup (memory mode)
+    private final Map<String, Borrower> borrowersById;
+    // Authoritative on-disk store in disk mode, null when the borrowers are kept in memory
+    private final CachedDiskStore<Borrower> disk;
+    // Change stream notified of every add/remove (optional)
+    private volatile ChangeEventBus events;
+    // Store tag used in binary snapshots
+    private static final byte SNAPSHOT_TYPE = 'R';
+    // Latency timers (no-ops unless metrics are enabled)
+    private static final Metrics.Timer LOOKUP_TIME = Metrics.timer("borrowers.lookup");
+    private static final Metrics.Timer LOAD_TIME = Metrics.timer("borrowers.load");
+    private static final Metrics.Timer SAVE_TIME = Metrics.timer("borrowers.save");
+
+    public BorrowerRegistry() {
+        borrowersById = new ConcurrentHashMap<>();
+        disk = null;
+    }
+
+    /**
+     * Creates a registry in disk mode, backed by a hash file with an LRU cache in front.
+     * @param filename The hash file (created if missing)
+     * @param cacheSize Number of borrowers kept in memory
+     * @throws IOException if the file cannot be opened
+     */
+    public BorrowerRegistry(String filename, int cacheSize) throws IOException {
+        borrowersById = null;
+        disk = new CachedDiskStore<>(filename, cacheSize, new BorrowerCodec());
+    }
 
     /**
      * Adds a borrower to the registry.
      * @param borrower The borrower to add
      */
     public void addBorrower(Borrower borrower) {
-        borrowersById.put(borrower.getIdNumber(), borrower);
+        Borrower previous = disk != null ? disk.put(borrower.getIdNumber(), borrower) : borrowersById.put(borrower.getIdNumber(), borrower);
+        ChangeEventBus bus = events;
+        if (bus != null) {
+            if (previous != null) bus.borrowerRemoved(previous);
+            bus.borrowerAdded(borrower);
+        }
+    }
+
+    /**
+     * Attaches a change stream; every later add or remove publishes an event to it.
+     * @param events The bus, or null to stop publishing
+     */
+    public void setEventBus(ChangeEventBus events) {
+        this.events = events;
+    }
+
+    /**
+     * Writes back a borrower whose fines or borrowed books were changed.
+     * Only needed in disk mode; in memory mode the registry holds the changed object itself.
+     * @param borrower The changed borrower
+     */
+    public void updateBorrower(Borrower borrower) {
+        if (disk != null) disk.put(borrower.getIdNumber(), borrower);
     }
 
     /**
@@ -26,7 +87,12 @@ public class BorrowerRegistry {
      * @return The Borrower if found, else null
      */
     public Borrower getBorrowerById(String id) {
-        return borrowersById.get(id);
+        long start = Metrics.start();
+        try {
+            return disk != null ? disk.get(id) : borrowersById.get(id);
+        } finally {
+            LOOKUP_TIME.stop(start);
+        }
     }
 
     /**
@@ -35,7 +101,10 @@ public class BorrowerRegistry {
      * @return true if removed, false if not found
      */
     public boolean removeBorrower(String id) {
-        return borrowersById.remove(id) != null;
+        Borrower removed = disk != null ? disk.remove(id) : borrowersById.remove(id);
+        ChangeEventBus bus = events;
+        if (removed != null && bus != null) bus.borrowerRemoved(removed);
+        return removed != null;
     }
 
     /**
@@ -43,7 +112,47 @@ public class BorrowerRegistry {
      * @return List of all borrowers
      */
     public List<Borrower> listAllBorrowers() {
-        return new ArrayList<>(borrowersById.values());
+        if (disk == null) return new ArrayList<>(borrowersById.values());
+        List<Borrower> borrowers = new ArrayList<>();
+        disk.forEach(borrowers::add);
+        return borrowers;
+    }
+
+    /**
+     * Returns the number of registered borrowers.
+     */
+    public int size() {
+        return disk != null ? (int) disk.size() : borrowersById.size();
+    }
+
+    /**
+     * @return true if the borrowers are kept in an on-disk store
+     */
+    public boolean isDiskBacked() {
+        return disk != null;
+    }
+
+    /**
+     * Forces borrowers written in disk mode to the storage device. Does nothing in memory mode.
+     * @throws IOException if the file cannot be synced
+     */
+    public void sync() throws IOException {
+        if (disk != null) disk.sync();
+    }
+
+    /**
+     * Closes the on-disk store. Does nothing in memory mode.
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (disk != null) disk.close();
+    }
+
+    /**
+     * Returns the lookup cache of disk mode (hits, misses, evictions), or null in memory mode.
+     */
+    public LruCache<String, Borrower> getCache() {
+        return disk == null ? null : disk.getCache();
     }
 
     /**
@@ -54,10 +163,56 @@ public class BorrowerRegistry {
      */
     public Borrower recursiveSearch(List<String> ids, int index) {
         if (index >= ids.size()) return null;
-        Borrower b = borrowersById.get(ids.get(index));
+        Borrower b = getBorrowerById(ids.get(index));
         return (b != null) ? b : recursiveSearch(ids, index + 1);
     }
 
+    // --- Bulk import ---
+
+    /**
+     * Imports borrowers from a pipe-delimited (or .csv) file through the bulk import pipeline:
+     * rows are parsed and validated on worker threads, then inserted in file order.
+     * Rows with an ID seen earlier in the file or already registered are rejected.
+     * Nothing is saved; the caller persists the registry once afterwards.
+     * Each row: name|id|contact, optionally followed by |fines and |isbn1,isbn2,...
+     * @param filename The file to import
+     * @param workers Number of parse/validate threads
+     * @return Counts, per-stage throughput and rejected rows
+     * @throws Exception if the file cannot be read
+     */
+    public ImportReport importFromFile(String filename, int workers) throws Exception {
+        ImportPipeline<Borrower> pipeline = new ImportPipeline<>(
+            fields -> {
+                if (fields.size() < 3 || fields.size() > 5) {
+                    throw new IllegalArgumentException("Expected 3 to 5 fields, found " + fields.size());
+                }
+                Borrower b = new Borrower(fields.get(0).trim(), fields.get(1).trim(), fields.get(2).trim());
+                if (fields.size() >= 4 && !fields.get(3).isBlank()) {
+                    try {
+                        b.setFinesOwed(Double.parseDouble(fields.get(3).trim()));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid fines '" + fields.get(3) + "'");
+                    }
+                }
+                if (fields.size() == 5) {
+                    for (String isbn : fields.get(4).split(",")) {
+                        if (!isbn.isBlank()) b.addBorrowedBook(isbn.trim());
+                    }
+                }
+                return b;
+            },
+            b -> b.getName().isEmpty() ? "Name is empty"
+                : b.getIdNumber().isEmpty() ? "ID is empty"
+                : b.getContactInfo().isEmpty() ? "Contact info is empty"
+                : !(b.getFinesOwed() >= 0) || Double.isInfinite(b.getFinesOwed()) ? "Invalid fines " + b.getFinesOwed()
+                : null,
+            Borrower::getIdNumber,
+            id -> getBorrowerById(id) != null,
+            this::addBorrower,
+            workers);
+        return pipeline.run(filename);
+    }
+
     // --- File Persistence ---
 
     /**
@@ -83,24 +238,117 @@ public class BorrowerRegistry {
 
     /**
      * Loads all borrowers from a file, clearing existing data first.
+     * The file is streamed through a memory-mapped parser without building a list of lines.
      * Each line: name|id|contact|fines|isbn1,isbn2,...
      * @param filename The file to read from
      * @throws Exception if file reading or parsing fails
      */
     public void loadFromFile(String filename) throws Exception {
-        borrowersById.clear();
-        List<String> lines = FileManager.readLines(filename);
-        for (String line : lines) {
-            String[] parts = line.split("\\|");
-            if (parts.length >= 4) {
-                Borrower b = new Borrower(parts[0], parts[1], parts[2]);
-                b.setFinesOwed(Double.parseDouble(parts[3]));
-                if (parts.length == 5 && !parts[4].isEmpty()) {
-                    String[] borrowed = parts[4].split(",");
-                    for (String isbn : borrowed) b.addBorrowedBook(isbn);
+        clearAll();
+        MappedRecordReader.read(filename, r -> {
+            if (r.fieldCount() >= 4) {
+                Borrower b = new Borrower(r.getString(0), r.getString(1), r.getString(2));
+                b.setFinesOwed(r.getDouble(3));
+                if (r.fieldCount() == 5 && !r.isEmpty(4)) {
+                    String borrowed = r.getString(4);
+                    int start = 0;
+                    for (int comma; (comma = borrowed.indexOf(',', start)) >= 0; start = comma + 1) {
+                        if (comma > start) b.addBorrowedBook(borrowed.substring(start, comma));
+                    }
+                    if (start < borrowed.length()) b.addBorrowedBook(borrowed.substring(start));
                 }
                 addBorrower(b);
             }
+        });
+    }
+
+    /**
+     * Saves all borrowers in the given format.
+     * Binary layout: count, then per borrower name, id, contact, fines, and the borrowed ISBN list.
+     * @param filename The file to write to
+     * @param format TEXT or BINARY
+     * @throws Exception if file writing fails
+     */
+    public void saveToFile(String filename, StorageFormat format) throws Exception {
+        long start = Metrics.start();
+        try {
+            if (format == StorageFormat.TEXT) {
+                saveToFile(filename);
+                return;
+            }
+            List<Borrower> borrowers = listAllBorrowers();
+            try (BinarySnapshotWriter out = new BinarySnapshotWriter(filename, SNAPSHOT_TYPE)) {
+                out.writeInt(borrowers.size());
+                for (Borrower b : borrowers) {
+                    out.writeString(b.getName());
+                    out.writeString(b.getIdNumber());
+                    out.writeString(b.getContactInfo());
+                    out.writeDouble(b.getFinesOwed());
+                    out.writeInt(b.getBorrowedBooks().size());
+                    for (String isbn : b.getBorrowedBooks()) out.writeString(isbn);
+                }
+                out.commit();
+            }
+        } finally {
+            SAVE_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Loads all borrowers from a file in the given format, clearing existing data first.
+     * @param filename The file to read from
+     * @param format TEXT or BINARY
+     * @throws Exception if file reading fails or a binary snapshot is corrupt
+     */
+    public void loadFromFile(String filename, StorageFormat format) throws Exception {
+        long start = Metrics.start();
+        try {
+            if (format == StorageFormat.TEXT) {
+                loadFromFile(filename);
+                return;
+            }
+            try (BinarySnapshotReader in = new BinarySnapshotReader(filename, SNAPSHOT_TYPE)) {
+                clearAll();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Borrower b = new Borrower(in.readString(), in.readString(), in.readString());
+                    b.setFinesOwed(in.readDouble());
+                    int borrowed = in.readInt();
+                    for (int j = 0; j < borrowed; j++) b.addBorrowedBook(in.readString());
+                    addBorrower(b);
+                }
+            }
+        } finally {
+            LOAD_TIME.stop(start);
+        }
+    }
+
+    private void clearAll() {
+        if (disk != null) disk.clear();
+        else borrowersById.clear();
+    }
+
+    /**
+     * On-disk form of a borrower: name, id, contact, fines, then the borrowed ISBN list.
+     */
+    private static final class BorrowerCodec implements CachedDiskStore.Codec<Borrower> {
+        @Override
+        public void encode(Borrower b, DataOutputStream out) throws IOException {
+            out.writeUTF(b.getName());
+            out.writeUTF(b.getIdNumber());
+            out.writeUTF(b.getContactInfo());
+            out.writeDouble(b.getFinesOwed());
+            out.writeInt(b.getBorrowedBooks().size());
+            for (String isbn : b.getBorrowedBooks()) out.writeUTF(isbn);
+        }
+
+        @Override
+        public Borrower decode(DataInputStream in) throws IOException {
+            Borrower b = new Borrower(in.readUTF(), in.readUTF(), in.readUTF());
+            b.setFinesOwed(in.readDouble());
+            int borrowed = in.readInt();
+            for (int i = 0; i < borrowed; i++) b.addBorrowedBook(in.readUTF());
+            return b;
         }
     }
 }
@@ -0,0 +1,154 @@
+package library.data;
+
+import java.io.*;
+import java.util.function.Consumer;
+import library.util.DiskHashFile;
+import library.util.LruCache;
+
+/**
+ * CachedDiskStore keeps records in an on-disk hash file and the most recently used ones
+ * in a bounded LRU cache in front of it. The file is the system of record: every write goes
+ * to the file before the cache is updated, so an evicted entry is never lost and the heap
+ * only holds the cache. Writes reach the storage device at sync(), which the persistence
+ * scheduler calls on every flush; see DiskHashFile for what survives a crash in between.
+ * Values are converted to bytes by a Codec.
+ */
+public class CachedDiskStore<V> implements Closeable {
+    /**
+     * Converts values to and from their on-disk bytes.
+     */
+    public interface Codec<V> {
+        void encode(V value, DataOutputStream out) throws IOException;
+        V decode(DataInputStream in) throws IOException;
+    }
+
+    private final DiskHashFile file;
+    private final LruCache<String, V> cache;
+    private final Codec<V> codec;
+
+    /**
+     * Opens (or creates) a store.
+     * @param filename The hash file
+     * @param cacheSize Number of values kept in memory
+     * @param codec Converts values to bytes
+     * @throws IOException if the file cannot be opened or is not a hash file
+     */
+    public CachedDiskStore(String filename, int cacheSize, Codec<V> codec) throws IOException {
+        this.file = new DiskHashFile(filename);
+        this.cache = new LruCache<>(cacheSize);
+        this.codec = codec;
+    }
+
+    /**
+     * Returns the value stored under a key, from the cache if possible.
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public V get(String key) {
+        return cache.get(key, k -> {
+            try {
+                byte[] bytes = file.get(k);
+                return bytes == null ? null : decode(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Stores a value, replacing any value under the same key.
+     * @return The previous value, or null if there was none
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public V put(String key, V value) {
+        try {
+            byte[] previous = file.put(key, encode(value));
+            cache.put(key, value);
+            return previous == null ? null : decode(previous);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes the value stored under a key.
+     * @return The removed value, or null if there was none
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public V remove(String key) {
+        try {
+            byte[] previous = file.remove(key);
+            cache.remove(key);
+            return previous == null ? null : decode(previous);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long size() {
+        return file.size();
+    }
+
+    /**
+     * Calls the consumer for every stored value, decoded from disk. The cache is bypassed
+     * and left untouched, so a full scan does not evict the working set.
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public void forEach(Consumer<V> consumer) {
+        try {
+            file.forEach((key, bytes) -> {
+                try {
+                    consumer.accept(decode(bytes));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes all values.
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void clear() {
+        try {
+            file.clear();
+            cache.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces all writes to the storage device.
+     */
+    public void sync() throws IOException {
+        file.sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.clear();
+        file.close();
+    }
+
+    /**
+     * Returns the cache counters (hits, misses, evictions).
+     */
+    public LruCache<String, V> getCache() {
+        return cache;
+    }
+
+    private byte[] encode(V value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.encode(value, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private V decode(byte[] bytes) throws IOException {
+        return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,70 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Borrower;
+import java.time.LocalDate;
+
+/**
+ * ChangeEvent describes one change to the inventory, the borrower registry or the lending history,
+ * as delivered by ChangeEventBus. Event objects are slots of a ring buffer and are reused:
+ * listeners must copy what they need before returning.
+ */
+public class ChangeEvent {
+    /**
+     * Kind of change. Book events carry the ISBN and the book, borrower events the ID and the
+     * borrower, loan events the loan id, ISBN, borrower ID and the date of the change.
+     */
+    public enum Type {
+        BOOK_ADDED,
+        BOOK_REMOVED,
+        BORROWER_ADDED,
+        BORROWER_REMOVED,
+        LOAN_OPENED,
+        LOAN_CLOSED,
+        LOAN_OVERDUE
+    }
+
+    private Type type;
+    private String isbn;
+    private String borrowerId;
+    // Transaction id of loan events, -1 otherwise
+    private int loanId = -1;
+    private Book book;
+    private Borrower borrower;
+    // Borrow date (opened), return date (closed) or detection date (overdue) of loan events
+    private LocalDate date;
+
+    void set(Type type, String isbn, String borrowerId, int loanId, Book book, Borrower borrower, LocalDate date) {
+        this.type = type;
+        this.isbn = isbn;
+        this.borrowerId = borrowerId;
+        this.loanId = loanId;
+        this.book = book;
+        this.borrower = borrower;
+        this.date = date;
+    }
+
+    public Type getType() { return type; }
+
+    public String getIsbn() { return isbn; }
+
+    public String getBorrowerId() { return borrowerId; }
+
+    public int getLoanId() { return loanId; }
+
+    public Book getBook() { return book; }
+
+    public Borrower getBorrower() { return borrower; }
+
+    public LocalDate getDate() { return date; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.valueOf(type));
+        if (loanId >= 0) sb.append(" loan=").append(loanId);
+        if (isbn != null) sb.append(" isbn=").append(isbn);
+        if (borrowerId != null) sb.append(" borrower=").append(borrowerId);
+        if (date != null) sb.append(" date=").append(date);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Borrower;
+import library.model.Transaction;
+import library.util.RingBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * ChangeEventBus streams the changes made to the stores to any number of listeners, so reports,
+ * caches or metrics can follow the data incrementally instead of rescanning it.
+ * Attach it with setEventBus on BookInventory, BorrowerRegistry and LendingTracker; their
+ * mutators then publish a ChangeEvent for every book or borrower added or removed and every
+ * loan opened, closed or marked overdue. Events go through a preallocated RingBuffer, so
+ * publishing allocates nothing and takes no lock; each listener runs on its own thread and
+ * receives the events in publication order, in batches.
+ * The stores publish while holding their own locks, so publishing never waits: when a listener
+ * has fallen a full ring behind, the event is dropped and counted instead, and every listener
+ * is told through onDropped to catch up from the stores themselves.
+ */
+public class ChangeEventBus implements AutoCloseable {
+    /**
+     * Receives change events on the listener's own thread.
+     */
+    public interface Listener {
+        /**
+         * @param event The change (reused after the call returns)
+         * @param endOfBatch true for the last event currently available
+         */
+        void onEvent(ChangeEvent event, boolean endOfBatch) throws Exception;
+
+        /**
+         * Called at the end of a batch (or on close) when events were dropped since the last call.
+         * @param count Number of events dropped, for this and every other listener
+         */
+        default void onDropped(long count) throws Exception {
+        }
+    }
+
+    /**
+     * A subscribed listener and the drops it has been told about.
+     */
+    private static final class Subscription {
+        private final String name;
+        private final Listener listener;
+        // Value of the ring's drop count at the last onDropped call (listener thread, then close)
+        private long dropsSeen;
+
+        Subscription(String name, Listener listener) {
+            this.name = name;
+            this.listener = listener;
+        }
+    }
+
+    private final RingBuffer<ChangeEvent> ring;
+    private final BiConsumer<String, Exception> onError;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    /**
+     * Creates a bus. Subscribe the listeners, then call start().
+     * @param capacity Ring size, a power of two
+     * @param onError Called with the listener name when a listener throws
+     */
+    public ChangeEventBus(int capacity, BiConsumer<String, Exception> onError) {
+        this.ring = new RingBuffer<>(capacity, ChangeEvent::new, onError);
+        this.onError = onError;
+    }
+
+    /**
+     * Adds a listener. All listeners must be added before start().
+     * @param name Listener name, used for its thread and in error reports
+     * @param listener Receives every event published after start()
+     */
+    public synchronized void subscribe(String name, Listener listener) {
+        Subscription subscription = new Subscription(name, listener);
+        ring.subscribe(name, (event, sequence, endOfBatch) -> {
+            listener.onEvent(event, endOfBatch);
+            if (endOfBatch) reportDrops(subscription);
+        });
+        subscriptions.add(subscription);
+    }
+
+    public void start() {
+        ring.start();
+    }
+
+    /**
+     * Delivers the remaining events and stops the listener threads, then reports any drops
+     * the listeners have not been told about yet. Detach the bus from the stores (or stop
+     * changing them) first.
+     */
+    @Override
+    public synchronized void close() {
+        ring.close();
+        for (Subscription subscription : subscriptions) {
+            try {
+                reportDrops(subscription);
+            } catch (Exception e) {
+                if (onError != null) onError.accept(subscription.name, e);
+            }
+        }
+    }
+
+    private void reportDrops(Subscription subscription) throws Exception {
+        long total = ring.getDroppedCount();
+        if (total == subscription.dropsSeen) return;
+        long count = total - subscription.dropsSeen;
+        subscription.dropsSeen = total;
+        subscription.listener.onDropped(count);
+    }
+
+    // --- Publishing (called by the stores) ---
+
+    void bookAdded(Book book) {
+        publish(ChangeEvent.Type.BOOK_ADDED, book.getIsbn(), null, -1, book, null, null);
+    }
+
+    void bookRemoved(Book book) {
+        publish(ChangeEvent.Type.BOOK_REMOVED, book.getIsbn(), null, -1, book, null, null);
+    }
+
+    void borrowerAdded(Borrower borrower) {
+        publish(ChangeEvent.Type.BORROWER_ADDED, null, borrower.getIdNumber(), -1, null, borrower, null);
+    }
+
+    void borrowerRemoved(Borrower borrower) {
+        publish(ChangeEvent.Type.BORROWER_REMOVED, null, borrower.getIdNumber(), -1, null, borrower, null);
+    }
+
+    void loanOpened(Transaction loan) {
+        publish(ChangeEvent.Type.LOAN_OPENED, loan.getBookIsbn(), loan.getBorrowerId(), loan.getId(), null, null, loan.getBorrowDate());
+    }
+
+    void loanClosed(Transaction loan, LocalDate returnDate) {
+        publish(ChangeEvent.Type.LOAN_CLOSED, loan.getBookIsbn(), loan.getBorrowerId(), loan.getId(), null, null, returnDate);
+    }
+
+    void loanOverdue(Transaction loan, LocalDate today) {
+        publish(ChangeEvent.Type.LOAN_OVERDUE, loan.getBookIsbn(), loan.getBorrowerId(), loan.getId(), null, null, today);
+    }
+
+    private void publish(ChangeEvent.Type type, String isbn, String borrowerId, int loanId, Book book, Borrower borrower, LocalDate date) {
+        long seq = ring.tryNext();
+        if (seq < 0) return;
+        ring.get(seq).set(type, isbn, borrowerId, loanId, book, borrower, date);
+        ring.publish(seq);
+    }
+
+    // --- Statistics ---
+
+    /**
+     * @return Number of events published so far (dropped events not included)
+     */
+    public long getPublishedCount() { return ring.getPublishedCount(); }
+
+    /**
+     * @return Number of events dropped because a listener was a full ring behind
+     */
+    public long getDroppedCount() { return ring.getDroppedCount(); }
+
+    /**
+     * @param name A listener
+     * @return Events the listener has not processed yet, or -1 if there is no such listener
+     */
+    public long getLag(String name) { return ring.getLag(name); }
+
+    /**
+     * @param name A listener
+     * @return Number of batches the listener has processed, or -1 if there is no such listener
+     */
+    public long getBatchCount(String name) { return ring.getBatchCount(name); }
+}
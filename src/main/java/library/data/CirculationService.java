@@ -0,0 +1,301 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Borrower;
+import library.model.Hold;
+import library.model.HoldStatus;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import library.util.Metrics;
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * CirculationService performs checkouts and returns as single atomic operations over the
+ * BorrowerRegistry, BookInventory and LendingTracker.
+ * Each operation holds the lock stripes of its borrower and its book (always acquired in
+ * stripe order, so two operations can never deadlock). Desks working on different books and
+ * borrowers therefore run in parallel, while two desks can never lend the same book at once
+ * or leave a borrower's loan list out of step with the transaction history.
+ * A borrower can have at most one open loan per ISBN. That check reads the tracker's
+ * concurrent open-loan index, so the only shared section left is the tracker's own
+ * update of its history and journal.
+ * A loan takes a physical copy from the inventory's Holdings and a return puts it back,
+ * so a title with several copies can be out to several borrowers at once.
+ * When every copy is out, borrowers can place holds (see Reservations). A copy that comes back,
+ * or is found on the shelf while holds are waiting, is set aside for the next hold instead;
+ * only that borrower can then borrow it. Holds are placed and served under the same book lock
+ * as loans and returns, so a return can never slip between a hold and the availability check.
+ */
+public class CirculationService {
+    /**
+     * Outcome of a borrow, return or hold request.
+     */
+    public enum Result {
+        SUCCESS,
+        BORROWER_NOT_FOUND,
+        BOOK_NOT_FOUND,
+        ALREADY_BORROWED,
+        NOT_AVAILABLE,
+        NOT_BORROWED,
+        // A hold was refused because a copy is on the shelf
+        AVAILABLE,
+        ALREADY_HELD,
+        NOT_HELD
+    }
+
+    // Latency timers and per-outcome counters (no-ops unless metrics are enabled)
+    private static final Metrics.Timer BORROW_TIME = Metrics.timer("circulation.borrow");
+    private static final Metrics.Timer RETURN_TIME = Metrics.timer("circulation.return");
+    private static final Metrics.Counter[] BORROW_RESULTS = resultCounters("circulation.borrow.");
+    private static final Metrics.Counter[] RETURN_RESULTS = resultCounters("circulation.return.");
+    private static final Metrics.Counter[] HOLD_RESULTS = resultCounters("circulation.hold.");
+
+    private final BookInventory inventory;
+    private final BorrowerRegistry registry;
+    private final LendingTracker tracker;
+    private final Reservations reservations;
+    // Told about every hold that gets a copy set aside, e.g. to notify the borrower
+    private volatile Consumer<Hold> holdReadyListener;
+    // Lock stripes shared by borrower IDs and ISBNs
+    private final ReentrantLock[] stripes = new ReentrantLock[128];
+
+    public CirculationService(BookInventory inventory, BorrowerRegistry registry, LendingTracker tracker) {
+        this(inventory, registry, tracker, new Reservations());
+    }
+
+    public CirculationService(BookInventory inventory, BorrowerRegistry registry, LendingTracker tracker, Reservations reservations) {
+        this.inventory = inventory;
+        this.registry = registry;
+        this.tracker = tracker;
+        this.reservations = reservations;
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+    }
+
+    /**
+     * Lends a copy of a book from any branch. See borrowBook(String, String, String, LocalDate).
+     * @param borrowerId The borrower ID
+     * @param isbn The book ISBN
+     * @param date The borrow date
+     * @return SUCCESS, or the reason the loan was refused
+     */
+    public Result borrowBook(String borrowerId, String isbn, LocalDate date) {
+        return borrowBook(borrowerId, isbn, null, date);
+    }
+
+    /**
+     * Lends a book to a borrower: checks both exist, that the borrower does not already
+     * have the book and that a copy is on the shelf (or set aside for their hold), then takes
+     * the copy, records the transaction and adds the ISBN to the borrower's loan list.
+     * @param borrowerId The borrower ID
+     * @param isbn The book ISBN
+     * @param branch The branch to lend from, or null for any branch (ignored for a held copy)
+     * @param date The borrow date
+     * @return SUCCESS, or the reason the loan was refused
+     */
+    public Result borrowBook(String borrowerId, String isbn, String branch, LocalDate date) {
+        long start = Metrics.start();
+        Result result = lend(borrowerId, isbn, branch, date);
+        BORROW_TIME.stop(start);
+        BORROW_RESULTS[result.ordinal()].increment();
+        return result;
+    }
+
+    private Result lend(String borrowerId, String isbn, String branch, LocalDate date) {
+        int borrowerStripe = stripeIndex("borrower:" + borrowerId), bookStripe = stripeIndex("book:" + isbn);
+        lockBoth(borrowerStripe, bookStripe);
+        try {
+            Borrower borrower = registry.getBorrowerById(borrowerId);
+            if (borrower == null) return Result.BORROWER_NOT_FOUND;
+            Book book = inventory.getBookByIsbn(isbn);
+            if (book == null) return Result.BOOK_NOT_FOUND;
+            if (borrower.getBorrowedBooks().contains(isbn) || tracker.hasOpenLoan(borrowerId, isbn)) {
+                return Result.ALREADY_BORROWED;
+            }
+            Holdings holdings = inventory.getHoldings();
+            serveHolds(isbn, date);
+            boolean held = reservations.getReadyHold(isbn, borrowerId) != null;
+            int copy = held ? holdings.claimReserved(isbn, borrowerId) : holdings.checkOut(isbn, branch, borrowerId);
+            if (copy < 0) return Result.NOT_AVAILABLE;
+            try {
+                tracker.borrowBook(new Transaction(isbn, borrowerId, date, null, TransactionStatus.BORROWED));
+            } catch (RuntimeException e) {
+                holdings.checkIn(isbn, borrowerId);
+                if (held) holdings.reserve(isbn, borrowerId);
+                throw e;
+            }
+            // Also ends a hold still waiting, since the borrower now has the book
+            reservations.fulfil(isbn, borrowerId);
+            borrower.addBorrowedBook(isbn);
+            registry.updateBorrower(borrower);
+            return Result.SUCCESS;
+        } finally {
+            unlockBoth(borrowerStripe, bookStripe);
+        }
+    }
+
+    /**
+     * Takes a book back: closes the borrower's open loan and removes the ISBN from their loan list.
+     * If holds are waiting on the title, the copy is set aside for the next one.
+     * @param borrowerId The borrower ID
+     * @param isbn The book ISBN
+     * @param date The return date
+     * @return SUCCESS, BORROWER_NOT_FOUND, or NOT_BORROWED if there is no open loan to close
+     */
+    public Result returnBook(String borrowerId, String isbn, LocalDate date) {
+        long start = Metrics.start();
+        Result result = takeBack(borrowerId, isbn, date);
+        RETURN_TIME.stop(start);
+        RETURN_RESULTS[result.ordinal()].increment();
+        return result;
+    }
+
+    private Result takeBack(String borrowerId, String isbn, LocalDate date) {
+        int borrowerStripe = stripeIndex("borrower:" + borrowerId), bookStripe = stripeIndex("book:" + isbn);
+        lockBoth(borrowerStripe, bookStripe);
+        try {
+            Borrower borrower = registry.getBorrowerById(borrowerId);
+            if (borrower == null) return Result.BORROWER_NOT_FOUND;
+            if (!borrower.getBorrowedBooks().contains(isbn)) return Result.NOT_BORROWED;
+            if (tracker.returnBook(borrowerId, isbn, date) == null) return Result.NOT_BORROWED;
+            inventory.getHoldings().checkIn(isbn, borrowerId);
+            serveHolds(isbn, date);
+            borrower.removeBorrowedBook(isbn);
+            registry.updateBorrower(borrower);
+            return Result.SUCCESS;
+        } finally {
+            unlockBoth(borrowerStripe, bookStripe);
+        }
+    }
+
+    /**
+     * Places a hold on a title that has no copy on the shelf.
+     * @param borrowerId The borrower ID
+     * @param isbn The book ISBN
+     * @param priority The priority class
+     * @param date The day the hold is placed
+     * @return SUCCESS, or BORROWER_NOT_FOUND, BOOK_NOT_FOUND, ALREADY_BORROWED, ALREADY_HELD,
+     *         or AVAILABLE if a copy can be borrowed right away
+     */
+    public Result placeHold(String borrowerId, String isbn, Hold.Priority priority, LocalDate date) {
+        Result result = hold(borrowerId, isbn, priority, date);
+        HOLD_RESULTS[result.ordinal()].increment();
+        return result;
+    }
+
+    private Result hold(String borrowerId, String isbn, Hold.Priority priority, LocalDate date) {
+        int borrowerStripe = stripeIndex("borrower:" + borrowerId), bookStripe = stripeIndex("book:" + isbn);
+        lockBoth(borrowerStripe, bookStripe);
+        try {
+            Borrower borrower = registry.getBorrowerById(borrowerId);
+            if (borrower == null) return Result.BORROWER_NOT_FOUND;
+            if (inventory.getBookByIsbn(isbn) == null) return Result.BOOK_NOT_FOUND;
+            if (borrower.getBorrowedBooks().contains(isbn)) return Result.ALREADY_BORROWED;
+            serveHolds(isbn, date);
+            Hold existing = reservations.getHold(isbn, borrowerId);
+            if (existing != null && !(existing.getStatus() == HoldStatus.WAITING && date.isAfter(existing.getExpiresOn()))) {
+                return Result.ALREADY_HELD;
+            }
+            if (inventory.getHoldings().availableCount(isbn) > 0) return Result.AVAILABLE;
+            return reservations.place(isbn, borrowerId, priority, date) != null ? Result.SUCCESS : Result.ALREADY_HELD;
+        } finally {
+            unlockBoth(borrowerStripe, bookStripe);
+        }
+    }
+
+    /**
+     * Cancels a borrower's hold. A copy set aside for it goes to the next hold or back on the shelf.
+     * @param borrowerId The borrower ID
+     * @param isbn The book ISBN
+     * @param date The current date
+     * @return SUCCESS, or NOT_HELD if the borrower has no hold on the title
+     */
+    public Result cancelHold(String borrowerId, String isbn, LocalDate date) {
+        int borrowerStripe = stripeIndex("borrower:" + borrowerId), bookStripe = stripeIndex("book:" + isbn);
+        lockBoth(borrowerStripe, bookStripe);
+        try {
+            HoldStatus previous = reservations.cancel(isbn, borrowerId);
+            if (previous == null) return Result.NOT_HELD;
+            if (previous == HoldStatus.READY) {
+                inventory.getHoldings().releaseReserved(isbn, borrowerId);
+                serveHolds(isbn, date);
+            }
+            return Result.SUCCESS;
+        } finally {
+            unlockBoth(borrowerStripe, bookStripe);
+        }
+    }
+
+    /**
+     * Expires uncollected holds on a title and sets copies on the shelf aside for the holds
+     * waiting on it. Called with the book's stripe held.
+     */
+    private void serveHolds(String isbn, LocalDate date) {
+        if (!reservations.hasHolds(isbn)) return;
+        Holdings holdings = inventory.getHoldings();
+        for (Hold expired : reservations.expireUncollected(isbn, date)) {
+            holdings.releaseReserved(isbn, expired.getBorrowerId());
+        }
+        while (holdings.availableCount(isbn) > 0) {
+            Hold next = reservations.allocate(isbn, date);
+            if (next == null) break;
+            if (holdings.reserve(isbn, next.getBorrowerId()) < 0) {
+                reservations.requeue(next);
+                break;
+            }
+            Consumer<Hold> listener = holdReadyListener;
+            if (listener != null) listener.accept(next);
+        }
+    }
+
+    /**
+     * Hands every open loan in the lending history a copy, then sets copies aside for the
+     * ready holds, after books, holdings, transactions and holds have been loaded.
+     * A ready hold that finds no copy goes back to waiting.
+     * @return Number of open loans the recorded copies could not cover (see Holdings.restoreLoans)
+     */
+    public int restoreHoldings() {
+        Holdings holdings = inventory.getHoldings();
+        int unrecorded = holdings.restoreLoans(tracker.getOpenLoans());
+        for (Hold hold : reservations.getReadyHolds()) {
+            if (holdings.reserve(hold.getBookIsbn(), hold.getBorrowerId()) < 0) reservations.requeue(hold);
+        }
+        return unrecorded;
+    }
+
+    public Reservations getReservations() {
+        return reservations;
+    }
+
+    /**
+     * @param listener Called, under the book's lock, for each hold that gets a copy set aside; null for none
+     */
+    public void setHoldReadyListener(Consumer<Hold> listener) {
+        this.holdReadyListener = listener;
+    }
+
+    private static Metrics.Counter[] resultCounters(String prefix) {
+        Metrics.Counter[] counters = new Metrics.Counter[Result.values().length];
+        for (Result r : Result.values()) counters[r.ordinal()] = Metrics.counter(prefix + r.name().toLowerCase());
+        return counters;
+    }
+
+    private int stripeIndex(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Locks two stripes in index order (once if they are the same stripe).
+     */
+    private void lockBoth(int i, int j) {
+        stripes[Math.min(i, j)].lock();
+        if (i != j) stripes[Math.max(i, j)].lock();
+    }
+
+    private void unlockBoth(int i, int j) {
+        if (i != j) stripes[Math.max(i, j)].unlock();
+        stripes[Math.min(i, j)].unlock();
+    }
+}
@@ -0,0 +1,509 @@
+package library.data;
+
+import library.model.Transaction;
+import library.util.FileManager;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Holdings tracks the physical copies of each title and which of them are on the shelf.
+ * Every copy gets a dense int id. Per title and branch the free copies are kept in a two-level
+ * bitmap (one bit per copy, plus one summary bit per non-empty word), with a running count,
+ * so checkout, return, "first available copy" and "available count" cost O(1) for up to 4096
+ * copies of a title at a branch.
+ *
+ * A title in the inventory that has no holdings recorded counts as one copy at the main branch;
+ * that copy is created the first time the title is used here. Adding copies to such a title
+ * adds to that first copy.
+ * Which copy a borrower has is kept per borrower and ISBN. Loans are not stored with a copy id,
+ * so after a restart restoreLoans hands every open loan a copy again. A loan the recorded copies
+ * cannot cover gets an unrecorded copy: it is never saved, and it is retired when it comes back
+ * instead of going on the shelf.
+ * A copy can also be set aside for a borrower's hold (reserve); it stays off the shelf until
+ * they borrow it (claimReserved) or the hold ends (releaseReserved).
+ */
+public class Holdings {
+    public static final String DEFAULT_BRANCH = "Main";
+
+    /**
+     * The copies of one title at one branch.
+     */
+    private static final class Branch {
+        // Slot -> copy id
+        private int[] copies = new int[4];
+        private int size;
+        // Bit per slot, set while the copy is on the shelf
+        private long[] free = new long[1];
+        // Bit per word of free, set while that word has a free copy
+        private long[] summary = new long[1];
+        private int available;
+        // Slots holding unrecorded copies (see restoreLoans); not saved
+        private int unrecorded;
+
+        int add(int copyId) {
+            if (size == copies.length) copies = Arrays.copyOf(copies, size * 2);
+            int slot = size++;
+            copies[slot] = copyId;
+            int words = (size + 63) >>> 6;
+            if (words > free.length) free = Arrays.copyOf(free, Math.max(words, free.length * 2));
+            if (((free.length + 63) >>> 6) > summary.length) summary = Arrays.copyOf(summary, (free.length + 63) >>> 6);
+            release(slot);
+            return slot;
+        }
+
+        void release(int slot) {
+            int word = slot >>> 6;
+            if (free[word] == 0) summary[word >>> 6] |= 1L << word;
+            free[word] |= 1L << slot;
+            available++;
+        }
+
+        void take(int slot) {
+            int word = slot >>> 6;
+            free[word] &= ~(1L << slot);
+            if (free[word] == 0) summary[word >>> 6] &= ~(1L << word);
+            available--;
+        }
+
+        boolean isFree(int slot) {
+            return (free[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        /**
+         * @return The first free slot, or -1 if every copy is out
+         */
+        int firstFree() {
+            for (int s = 0; s < summary.length; s++) {
+                if (summary[s] != 0) {
+                    int word = (s << 6) + Long.numberOfTrailingZeros(summary[s]);
+                    return (word << 6) + Long.numberOfTrailingZeros(free[word]);
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * All copies of one title, by branch id. Guarded by its own monitor.
+     */
+    private static final class Title {
+        private final String isbn;
+        private Branch[] branches = new Branch[1];
+        private int copies;
+        private int available;
+
+        Title(String isbn) {
+            this.isbn = isbn;
+        }
+
+        Branch branch(int branchId, boolean create) {
+            if (branchId >= branches.length) {
+                if (!create) return null;
+                branches = Arrays.copyOf(branches, Math.max(branchId + 1, branches.length * 2));
+            }
+            if (branches[branchId] == null && create) branches[branchId] = new Branch();
+            return branches[branchId];
+        }
+    }
+
+    /**
+     * Where a copy lives. Never changes once created.
+     */
+    private static final class Copy {
+        private final Title title;
+        private final int branchId;
+        private final int slot;
+        // Made up for an open loan the recorded copies could not cover
+        private final boolean unrecorded;
+
+        Copy(Title title, int branchId, int slot, boolean unrecorded) {
+            this.title = title;
+            this.branchId = branchId;
+            this.slot = slot;
+            this.unrecorded = unrecorded;
+        }
+    }
+
+    // Decides whether an ISBN without holdings is a real title (gets its default copy)
+    private final Predicate<String> titleExists;
+    private final Map<String, Title> titles = new ConcurrentHashMap<>();
+    // Copy id -> copy; replaced when it grows, entries are never changed (writes hold this)
+    private volatile Copy[] copies = new Copy[64];
+    private int copyCount;
+    // Branch names by id and ids by name (writes hold this)
+    private volatile List<String> branchNames = new ArrayList<>(List.of(DEFAULT_BRANCH));
+    private final Map<String, Integer> branchIds = new ConcurrentHashMap<>(Map.of(DEFAULT_BRANCH, 0));
+    // Copy held by each open loan, keyed by borrower ID and ISBN
+    private final Map<String, Integer> loanedCopies = new ConcurrentHashMap<>();
+    // Copy set aside for each ready hold, keyed by borrower ID and ISBN
+    private final Map<String, Integer> reservedCopies = new ConcurrentHashMap<>();
+
+    /**
+     * @param titleExists Tells whether an ISBN is in the inventory
+     */
+    public Holdings(Predicate<String> titleExists) {
+        this.titleExists = titleExists;
+    }
+
+    // --- Copies ---
+
+    /**
+     * Adds a copy of a title at a branch.
+     * @param isbn The title
+     * @param branch The branch name (created on first use)
+     * @return The new copy id
+     */
+    public int addCopy(String isbn, String branch) {
+        Title title = title(isbn, true);
+        if (title == null) title = titles.computeIfAbsent(isbn, Title::new);
+        return addCopy(title, branchId(branch), false);
+    }
+
+    private int addCopy(Title title, int branchId, boolean unrecorded) {
+        synchronized (title) {
+            Branch b = title.branch(branchId, true);
+            int id;
+            synchronized (this) {
+                id = copyCount;
+                int slot = b.add(id);
+                Copy[] table = copies;
+                if (id == table.length) table = Arrays.copyOf(table, id * 2);
+                table[id] = new Copy(title, branchId, slot, unrecorded);
+                copies = table;
+                copyCount++;
+            }
+            if (unrecorded) b.unrecorded++;
+            title.copies++;
+            title.available++;
+            return id;
+        }
+    }
+
+    /**
+     * Forgets every copy of a title, e.g. when the book is removed. Copy ids are not reused.
+     * @param isbn The title
+     */
+    public void removeTitle(String isbn) {
+        titles.remove(isbn);
+    }
+
+    /**
+     * Forgets every copy, loan and set-aside copy, e.g. when the inventory is reloaded.
+     * Branch names are kept.
+     */
+    public synchronized void clear() {
+        titles.clear();
+        loanedCopies.clear();
+        reservedCopies.clear();
+        copies = new Copy[64];
+        copyCount = 0;
+    }
+
+    // --- Circulation ---
+
+    /**
+     * Takes the first copy on the shelf for a borrower.
+     * @param isbn The title
+     * @param branch The branch to lend from, or null for any branch
+     * @param borrowerId The borrower
+     * @return The copy id, or -1 if no copy is available (or the title is unknown)
+     */
+    public int checkOut(String isbn, String branch, String borrowerId) {
+        return take(isbn, branch, loanedCopies, loanKey(borrowerId, isbn));
+    }
+
+    /**
+     * Puts back the copy a borrower had of a title.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The copy id, or -1 if the borrower had no copy of it
+     */
+    public int checkIn(String isbn, String borrowerId) {
+        return putBack(loanedCopies, loanKey(borrowerId, isbn));
+    }
+
+    /**
+     * Takes the first copy on the shelf and sets it aside for a borrower's hold.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The copy id, or -1 if no copy is available
+     */
+    public int reserve(String isbn, String borrowerId) {
+        return take(isbn, null, reservedCopies, loanKey(borrowerId, isbn));
+    }
+
+    /**
+     * Lends the copy set aside for a borrower to them.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The copy id, or -1 if no copy was set aside for them
+     */
+    public int claimReserved(String isbn, String borrowerId) {
+        String key = loanKey(borrowerId, isbn);
+        Integer copy = reservedCopies.remove(key);
+        if (copy == null) return -1;
+        loanedCopies.put(key, copy);
+        return copy;
+    }
+
+    /**
+     * Puts the copy set aside for a borrower back on the shelf.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The copy id, or -1 if no copy was set aside for them
+     */
+    public int releaseReserved(String isbn, String borrowerId) {
+        return putBack(reservedCopies, loanKey(borrowerId, isbn));
+    }
+
+    private int take(String isbn, String branch, Map<String, Integer> holders, String key) {
+        Title title = title(isbn, true);
+        if (title == null) return -1;
+        synchronized (title) {
+            int copy = firstAvailable(title, branch);
+            if (copy < 0) return -1;
+            Copy c = copies[copy];
+            title.branches[c.branchId].take(c.slot);
+            title.available--;
+            holders.put(key, copy);
+            return copy;
+        }
+    }
+
+    private int putBack(Map<String, Integer> holders, String key) {
+        Integer copy = holders.remove(key);
+        if (copy == null) return -1;
+        Copy c = copies[copy];
+        synchronized (c.title) {
+            Branch b = c.title.branches[c.branchId];
+            if (c.unrecorded) {
+                // Retired: the slot stays taken, and the copy no longer counts
+                c.title.copies--;
+            } else if (!b.isFree(c.slot)) {
+                b.release(c.slot);
+                c.title.available++;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Gives every open loan a copy, after the holdings and the lending history are loaded.
+     * A loan that finds no copy on the shelf (the history has more copies out than the
+     * holdings record) gets an unrecorded copy at the main branch, so the history is never
+     * contradicted but the recorded count is not inflated either: the copy is not saved and
+     * is retired when it is returned.
+     * @param openLoans The open loans
+     * @return Number of loans that needed an unrecorded copy
+     */
+    public int restoreLoans(List<Transaction> openLoans) {
+        int unrecorded = 0;
+        for (Transaction t : openLoans) {
+            String isbn = t.getBookIsbn(), key = loanKey(t.getBorrowerId(), isbn);
+            if (loanedCopies.containsKey(key)) continue;
+            if (checkOut(isbn, null, t.getBorrowerId()) >= 0 || !titleExists.test(isbn)) continue;
+            Title title = title(isbn, true);
+            synchronized (title) {
+                int copy = addCopy(title, 0, true);
+                Copy c = copies[copy];
+                title.branches[0].take(c.slot);
+                title.available--;
+                loanedCopies.put(key, copy);
+            }
+            unrecorded++;
+        }
+        return unrecorded;
+    }
+
+    // --- Queries ---
+
+    /**
+     * @param isbn The title
+     * @return Number of copies on the shelf at any branch
+     */
+    public int availableCount(String isbn) {
+        Title title = title(isbn, true);
+        if (title == null) return 0;
+        synchronized (title) {
+            return title.available;
+        }
+    }
+
+    /**
+     * @param isbn The title
+     * @param branch The branch
+     * @return Number of copies on the shelf at that branch
+     */
+    public int availableCount(String isbn, String branch) {
+        Title title = title(isbn, true);
+        Integer branchId = branchIds.get(branch);
+        if (title == null || branchId == null) return 0;
+        synchronized (title) {
+            Branch b = title.branch(branchId, false);
+            return b == null ? 0 : b.available;
+        }
+    }
+
+    /**
+     * @param isbn The title
+     * @return Number of copies at all branches, on the shelf or not
+     */
+    public int copyCount(String isbn) {
+        Title title = title(isbn, true);
+        if (title == null) return 0;
+        synchronized (title) {
+            return title.copies;
+        }
+    }
+
+    /**
+     * @param isbn The title
+     * @param branch A branch, or null for any branch
+     * @return Id of the first copy on the shelf, or -1 if there is none
+     */
+    public int firstAvailableCopy(String isbn, String branch) {
+        Title title = title(isbn, true);
+        if (title == null) return -1;
+        synchronized (title) {
+            return firstAvailable(title, branch);
+        }
+    }
+
+    /**
+     * @param isbn The title
+     * @return Copies on the shelf per branch, for branches that hold the title
+     */
+    public Map<String, Integer> availabilityByBranch(String isbn) {
+        Map<String, Integer> result = new TreeMap<>();
+        Title title = title(isbn, true);
+        if (title == null) return result;
+        List<String> names = branchNames;
+        synchronized (title) {
+            for (int i = 0; i < title.branches.length; i++) {
+                Branch b = title.branches[i];
+                if (b != null && b.size > b.unrecorded) result.put(names.get(i), b.available);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param copyId A copy id
+     * @return The ISBN of the copy, or null for an unknown id
+     */
+    public String isbnOf(int copyId) {
+        Copy c = copy(copyId);
+        return c == null ? null : c.title.isbn;
+    }
+
+    /**
+     * @param copyId A copy id
+     * @return The branch holding the copy, or null for an unknown id
+     */
+    public String branchOf(int copyId) {
+        Copy c = copy(copyId);
+        return c == null ? null : branchNames.get(c.branchId);
+    }
+
+    private Copy copy(int copyId) {
+        Copy[] table = copies;
+        return copyId >= 0 && copyId < table.length ? table[copyId] : null;
+    }
+
+    private int firstAvailable(Title title, String branch) {
+        if (branch != null) {
+            Integer branchId = branchIds.get(branch);
+            Branch b = branchId == null ? null : title.branch(branchId, false);
+            int slot = b == null ? -1 : b.firstFree();
+            return slot < 0 ? -1 : b.copies[slot];
+        }
+        if (title.available == 0) return -1;
+        for (Branch b : title.branches) {
+            int slot = b == null ? -1 : b.firstFree();
+            if (slot >= 0) return b.copies[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the holdings of a title, giving an inventory title without holdings its default copy.
+     * @return The title, or null if it has no holdings and is not in the inventory
+     */
+    private Title title(String isbn, boolean createDefault) {
+        Title title = titles.get(isbn);
+        if (title != null || !createDefault || !titleExists.test(isbn)) return title;
+        Title created = new Title(isbn);
+        synchronized (created) {
+            title = titles.putIfAbsent(isbn, created);
+            if (title != null) return title;
+            addCopy(created, 0, false);
+            return created;
+        }
+    }
+
+    private int branchId(String branch) {
+        Integer id = branchIds.get(branch);
+        if (id != null) return id;
+        synchronized (this) {
+            id = branchIds.get(branch);
+            if (id != null) return id;
+            List<String> names = new ArrayList<>(branchNames);
+            names.add(branch);
+            branchNames = names;
+            branchIds.put(branch, names.size() - 1);
+            return names.size() - 1;
+        }
+    }
+
+    private static String loanKey(String borrowerId, String isbn) {
+        return borrowerId + '|' + isbn;
+    }
+
+    // --- File Persistence ---
+
+    /**
+     * Saves the number of copies per title and branch, one line each: isbn|branch|copies.
+     * Which copies are on loan or set aside follows from the lending history and the holds
+     * and is not saved.
+     * @param filename The file to write to
+     * @throws Exception if file writing fails
+     */
+    public void saveToFile(String filename) throws Exception {
+        List<String> lines = new ArrayList<>();
+        List<String> names = branchNames;
+        for (Title title : titles.values()) {
+            synchronized (title) {
+                for (int i = 0; i < title.branches.length; i++) {
+                    Branch b = title.branches[i];
+                    if (b != null && b.size > b.unrecorded) lines.add(title.isbn + "|" + names.get(i) + "|" + (b.size - b.unrecorded));
+                }
+            }
+        }
+        FileManager.writeLines(filename, lines);
+    }
+
+    /**
+     * Loads copy counts, replacing all holdings. Call restoreLoans afterwards.
+     * Malformed lines are skipped.
+     * @param filename The file to read from
+     * @throws Exception if file reading fails
+     */
+    public void loadFromFile(String filename) throws Exception {
+        List<String> lines = FileManager.readLines(filename);
+        clear();
+        for (String line : lines) {
+            String[] parts = line.split("\\|");
+            if (parts.length != 3) continue;
+            int count;
+            try {
+                count = Integer.parseInt(parts[2].trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Title title = titles.computeIfAbsent(parts[0], Title::new);
+            int branchId = branchId(parts[1]);
+            for (int i = 0; i < count; i++) addCopy(title, branchId, false);
+        }
+    }
+}
@@ -1,120 +1,841 @@
 package library.data;
 
 import library.model.Transaction;
+import library.model.TransactionStatus;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import library.util.FileManager;
+import library.util.IntList;
+import library.util.MappedRecordReader;
+import library.util.Metrics;
+import library.util.BinarySnapshotReader;
+import library.util.BinarySnapshotWriter;
+import library.util.StorageFormat;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 
 /**
  * LendingTracker manages all lending and return transactions in the library.
  * Uses a queue for lending order, a stack for returns, and a list for all transactions.
  * Handles overdue logic and fine calculation.
+ * Optionally records every change in an append-only journal so that commits cost O(1) I/O.
+ * A change is journaled before it is applied, so a failed append leaves the tracker unchanged.
+ * Once the journal has failed, the next commit writes a full snapshot instead.
+ * Methods are synchronized, so several circulation desks can record loans at once. Each
+ * critical section is O(1) or O(log n) plus one buffered journal append; changes must be
+ * serialized anyway, since the journal gives every record the next row number. The one
+ * check a desk makes before lending, hasOpenLoan, reads concurrent maps and takes no lock.
+ * The history lives in a columnar TransactionStore; queues and indexes hold row numbers,
+ * and callers see Transaction views of the rows.
+ * Every status change goes through one transition method that enforces the TransactionStatus
+ * rules and keeps per-state row sets, so listing the loans in a state costs O(k).
+ * Rows are also bucketed by borrow date, so date-range queries cost O(matching rows)
+ * rather than a scan of the whole history, and by borrower and by ISBN, so a patron's or an
+ * item's loan history can be paged newest-first in O(page size).
  */
 public class LendingTracker {
-    // Queue for lending order (FIFO)
-    private Queue<Transaction> lendingQueue = new LinkedList<>();
-    // Stack for return order (LIFO, if needed)
-    private Stack<Transaction> returnStack = new Stack<>();
-    // List of all transactions (history)
-    private List<Transaction> allTransactions = new ArrayList<>();
+    // All transactions (history), one row per transaction
+    private final TransactionStore store = new TransactionStore();
+    // Rows in lending order (FIFO); entries before lendingQueueHead have been processed
+    private IntList lendingQueue = new IntList();
+    private int lendingQueueHead;
+    // Rows in return order (LIFO, if needed); exactly the RETURNED loans
+    private IntList returnStack = new IntList();
+    // Rows of the open loans in each open state (BORROWED, OVERDUE), in the order they entered it
+    private final Map<TransactionStatus, Set<Integer>> openRowsByState = new EnumMap<>(TransactionStatus.class);
+    // Maps (borrower key id, ISBN key id) to the row of the open (BORROWED or OVERDUE) loan;
+    // concurrent so hasOpenLoan can read it without the monitor
+    private final Map<Long, Integer> openLoans = new ConcurrentHashMap<>();
+    // Number of open loans per ISBN, indexed by key id
+    private int[] openLoansByIsbn = new int[0];
+    // Rows bucketed by borrow epoch-day, in insertion order within a day
+    private final NavigableMap<Integer, IntList> rowsByBorrowDay = new TreeMap<>();
+    // Rows of each borrower and of each ISBN in recording order, indexed by key id (null if none)
+    private IntList[] rowsByBorrower = new IntList[0];
+    private IntList[] rowsByIsbn = new IntList[0];
+    // Due-date heap over open loans, used for overdue detection
+    private OverdueMonitor overdueMonitor = new OverdueMonitor(store, OVERDUE_DAYS);
+    // Write-ahead journal (null when every commit rewrites the whole file)
+    private TransactionJournal journal;
+    // Report counters notified of every borrow (optional)
+    private ReportAggregates aggregates;
+    // Change stream notified of every loan opened, closed or marked overdue (optional)
+    private volatile ChangeEventBus events;
     // Overdue/fine policy
     private static final int OVERDUE_DAYS = 14;
     private static final double FINE_PER_DAY = 1.0;
+    // Store tag used in binary snapshots
+    private static final byte SNAPSHOT_TYPE = 'T';
+    // Latency timers (no-ops unless metrics are enabled)
+    private static final Metrics.Timer BORROW_TIME = Metrics.timer("lending.borrow");
+    private static final Metrics.Timer RETURN_TIME = Metrics.timer("lending.return");
+    private static final Metrics.Timer OVERDUE_TIME = Metrics.timer("lending.overdue");
+    private static final Metrics.Timer COMMIT_TIME = Metrics.timer("lending.commit");
+    private static final Metrics.Timer LOAD_TIME = Metrics.timer("lending.load");
+    private static final Metrics.Timer SAVE_TIME = Metrics.timer("lending.save");
+    // Journal size at which a commit compacts the journal into a new snapshot
+    private static final int COMPACT_THRESHOLD = 10000;
+
+    public LendingTracker() {
+        for (TransactionStatus status : TransactionStatus.values()) {
+            if (status.isOpen()) openRowsByState.put(status, new LinkedHashSet<>());
+        }
+    }
 
     /**
-     * Returns a list of overdue transactions (status BORROWED and overdue).
+     * Returns the loans that are currently overdue (status OVERDUE, or BORROWED past the due date).
+     * Newly overdue loans are picked off the due-date heap and marked OVERDUE.
      * @return List of overdue transactions
      */
-    public List<Transaction> getOverdueTransactions() {
-        List<Transaction> overdue = new ArrayList<>();
-        LocalDate today = LocalDate.now();
-        for (Transaction t : allTransactions) {
-            if ("BORROWED".equals(t.getStatus()) && t.getBorrowDate().plusDays(OVERDUE_DAYS).isBefore(today)) {
-                overdue.add(t);
+    public synchronized List<Transaction> getOverdueTransactions() {
+        long start = Metrics.start();
+        try {
+            sweepOverdue(LocalDate.now());
+            return views(openRowsByState.get(TransactionStatus.OVERDUE));
+        } finally {
+            OVERDUE_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Returns the loans currently in a state, in the order they entered it. O(k) for k loans.
+     * @param status The state
+     * @return List of transactions in that state
+     */
+    public synchronized List<Transaction> getTransactionsByStatus(TransactionStatus status) {
+        if (status.isOpen()) return views(openRowsByState.get(status));
+        List<Transaction> result = new ArrayList<>(returnStack.size());
+        for (int i = 0; i < returnStack.size(); i++) result.add(store.get(returnStack.get(i)));
+        return result;
+    }
+
+    /**
+     * Returns every open (BORROWED or OVERDUE) loan. O(k) for k open loans.
+     * @return List of open transactions
+     */
+    public synchronized List<Transaction> getOpenLoans() {
+        List<Transaction> result = new ArrayList<>(openLoans.size());
+        for (Set<Integer> rows : openRowsByState.values()) {
+            for (int row : rows) result.add(store.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of transactions in the history
+     */
+    public synchronized int getTransactionCount() {
+        return store.size();
+    }
+
+    /**
+     * @return Number of open (BORROWED or OVERDUE) loans
+     */
+    public synchronized int getOpenLoanCount() {
+        return openLoans.size();
+    }
+
+    /**
+     * @return Number of open loans currently marked OVERDUE
+     */
+    public synchronized int getOverdueCount() {
+        return openRowsByState.get(TransactionStatus.OVERDUE).size();
+    }
+
+    /**
+     * Returns the transactions borrowed between two dates (inclusive), in borrow-date order.
+     * Only the date buckets in the range are visited, so the cost is O(log d + k) for
+     * d distinct borrow dates and k matching transactions.
+     * @param from First borrow date
+     * @param to Last borrow date
+     * @return List of matching transactions (empty if from is after to)
+     */
+    public synchronized List<Transaction> transactionsBetween(LocalDate from, LocalDate to) {
+        List<Transaction> result = new ArrayList<>();
+        int fromDay = TransactionStore.toDay(from);
+        int toDay = TransactionStore.toDay(to);
+        if (fromDay > toDay) return result;
+        for (IntList rows : rowsByBorrowDay.subMap(fromDay, true, toDay, true).values()) {
+            for (int i = 0; i < rows.size(); i++) result.add(store.get(rows.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the transactions borrowed in a calendar month, in borrow-date order.
+     * @param year The year
+     * @param month The month (1-12)
+     * @return List of matching transactions
+     */
+    public List<Transaction> transactionsInMonth(int year, int month) {
+        LocalDate first = LocalDate.of(year, month, 1);
+        return transactionsBetween(first, first.plusMonths(1).minusDays(1));
+    }
+
+    /**
+     * Counts the transactions borrowed between two dates (inclusive) without creating views.
+     * @param from First borrow date
+     * @param to Last borrow date
+     * @return Number of matching transactions
+     */
+    public synchronized int countBetween(LocalDate from, LocalDate to) {
+        int fromDay = TransactionStore.toDay(from);
+        int toDay = TransactionStore.toDay(to);
+        if (fromDay > toDay) return 0;
+        int count = 0;
+        for (IntList rows : rowsByBorrowDay.subMap(fromDay, true, toDay, true).values()) count += rows.size();
+        return count;
+    }
+
+    /**
+     * Returns a page of a borrower's loan history, newest first (most recently recorded loan first).
+     * Loans show their current state, so returned loans appear as RETURNED. O(limit).
+     * @param borrowerId The borrower ID
+     * @param offset Number of newer loans to skip
+     * @param limit Maximum number of loans to return
+     * @return The page, empty past the end of the history or for an unknown borrower
+     */
+    public synchronized List<Transaction> historyOfBorrower(String borrowerId, int offset, int limit) {
+        return page(rowsOf(rowsByBorrower, borrowerId), offset, limit);
+    }
+
+    /**
+     * Returns a page of the loan history of a book (every borrower who has had it), newest first. O(limit).
+     * @param isbn The book ISBN
+     * @param offset Number of newer loans to skip
+     * @param limit Maximum number of loans to return
+     * @return The page, empty past the end of the history or for an unknown ISBN
+     */
+    public synchronized List<Transaction> historyOfBook(String isbn, int offset, int limit) {
+        return page(rowsOf(rowsByIsbn, isbn), offset, limit);
+    }
+
+    /**
+     * @param borrowerId The borrower ID
+     * @return Number of loans the borrower has ever had
+     */
+    public synchronized int historySizeOfBorrower(String borrowerId) {
+        IntList rows = rowsOf(rowsByBorrower, borrowerId);
+        return rows == null ? 0 : rows.size();
+    }
+
+    /**
+     * @param isbn The book ISBN
+     * @return Number of times the book has been borrowed
+     */
+    public synchronized int historySizeOfBook(String isbn) {
+        IntList rows = rowsOf(rowsByIsbn, isbn);
+        return rows == null ? 0 : rows.size();
+    }
+
+    private IntList rowsOf(IntList[] index, String key) {
+        int ref = store.keyId(key);
+        return ref >= 0 && ref < index.length ? index[ref] : null;
+    }
+
+    private List<Transaction> page(IntList rows, int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("Offset and limit must not be negative");
+        List<Transaction> result = new ArrayList<>();
+        if (rows == null) return result;
+        for (int i = rows.size() - 1 - offset; i >= 0 && result.size() < limit; i--) result.add(store.get(rows.get(i)));
+        return result;
+    }
+
+    /**
+     * Marks every loan that has become overdue since the last sweep as OVERDUE, with fines
+     * accrued through its due date, so it owes fines for every day after that.
+     * Only loans whose due date has passed are touched, so this is O(k log n) for k newly overdue loans.
+     * @param today The reference date
+     * @return Loans that became overdue during this sweep
+     */
+    public synchronized List<Transaction> sweepOverdue(LocalDate today) {
+        List<Integer> newlyOverdue = overdueMonitor.sweep(TransactionStore.toDay(today));
+        ChangeEventBus bus = events;
+        for (int i = 0; i < newlyOverdue.size(); i++) {
+            int row = newlyOverdue.get(i);
+            int fineDay = store.fineAccruedDay(row);
+            if (fineDay == TransactionStore.NO_DATE) fineDay = overdueMonitor.dueDay(row);
+            try {
+                logUpdate(row, store.returnDay(row), TransactionStatus.OVERDUE, fineDay);
+            } catch (UncheckedIOException e) {
+                // Leave the rest for the next sweep
+                for (int j = i; j < newlyOverdue.size(); j++) overdueMonitor.track(newlyOverdue.get(j));
+                throw e;
             }
+            changeStatus(row, TransactionStatus.OVERDUE);
+            store.setFineAccruedDay(row, fineDay);
+            if (bus != null) bus.loanOverdue(store.get(row), today);
         }
-        return overdue;
+        syncJournal();
+        return views(newlyOverdue);
     }
 
     /**
      * Updates fines for all overdue borrowers (requires registry).
-     * Sets transaction status to OVERDUE and adds fine to borrower.
+     * Sets transaction status to OVERDUE and charges each borrower only for the days
+     * since fines were last accrued on the loan, so repeated runs never double-charge.
      * @param registry The BorrowerRegistry to update fines
      */
-    public void updateOverdueFines(library.data.BorrowerRegistry registry) {
+    public synchronized void updateOverdueFines(library.data.BorrowerRegistry registry) {
         LocalDate today = LocalDate.now();
-        for (Transaction t : getOverdueTransactions()) {
-            long daysOverdue = java.time.temporal.ChronoUnit.DAYS.between(t.getBorrowDate().plusDays(OVERDUE_DAYS), today);
-            double fine = daysOverdue * FINE_PER_DAY;
-            library.model.Borrower borrower = registry.getBorrowerById(t.getBorrowerId());
+        sweepOverdue(today);
+        int todayDay = TransactionStore.toDay(today);
+        for (int row : openRowsByState.get(TransactionStatus.OVERDUE)) {
+            int days = todayDay - store.fineAccruedDay(row);
+            if (days <= 0) continue;
+            library.model.Borrower borrower = registry.getBorrowerById(store.key(store.borrowerRef(row)));
             if (borrower != null) {
-                borrower.setFinesOwed(borrower.getFinesOwed() + fine);
-                t.setStatus("OVERDUE");
+                logUpdate(row, store.returnDay(row), store.status(row), todayDay);
+                borrower.setFinesOwed(borrower.getFinesOwed() + days * FINE_PER_DAY);
+                registry.updateBorrower(borrower);
+                store.setFineAccruedDay(row, todayDay);
             }
         }
+        syncJournal();
+    }
+
+    /**
+     * Attaches report counters, seeding them with the current history.
+     * @param aggregates The counters to keep up to date
+     */
+    public synchronized void setReportAggregates(ReportAggregates aggregates) {
+        this.aggregates = aggregates;
+        for (Transaction t : store.asList()) aggregates.recordBorrow(t);
+    }
+
+    /**
+     * Attaches a change stream; every later loan opened, closed or marked overdue publishes an event to it.
+     * @param events The bus, or null to stop publishing
+     */
+    public void setEventBus(ChangeEventBus events) {
+        this.events = events;
     }
 
     /**
      * Adds a new borrow transaction to the queue and history.
+     * The history stores a copy; the given transaction gets the id of its row.
      * @param transaction The borrow transaction
+     * @return View of the stored transaction
+     * @throws IllegalArgumentException if the status is missing
+     * @throws UncheckedIOException if the journal cannot record the loan (nothing is changed)
      */
-    public void borrowBook(Transaction transaction) {
-        lendingQueue.add(transaction);
-        allTransactions.add(transaction);
+    public synchronized Transaction borrowBook(Transaction transaction) {
+        long start = Metrics.start();
+        try {
+            if (transaction.getStatus() == null) throw new IllegalArgumentException("Transaction status is required");
+            if (journal != null) {
+                try {
+                    journal.appendBorrow(store.size(), transaction);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int row = store.add(transaction);
+            transaction.setId(row);
+            lendingQueue.add(row);
+            indexRow(row);
+            Transaction stored = store.get(row);
+            if (aggregates != null) aggregates.recordBorrow(stored);
+            ChangeEventBus bus = events;
+            if (bus != null) bus.loanOpened(stored);
+            syncJournal();
+            return stored;
+        } finally {
+            BORROW_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Marks a transaction as RETURNED on the given date.
+     * @param transaction The transaction to close
+     * @param returnDate The date the book came back
+     * @throws IllegalStateException if the loan has already been returned
+     */
+    public synchronized void markReturned(Transaction transaction, LocalDate returnDate) {
+        int row = transaction.getId();
+        if (!store.status(row).isOpen()) throw new IllegalStateException("Loan " + row + " has already been returned");
+        markReturned(row, TransactionStore.toDay(returnDate));
+    }
+
+    private void markReturned(int row, int returnDay) {
+        checkTransition(row, TransactionStatus.RETURNED);
+        logUpdate(row, returnDay, TransactionStatus.RETURNED, store.fineAccruedDay(row));
+        changeStatus(row, TransactionStatus.RETURNED);
+        store.setReturnDay(row, returnDay);
+        syncJournal();
+        ChangeEventBus bus = events;
+        if (bus != null) bus.loanClosed(store.get(row), TransactionStore.toDate(returnDay));
+    }
+
+    /**
+     * Closes the open loan of a book by a borrower using the open-loan index (O(1)).
+     * @param borrowerId The borrower returning the book
+     * @param isbn The ISBN of the returned book
+     * @param returnDate The date the book came back
+     * @return The closed Transaction, or null if the borrower has no open loan for this book
+     */
+    public synchronized Transaction returnBook(String borrowerId, String isbn, LocalDate returnDate) {
+        long start = Metrics.start();
+        try {
+            int row = openLoanRow(borrowerId, isbn);
+            if (row < 0) return null;
+            markReturned(row, TransactionStore.toDay(returnDate));
+            return store.get(row);
+        } finally {
+            RETURN_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Looks up the open (BORROWED or OVERDUE) loan of a book by a borrower.
+     * @param borrowerId The borrower ID
+     * @param isbn The book ISBN
+     * @return The open Transaction, or null if none
+     */
+    public synchronized Transaction getOpenLoan(String borrowerId, String isbn) {
+        int row = openLoanRow(borrowerId, isbn);
+        return row < 0 ? null : store.get(row);
+    }
+
+    /**
+     * Checks whether a borrower has an open loan of a book, without taking the tracker's lock.
+     * A borrower can hold at most one open loan per ISBN. The answer is only stable while the
+     * caller keeps other threads from lending or returning this borrower's copy of the book
+     * (CirculationService holds the borrower and book stripes).
+     * @param borrowerId The borrower ID
+     * @param isbn The book ISBN
+     * @return true if the loan is BORROWED or OVERDUE
+     */
+    public boolean hasOpenLoan(String borrowerId, String isbn) {
+        return openLoanRow(borrowerId, isbn) >= 0;
     }
 
     /**
      * Processes the next return in the queue, marks as RETURNED, and pushes to return stack.
-     * @return The returned Transaction, or null if queue is empty
+     * Loans that were already returned by other means are skipped.
+     * @return The returned Transaction, or null if no open loan is left in the queue
      */
-    public Transaction processNextReturn() {
-        if (!lendingQueue.isEmpty()) {
-            Transaction t = lendingQueue.poll();
-            t.setStatus("RETURNED");
-            returnStack.push(t);
-            return t;
+    public synchronized Transaction processNextReturn() {
+        while (lendingQueueHead < lendingQueue.size()) {
+            int row = lendingQueue.get(lendingQueueHead++);
+            if (!store.status(row).isOpen()) continue;
+            try {
+                logUpdate(row, store.returnDay(row), TransactionStatus.RETURNED, store.fineAccruedDay(row));
+            } catch (UncheckedIOException e) {
+                lendingQueueHead--;
+                throw e;
+            }
+            changeStatus(row, TransactionStatus.RETURNED);
+            syncJournal();
+            ChangeEventBus bus = events;
+            if (bus != null) bus.loanClosed(store.get(row), null);
+            return store.get(row);
         }
         return null;
     }
 
     /**
-     * Returns the list of all transactions (history).
-     * @return List of all transactions
+     * Returns the list of all transactions (history). O(n); prefer the indexed queries
+     * (transactionsBetween, historyOfBorrower, ...) where they fit.
+     * @return Snapshot of read-only views, one per transaction recorded so far
+     */
+    public synchronized List<Transaction> getAllTransactions() {
+        return new ArrayList<>(store.asList());
+    }
+
+    /**
+     * Checks whether any copy of a book is currently out on loan.
+     * @param isbn The book ISBN
+     * @return true if the book has an open (BORROWED or OVERDUE) loan
+     */
+    public synchronized boolean isOnLoan(String isbn) {
+        int id = store.keyId(isbn);
+        return id >= 0 && id < openLoansByIsbn.length && openLoansByIsbn[id] > 0;
+    }
+
+    private int openLoanRow(String borrowerId, String isbn) {
+        int borrowerRef = store.keyId(borrowerId);
+        int isbnRef = store.keyId(isbn);
+        if (borrowerRef < 0 || isbnRef < 0) return -1;
+        Integer row = openLoans.get(loanKey(borrowerRef, isbnRef));
+        return row == null ? -1 : row;
+    }
+
+    private void checkTransition(int row, TransactionStatus next) {
+        TransactionStatus current = store.status(row);
+        if (!current.canTransitionTo(next)) throw new IllegalStateException("Illegal status change " + current + " -> " + next);
+    }
+
+    /**
+     * Applies a status change and moves the row between the per-state indexes.
+     * @throws IllegalStateException if the transition is not allowed
+     */
+    private void changeStatus(int row, TransactionStatus next) {
+        TransactionStatus current = store.status(row);
+        store.setStatus(row, next);
+        if (current == next) return;
+        openRowsByState.get(current).remove(row); // only open states can be left
+        if (next.isOpen()) {
+            openRowsByState.get(next).add(row);
+        } else {
+            unindexOpenLoan(row);
+            returnStack.add(row);
+        }
+    }
+
+    /**
+     * Adds a new or freshly loaded row to the indexes of its current state.
+     */
+    private void indexRow(int row) {
+        rowsByBorrowDay.computeIfAbsent(store.borrowDay(row), day -> new IntList()).add(row);
+        rowsByBorrower = addToIndex(rowsByBorrower, store.borrowerRef(row), row);
+        rowsByIsbn = addToIndex(rowsByIsbn, store.isbnRef(row), row);
+        TransactionStatus status = store.status(row);
+        if (!status.isOpen()) {
+            returnStack.add(row);
+            return;
+        }
+        openRowsByState.get(status).add(row);
+        int isbnRef = store.isbnRef(row);
+        if (openLoans.put(loanKey(store.borrowerRef(row), isbnRef), row) == null) {
+            if (isbnRef >= openLoansByIsbn.length) {
+                openLoansByIsbn = Arrays.copyOf(openLoansByIsbn, Math.max(isbnRef + 1, store.keyCount()));
+            }
+            openLoansByIsbn[isbnRef]++;
+        }
+        overdueMonitor.track(row);
+    }
+
+    /**
+     * Appends a row to the list of a key, growing the index to the key table if needed.
+     * @return The index (a new array if it had to grow)
+     */
+    private IntList[] addToIndex(IntList[] index, int ref, int row) {
+        if (ref >= index.length) index = Arrays.copyOf(index, Math.max(Math.max(ref + 1, store.keyCount()), index.length * 2));
+        IntList rows = index[ref];
+        if (rows == null) index[ref] = rows = new IntList(4);
+        rows.add(row);
+        return index;
+    }
+
+    private void unindexOpenLoan(int row) {
+        int isbnRef = store.isbnRef(row);
+        if (openLoans.remove(loanKey(store.borrowerRef(row), isbnRef), row)) {
+            openLoansByIsbn[isbnRef]--;
+        }
+    }
+
+    private static long loanKey(int borrowerRef, int isbnRef) {
+        return ((long) borrowerRef << 32) | (isbnRef & 0xFFFFFFFFL);
+    }
+
+    private List<Transaction> views(Collection<Integer> rows) {
+        List<Transaction> result = new ArrayList<>(rows.size());
+        for (int row : rows) result.add(store.get(row));
+        return result;
+    }
+
+    /**
+     * Journals the state a row is about to be given. Call before changing the row.
+     * @throws UncheckedIOException if the journal cannot take the record
+     */
+    private void logUpdate(int row, int returnDay, TransactionStatus status, int fineDay) {
+        if (journal == null) return;
+        try {
+            journal.appendUpdate(row, TransactionStore.toDate(returnDay), status, TransactionStore.toDate(fineDay));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces the journal once a batch is pending. The change is already applied and journaled,
+     * so a failure is not reported here; the journal is marked failed and the next commit saves a snapshot.
+     */
+    private void syncJournal() {
+        if (journal == null) return;
+        try {
+            journal.syncIfDue();
+        } catch (IOException e) {
+            // Reported by the next commit, which replaces the journal with a snapshot
+        }
+    }
+
+    // --- Journal ---
+
+    /**
+     * Switches the tracker to journal mode. Must be called before loadFromFile so the
+     * journal is replayed on top of the snapshot.
+     * @param journalFile The journal file to append to (created if missing)
+     * @throws IOException if the journal cannot be opened
+     */
+    public synchronized void enableJournal(String journalFile) throws IOException {
+        if (journal != null) journal.close();
+        journal = new TransactionJournal(journalFile);
+    }
+
+    /**
+     * Makes all changes durable. In journal mode this forces pending journal records to disk
+     * and only rewrites the snapshot once the journal grows past the compaction threshold
+     * (or has failed); otherwise the whole snapshot is rewritten.
+     * @param filename The snapshot file
+     * @throws Exception if writing fails
      */
-    public List<Transaction> getAllTransactions() {
-        return allTransactions;
+    public void commit(String filename) throws Exception {
+        commit(filename, StorageFormat.TEXT);
+    }
+
+    /**
+     * Makes all changes durable, writing snapshots in the given format.
+     * @param filename The snapshot file
+     * @param format TEXT or BINARY
+     * @throws Exception if writing fails
+     */
+    public synchronized void commit(String filename, StorageFormat format) throws Exception {
+        long start = Metrics.start();
+        try {
+            if (journal == null || journal.isFailed()) {
+                saveToFile(filename, format);
+            } else if (journal.getRecordCount() >= COMPACT_THRESHOLD) {
+                saveToFile(filename, format);
+            } else {
+                journal.sync();
+            }
+        } finally {
+            COMMIT_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Syncs and closes the journal, if one is enabled.
+     * @throws IOException if closing fails
+     */
+    public synchronized void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
     }
 
     // --- File Persistence ---
-    public void saveToFile(String filename) throws Exception {
-        List<String> lines = new ArrayList<>();
-        for (Transaction t : allTransactions) {
-            // isbn|borrowerId|borrowDate|returnDate|status
-            lines.add(String.join("|",
-                t.getBookIsbn(),
-                t.getBorrowerId(),
-                t.getBorrowDate().toString(),
-                t.getReturnDate() == null ? "" : t.getReturnDate().toString(),
-                t.getStatus()
-            ));
+
+    /**
+     * Saves all transactions to a snapshot file. In journal mode the journal is
+     * truncated afterwards, since the snapshot now contains every record.
+     * @param filename The file to write to
+     * @throws Exception if file writing fails
+     */
+    public synchronized void saveToFile(String filename) throws Exception {
+        List<String> lines = new ArrayList<>(store.size());
+        for (int row = 0; row < store.size(); row++) {
+            // isbn|borrowerId|borrowDate|returnDate|status[|fineAccruedThrough]
+            int returnDay = store.returnDay(row);
+            String line = String.join("|",
+                store.key(store.isbnRef(row)),
+                store.key(store.borrowerRef(row)),
+                TransactionStore.toDate(store.borrowDay(row)).toString(),
+                returnDay == TransactionStore.NO_DATE ? "" : TransactionStore.toDate(returnDay).toString(),
+                store.status(row).name()
+            );
+            int fineDay = store.fineAccruedDay(row);
+            if (fineDay != TransactionStore.NO_DATE) line += "|" + TransactionStore.toDate(fineDay);
+            lines.add(line);
         }
         FileManager.writeLines(filename, lines);
+        if (journal != null) journal.reset();
+    }
+
+    /**
+     * Loads all transactions from a snapshot file, then replays the journal (if enabled).
+     * The snapshot is streamed through a memory-mapped parser without building a list of lines.
+     * Replay is idempotent: loans already contained in the snapshot are skipped and
+     * status updates are simply re-applied.
+     * @param filename The file to read from
+     * @throws Exception if file reading or parsing fails
+     */
+    public synchronized void loadFromFile(String filename) throws Exception {
+        clearAll();
+        // Lines without the sixth field predate fine accrual; their OVERDUE loans were charged in full
+        // when they were marked, so they count as settled up to today
+        int settledDay = TransactionStore.toDay(LocalDate.now());
+        MappedRecordReader.read(filename, r -> {
+            if (r.fieldCount() == 5 || r.fieldCount() == 6) {
+                TransactionStatus status;
+                try {
+                    status = TransactionStatus.valueOf(r.getString(4));
+                } catch (IllegalArgumentException e) {
+                    return; // unknown status; skip the line like other malformed lines
+                }
+                store.add(store.intern(r.getString(0)), store.intern(r.getString(1)),
+                    TransactionStore.toDay(r.getDate(2)), TransactionStore.toDay(r.getDate(3)), status,
+                    r.fieldCount() == 6 ? TransactionStore.toDay(r.getDate(5))
+                        : status == TransactionStatus.OVERDUE ? settledDay : TransactionStore.NO_DATE);
+            }
+        });
+        finishLoad();
     }
 
-    public void loadFromFile(String filename) throws Exception {
+    /**
+     * Saves all transactions in the given format. The binary layout is the store's key table
+     * (the distinct ISBNs and borrower IDs) followed by fixed-width records
+     * (isbn ref, borrower ref, borrow epoch-day, return epoch-day, status byte, fine-accrued epoch-day).
+     * In journal mode the journal is truncated afterwards.
+     * @param filename The file to write to
+     * @param format TEXT or BINARY
+     * @throws Exception if file writing fails
+     */
+    public synchronized void saveToFile(String filename, StorageFormat format) throws Exception {
+        long start = Metrics.start();
+        try {
+            if (format == StorageFormat.TEXT) {
+                saveToFile(filename);
+                return;
+            }
+            // The key table is already a dictionary of ISBNs and borrower IDs, and the columns hold its references
+            try (BinarySnapshotWriter out = new BinarySnapshotWriter(filename, SNAPSHOT_TYPE)) {
+                out.writeInt(store.keyCount());
+                for (int i = 0; i < store.keyCount(); i++) out.writeString(store.key(i));
+                out.writeInt(store.size());
+                for (int row = 0; row < store.size(); row++) {
+                    out.writeInt(store.isbnRef(row));
+                    out.writeInt(store.borrowerRef(row));
+                    out.writeInt(store.borrowDay(row));
+                    out.writeInt(store.returnDay(row));
+                    out.writeByte(store.status(row).ordinal());
+                    out.writeInt(store.fineAccruedDay(row));
+                }
+                out.commit();
+            }
+            if (journal != null) journal.reset();
+        } finally {
+            SAVE_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Loads all transactions from a file in the given format, then replays the journal (if enabled).
+     * @param filename The file to read from
+     * @param format TEXT or BINARY
+     * @throws Exception if file reading fails or a binary snapshot is corrupt
+     */
+    public synchronized void loadFromFile(String filename, StorageFormat format) throws Exception {
+        long start = Metrics.start();
+        try {
+            if (format == StorageFormat.TEXT) {
+                loadFromFile(filename);
+                return;
+            }
+            try (BinarySnapshotReader in = new BinarySnapshotReader(filename, SNAPSHOT_TYPE)) {
+                clearAll();
+                int keyCount = in.readInt();
+                for (int i = 0; i < keyCount; i++) {
+                    if (store.intern(in.readString()) != i) throw new IOException("Duplicate key in transaction snapshot");
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int isbnRef = checkRef(in.readInt(), keyCount);
+                    int borrowerRef = checkRef(in.readInt(), keyCount);
+                    int borrowDay = in.readInt();
+                    int returnDay = in.readInt();
+                    int code = in.readByte();
+                    TransactionStatus status = TransactionStore.statusOf(code);
+                    if (status == null) throw new IOException("Unknown transaction status code: " + code);
+                    store.add(isbnRef, borrowerRef, borrowDay, returnDay, status, in.readInt());
+                }
+            }
+            finishLoad();
+        } finally {
+            LOAD_TIME.stop(start);
+        }
+    }
+
+    private static int checkRef(int ref, int keyCount) throws IOException {
+        if (ref < 0 || ref >= keyCount) throw new IOException("Key reference out of range: " + ref);
+        return ref;
+    }
+
+    private void clearAll() {
         lendingQueue.clear();
+        lendingQueueHead = 0;
         returnStack.clear();
-        allTransactions.clear();
-        List<String> lines = FileManager.readLines(filename);
-        for (String line : lines) {
-            String[] parts = line.split("\\|");
-            if (parts.length == 5) {
-                LocalDate borrowDate = LocalDate.parse(parts[2]);
-                LocalDate returnDate = parts[3].isEmpty() ? null : LocalDate.parse(parts[3]);
-                Transaction t = new Transaction(parts[0], parts[1], borrowDate, returnDate, parts[4]);
-                allTransactions.add(t);
-                if (t.getStatus().equals("BORROWED")) lendingQueue.add(t);
-                if (t.getStatus().equals("RETURNED")) returnStack.push(t);
+        for (Set<Integer> rows : openRowsByState.values()) rows.clear();
+        store.clear();
+        openLoans.clear();
+        openLoansByIsbn = new int[0];
+        rowsByBorrowDay.clear();
+        rowsByBorrower = new IntList[0];
+        rowsByIsbn = new IntList[0];
+        overdueMonitor.clear();
+        if (aggregates != null) aggregates.clearBorrows();
+    }
+
+    /**
+     * Replays the journal (if enabled) and rebuilds the queue, stack and indexes after a load.
+     */
+    private void finishLoad() throws IOException {
+        if (journal != null) {
+            try {
+                replayJournal();
+            } catch (IOException e) {
+                clearAll();
+                throw e;
+            }
+        }
+        for (int row = 0; row < store.size(); row++) {
+            if (aggregates != null) aggregates.recordBorrow(store.get(row));
+            TransactionStatus status = store.status(row);
+            if (status == TransactionStatus.BORROWED) lendingQueue.add(row);
+            indexRow(row);
+            // Only a journal or binary snapshot from before sweeps recorded the due date can leave an
+            // overdue loan without one; it was never charged, so it owes fines from its due date
+            if (status == TransactionStatus.OVERDUE && store.fineAccruedDay(row) == TransactionStore.NO_DATE) {
+                store.setFineAccruedDay(row, overdueMonitor.dueDay(row));
+            }
+        }
+    }
+
+    /**
+     * Applies the journal to the loaded snapshot. Records must continue the snapshot row by row;
+     * a gap or a record that contradicts the snapshot means they do not belong together.
+     * @throws TransactionJournal.OutOfStepException if the journal does not match the snapshot
+     */
+    private void replayJournal() throws IOException {
+        for (String line : journal.readRecords()) {
+            String[] parts = line.split("\\|", -1);
+            try {
+                if (parts.length == 7 && parts[0].equals(TransactionJournal.BORROW_RECORD)) {
+                    int id = Integer.parseInt(parts[1]);
+                    if (id > store.size()) {
+                        throw new TransactionJournal.OutOfStepException("Journal records transaction " + id
+                            + " but the history has only " + store.size() + " transactions");
+                    }
+                    if (id < store.size()) {
+                        // Already in the snapshot (saved before the journal was truncated)
+                        if (!store.key(store.isbnRef(id)).equals(parts[2]) || !store.key(store.borrowerRef(id)).equals(parts[3])) {
+                            throw new TransactionJournal.OutOfStepException("Journal record for transaction " + id
+                                + " does not match the snapshot");
+                        }
+                        continue;
+                    }
+                    LocalDate borrowDate = LocalDate.parse(parts[4]);
+                    LocalDate returnDate = parts[5].isEmpty() ? null : LocalDate.parse(parts[5]);
+                    store.add(new Transaction(parts[2], parts[3], borrowDate, returnDate, TransactionStatus.valueOf(parts[6])));
+                } else if (parts.length == 5 && parts[0].equals(TransactionJournal.UPDATE_RECORD)) {
+                    int id = Integer.parseInt(parts[1]);
+                    if (id >= store.size()) {
+                        throw new TransactionJournal.OutOfStepException("Journal updates transaction " + id
+                            + " but the history has only " + store.size() + " transactions");
+                    }
+                    int returnDay = parts[2].isEmpty() ? TransactionStore.NO_DATE : TransactionStore.toDay(LocalDate.parse(parts[2]));
+                    TransactionStatus status = TransactionStatus.valueOf(parts[3]);
+                    int fineDay = parts[4].isEmpty() ? TransactionStore.NO_DATE : TransactionStore.toDay(LocalDate.parse(parts[4]));
+                    store.setReturnDay(id, returnDay);
+                    store.restoreStatus(id, status); // the last logged state wins
+                    store.setFineAccruedDay(id, fineDay);
+                }
+            } catch (RuntimeException e) {
+                // Torn record from an interrupted write; ignore it like other malformed lines
             }
         }
     }
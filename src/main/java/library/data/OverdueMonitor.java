@@ -0,0 +1,71 @@
+package library.data;
+
+import library.model.TransactionStatus;
+import java.util.*;
+
+/**
+ * OverdueMonitor tracks open loans in a min-heap keyed by due date.
+ * A sweep only pops loans whose due date has passed since the previous sweep,
+ * so detecting newly overdue loans costs O(k log n) instead of a scan of the whole history.
+ * Returned loans are removed lazily when they reach the top of the heap.
+ * Loans are identified by their row in the TransactionStore; dates are epoch days.
+ * The set of loans that are already overdue is kept by LendingTracker.
+ */
+public class OverdueMonitor {
+    private final TransactionStore store;
+    private final int loanDays;
+    // Rows of open loans that are not yet overdue, earliest due date first
+    private final PriorityQueue<Integer> dueQueue;
+
+    /**
+     * Creates a monitor for a given loan period.
+     * @param store The store holding the loans
+     * @param loanDays Number of days a book may be kept before it is overdue
+     */
+    public OverdueMonitor(TransactionStore store, int loanDays) {
+        this.store = store;
+        this.loanDays = loanDays;
+        this.dueQueue = new PriorityQueue<>(Comparator.comparingInt(store::borrowDay));
+    }
+
+    /**
+     * Returns the due date of a loan.
+     * @param row The loan
+     * @return Borrow epoch day plus the loan period
+     */
+    public int dueDay(int row) {
+        return store.borrowDay(row) + loanDays;
+    }
+
+    /**
+     * Starts tracking a BORROWED loan. Loans in other states are ignored; closed loans
+     * are dropped lazily when they reach the top of the heap.
+     * @param row The loan to track
+     */
+    public void track(int row) {
+        if (store.status(row) == TransactionStatus.BORROWED) dueQueue.add(row);
+    }
+
+    /**
+     * Pops every BORROWED loan whose due date has passed as of the given day.
+     * The caller is responsible for changing the transaction status.
+     * @param today The reference epoch day
+     * @return Loans that became overdue during this sweep
+     */
+    public List<Integer> sweep(int today) {
+        List<Integer> newlyOverdue = new ArrayList<>();
+        while (!dueQueue.isEmpty() && dueDay(dueQueue.peek()) < today) {
+            int row = dueQueue.poll();
+            if (store.status(row) != TransactionStatus.BORROWED) continue; // returned since it was queued
+            newlyOverdue.add(row);
+        }
+        return newlyOverdue;
+    }
+
+    /**
+     * Clears all tracked loans.
+     */
+    public void clear() {
+        dueQueue.clear();
+    }
+}
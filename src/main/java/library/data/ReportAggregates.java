@@ -0,0 +1,147 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Transaction;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReportAggregates holds report counters that are kept up to date on every mutation,
+ * so the dashboard reports are answered from the counters instead of rescanning history.
+ * BookInventory reports book additions and removals, LendingTracker reports every borrow.
+ * All counters are concurrent maps updated with atomic merge/compute calls.
+ */
+public class ReportAggregates {
+    // Epoch month (year * 12 + month - 1) -> number of borrows
+    private final Map<Integer, Integer> borrowsByMonth = new ConcurrentHashMap<>();
+    // Epoch month -> (ISBN -> number of borrows in that month)
+    private final Map<Integer, Map<String, Integer>> borrowsByMonthAndIsbn = new ConcurrentHashMap<>();
+    // ISBN -> number of borrows, all time
+    private final Map<String, Integer> borrowsByIsbn = new ConcurrentHashMap<>();
+    // Borrower ID -> number of borrows, all time
+    private final Map<String, Integer> borrowsByBorrower = new ConcurrentHashMap<>();
+    // Category -> number of books in the catalogue
+    private final Map<String, Integer> booksByCategory = new ConcurrentHashMap<>();
+    // ISBN -> book, for every book in the catalogue
+    private final Map<String, Book> catalogue = new ConcurrentHashMap<>();
+    // ISBN -> book, for catalogue books without any borrow
+    private final Map<String, Book> neverBorrowed = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the epoch month used as counter key: months since year 0.
+     */
+    public static int epochMonth(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Records a book added to the catalogue.
+     * @param book The added book
+     */
+    public void bookAdded(Book book) {
+        catalogue.put(book.getIsbn(), book);
+        booksByCategory.merge(book.getCategory(), 1, Integer::sum);
+        // Decided under the map's lock so a concurrent recordBorrow of this ISBN is never missed
+        neverBorrowed.compute(book.getIsbn(), (isbn, old) -> borrowsByIsbn.containsKey(isbn) ? null : book);
+    }
+
+    /**
+     * Records a book removed from the catalogue.
+     * @param book The removed book
+     */
+    public void bookRemoved(Book book) {
+        // Removed by ISBN: a disk-backed inventory reports a freshly decoded copy of the book
+        catalogue.remove(book.getIsbn());
+        booksByCategory.computeIfPresent(book.getCategory(), (category, count) -> count > 1 ? count - 1 : null);
+        neverBorrowed.remove(book.getIsbn());
+    }
+
+    /**
+     * Clears the catalogue counters (the borrow counters are kept).
+     */
+    public void clearBooks() {
+        catalogue.clear();
+        booksByCategory.clear();
+        neverBorrowed.clear();
+    }
+
+    /**
+     * Records a borrow transaction.
+     * @param t The borrow transaction
+     */
+    public void recordBorrow(Transaction t) {
+        LocalDate date = t.getBorrowDate();
+        int month = epochMonth(date.getYear(), date.getMonthValue());
+        borrowsByMonth.merge(month, 1, Integer::sum);
+        borrowsByMonthAndIsbn.computeIfAbsent(month, k -> new ConcurrentHashMap<>()).merge(t.getBookIsbn(), 1, Integer::sum);
+        borrowsByIsbn.merge(t.getBookIsbn(), 1, Integer::sum);
+        borrowsByBorrower.merge(t.getBorrowerId(), 1, Integer::sum);
+        neverBorrowed.remove(t.getBookIsbn());
+    }
+
+    /**
+     * Clears the borrow counters and marks every catalogue book as never borrowed again.
+     */
+    public void clearBorrows() {
+        borrowsByMonth.clear();
+        borrowsByMonthAndIsbn.clear();
+        borrowsByIsbn.clear();
+        borrowsByBorrower.clear();
+        neverBorrowed.putAll(catalogue);
+    }
+
+    /**
+     * Returns the number of borrows per month, keyed YYYY-MM in chronological order. O(months).
+     * @return Map of YYYY-MM string to borrow count
+     */
+    public Map<String, Integer> borrowingTrends() {
+        Map<String, Integer> trends = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> entry : borrowsByMonth.entrySet()) {
+            int month = entry.getKey();
+            trends.put(String.format("%d-%02d", month / 12, month % 12 + 1), entry.getValue());
+        }
+        return trends;
+    }
+
+    /**
+     * Returns the borrow count per ISBN for one month. The map is a live, read-only view.
+     * @param month Month (1-12)
+     * @param year Year
+     * @return Map of ISBN to borrow count in that month
+     */
+    public Map<String, Integer> borrowsByIsbn(int month, int year) {
+        Map<String, Integer> counts = borrowsByMonthAndIsbn.get(epochMonth(year, month));
+        return counts == null ? Collections.emptyMap() : Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Returns the all-time borrow count per ISBN. The map is a live, read-only view.
+     */
+    public Map<String, Integer> borrowsByIsbn() {
+        return Collections.unmodifiableMap(borrowsByIsbn);
+    }
+
+    /**
+     * Returns the all-time borrow count per borrower ID. The map is a live, read-only view.
+     */
+    public Map<String, Integer> borrowsByBorrower() {
+        return Collections.unmodifiableMap(borrowsByBorrower);
+    }
+
+    /**
+     * Returns the number of books per category. O(categories).
+     * @return Map of category name to number of books
+     */
+    public Map<String, Integer> inventoryByCategory() {
+        return new HashMap<>(booksByCategory);
+    }
+
+    /**
+     * Returns the catalogue books that have never been borrowed. O(result).
+     * @return List of books never borrowed
+     */
+    public List<Book> booksNeverBorrowed() {
+        return new ArrayList<>(neverBorrowed.values());
+    }
+}
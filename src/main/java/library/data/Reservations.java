@@ -0,0 +1,360 @@
+package library.data;
+
+import library.model.Hold;
+import library.model.HoldStatus;
+import library.util.FileManager;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reservations keeps the holds borrowers place on titles that are out on loan.
+ * Each title has its own priority queue, ordered by priority class and then by the order the
+ * holds were placed, so handing the next copy to the right hold costs O(log n).
+ * A hold that is served gets a copy set aside (READY) and must be collected within PICKUP_DAYS.
+ *
+ * Nothing is swept in the background: a waiting hold past its expiry date is dropped when it
+ * reaches the head of its queue, a cancelled one is skipped there (the queue is compacted when
+ * such entries make up most of it), and a READY hold that was not collected expires the next
+ * time its title circulates.
+ * Each title's queue is guarded by its own monitor. CirculationService combines these calls
+ * with the copy bookkeeping in Holdings under its book lock.
+ */
+public class Reservations {
+    // Days a waiting hold stays valid
+    public static final int HOLD_DAYS = 90;
+    // Days a borrower has to collect a copy set aside for them
+    public static final int PICKUP_DAYS = 7;
+    // Compact a queue once it has this many dead entries and they outnumber the live ones
+    private static final int COMPACT_THRESHOLD = 32;
+
+    private static final Comparator<Hold> ORDER = Comparator.comparing(Hold::getPriority).thenComparingInt(Hold::getId);
+
+    /**
+     * The holds on one title.
+     */
+    private static final class Queue {
+        private final PriorityQueue<Hold> waiting = new PriorityQueue<>(ORDER);
+        // Holds with a copy set aside, in the order they became ready
+        private final List<Hold> ready = new ArrayList<>();
+        // Entries of waiting that are no longer WAITING (cancelled or fulfilled early)
+        private int dead;
+    }
+
+    // Queues are kept once created, so a thread holding one never works on a discarded queue
+    private final Map<String, Queue> queues = new ConcurrentHashMap<>();
+    // Waiting and ready holds, keyed by borrower ID and ISBN
+    private final Map<String, Hold> active = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * Places a hold at the back of its priority class.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @param priority The priority class
+     * @param date The day the hold is placed
+     * @return The new hold, or null if the borrower already has an active hold on the title
+     */
+    public Hold place(String isbn, String borrowerId, Hold.Priority priority, LocalDate date) {
+        Queue q = queues.computeIfAbsent(isbn, k -> new Queue());
+        synchronized (q) {
+            Hold existing = active.get(key(borrowerId, isbn));
+            if (existing != null) {
+                if (existing.getStatus() != HoldStatus.WAITING || !date.isAfter(existing.getExpiresOn())) return null;
+                // Expired but not purged yet: it makes way for the new hold
+                existing.setStatus(HoldStatus.EXPIRED);
+                q.dead++;
+            }
+            Hold hold = new Hold(nextId.getAndIncrement(), isbn, borrowerId, priority, date, date.plusDays(HOLD_DAYS));
+            q.waiting.add(hold);
+            active.put(key(borrowerId, isbn), hold);
+            compactIfNeeded(q);
+            return hold;
+        }
+    }
+
+    /**
+     * Cancels a borrower's hold on a title.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The status the hold had (READY means its copy must be released), or null if there was none
+     */
+    public HoldStatus cancel(String isbn, String borrowerId) {
+        return end(isbn, borrowerId, HoldStatus.CANCELLED);
+    }
+
+    /**
+     * Ends a borrower's hold on a title because they borrowed it.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The status the hold had, or null if there was none
+     */
+    public HoldStatus fulfil(String isbn, String borrowerId) {
+        return end(isbn, borrowerId, HoldStatus.FULFILLED);
+    }
+
+    private HoldStatus end(String isbn, String borrowerId, HoldStatus outcome) {
+        Queue q = queues.get(isbn);
+        if (q == null) return null;
+        synchronized (q) {
+            Hold hold = active.remove(key(borrowerId, isbn));
+            if (hold == null) return null;
+            HoldStatus previous = hold.getStatus();
+            hold.setStatus(outcome);
+            if (previous == HoldStatus.READY) {
+                q.ready.remove(hold);
+            } else {
+                // Left in the heap and skipped when it reaches the head
+                q.dead++;
+                compactIfNeeded(q);
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Serves the next hold on a title: drops cancelled and expired holds from the head of the
+     * queue and marks the first valid one READY, to be collected within PICKUP_DAYS.
+     * The caller sets a copy aside for it.
+     * @param isbn The title
+     * @param today The current date
+     * @return The hold now READY, or null if no valid hold is waiting
+     */
+    public Hold allocate(String isbn, LocalDate today) {
+        Queue q = queues.get(isbn);
+        if (q == null) return null;
+        synchronized (q) {
+            Hold hold;
+            while ((hold = q.waiting.poll()) != null) {
+                if (hold.getStatus() != HoldStatus.WAITING) {
+                    q.dead--;
+                } else if (today.isAfter(hold.getExpiresOn())) {
+                    hold.setStatus(HoldStatus.EXPIRED);
+                    active.remove(key(hold.getBorrowerId(), isbn), hold);
+                } else {
+                    hold.setStatus(HoldStatus.READY);
+                    hold.setReadyUntil(today.plusDays(PICKUP_DAYS));
+                    q.ready.add(hold);
+                    return hold;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Expires the READY holds on a title whose collection date has passed.
+     * The caller releases the copies that were set aside for them.
+     * @param isbn The title
+     * @param today The current date
+     * @return The holds that expired
+     */
+    public List<Hold> expireUncollected(String isbn, LocalDate today) {
+        Queue q = queues.get(isbn);
+        if (q == null) return Collections.emptyList();
+        synchronized (q) {
+            List<Hold> expired = null;
+            for (Iterator<Hold> it = q.ready.iterator(); it.hasNext(); ) {
+                Hold hold = it.next();
+                if (!today.isAfter(hold.getReadyUntil())) continue;
+                it.remove();
+                hold.setStatus(HoldStatus.EXPIRED);
+                active.remove(key(hold.getBorrowerId(), isbn), hold);
+                if (expired == null) expired = new ArrayList<>();
+                expired.add(hold);
+            }
+            return expired == null ? Collections.emptyList() : expired;
+        }
+    }
+
+    /**
+     * Puts a READY hold back at its place in the queue, e.g. when its copy could not be set aside.
+     * @param hold A READY hold
+     */
+    public void requeue(Hold hold) {
+        Queue q = queues.get(hold.getBookIsbn());
+        if (q == null) return;
+        synchronized (q) {
+            if (hold.getStatus() != HoldStatus.READY || !q.ready.remove(hold)) return;
+            hold.setStatus(HoldStatus.WAITING);
+            hold.setReadyUntil(null);
+            q.waiting.add(hold);
+        }
+    }
+
+    private void compactIfNeeded(Queue q) {
+        if (q.dead >= COMPACT_THRESHOLD && q.dead > q.waiting.size() - q.dead) {
+            q.waiting.removeIf(h -> h.getStatus() != HoldStatus.WAITING);
+            q.dead = 0;
+        }
+    }
+
+    // --- Queries ---
+
+    /**
+     * @param isbn The title
+     * @return true if the title has holds waiting or ready (some may have expired unnoticed)
+     */
+    public boolean hasHolds(String isbn) {
+        Queue q = queues.get(isbn);
+        if (q == null) return false;
+        synchronized (q) {
+            return q.waiting.size() > q.dead || !q.ready.isEmpty();
+        }
+    }
+
+    /**
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The borrower's waiting or ready hold on the title, or null
+     */
+    public Hold getHold(String isbn, String borrowerId) {
+        return active.get(key(borrowerId, isbn));
+    }
+
+    /**
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The borrower's hold if a copy is set aside for it, else null
+     */
+    public Hold getReadyHold(String isbn, String borrowerId) {
+        Hold hold = active.get(key(borrowerId, isbn));
+        return hold != null && hold.getStatus() == HoldStatus.READY ? hold : null;
+    }
+
+    /**
+     * Returns a borrower's place in the queue of a title, counting from 1. O(n) in the queue length.
+     * @param isbn The title
+     * @param borrowerId The borrower
+     * @return The place, 0 if a copy is ready for them, or -1 if they have no hold on the title
+     */
+    public int position(String isbn, String borrowerId) {
+        Queue q = queues.get(isbn);
+        if (q == null) return -1;
+        synchronized (q) {
+            Hold hold = active.get(key(borrowerId, isbn));
+            if (hold == null) return -1;
+            if (hold.getStatus() == HoldStatus.READY) return 0;
+            int ahead = 0;
+            for (Hold h : q.waiting) {
+                if (h.getStatus() == HoldStatus.WAITING && ORDER.compare(h, hold) < 0) ahead++;
+            }
+            return ahead + 1;
+        }
+    }
+
+    /**
+     * @param isbn The title
+     * @return The ready holds, then the waiting holds in the order they will be served
+     */
+    public List<Hold> queueOf(String isbn) {
+        Queue q = queues.get(isbn);
+        if (q == null) return new ArrayList<>();
+        List<Hold> waiting = new ArrayList<>();
+        List<Hold> result;
+        synchronized (q) {
+            for (Hold h : q.waiting) if (h.getStatus() == HoldStatus.WAITING) waiting.add(h);
+            result = new ArrayList<>(q.ready);
+        }
+        waiting.sort(ORDER);
+        result.addAll(waiting);
+        return result;
+    }
+
+    /**
+     * @param borrowerId The borrower
+     * @return The borrower's waiting and ready holds, oldest first
+     */
+    public List<Hold> holdsOf(String borrowerId) {
+        List<Hold> result = new ArrayList<>();
+        for (Hold h : active.values()) if (h.getBorrowerId().equals(borrowerId)) result.add(h);
+        result.sort(Comparator.comparingInt(Hold::getId));
+        return result;
+    }
+
+    /**
+     * @return Every READY hold
+     */
+    public List<Hold> getReadyHolds() {
+        List<Hold> result = new ArrayList<>();
+        for (Queue q : queues.values()) {
+            synchronized (q) {
+                result.addAll(q.ready);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of waiting and ready holds
+     */
+    public int size() {
+        return active.size();
+    }
+
+    private static String key(String borrowerId, String isbn) {
+        return borrowerId + '|' + isbn;
+    }
+
+    // --- File Persistence ---
+
+    /**
+     * Saves the waiting and ready holds, one line each:
+     * id|isbn|borrowerId|priority|status|placedOn|expiresOn|readyUntil
+     * @param filename The file to write to
+     * @throws Exception if file writing fails
+     */
+    public void saveToFile(String filename) throws Exception {
+        List<Hold> holds = new ArrayList<>();
+        for (Queue q : queues.values()) {
+            synchronized (q) {
+                for (Hold h : q.waiting) if (h.getStatus() == HoldStatus.WAITING) holds.add(h);
+                holds.addAll(q.ready);
+            }
+        }
+        holds.sort(Comparator.comparingInt(Hold::getId));
+        List<String> lines = new ArrayList<>(holds.size());
+        for (Hold h : holds) {
+            lines.add(h.getId() + "|" + h.getBookIsbn() + "|" + h.getBorrowerId() + "|" + h.getPriority()
+                + "|" + h.getStatus() + "|" + h.getPlacedOn() + "|" + h.getExpiresOn()
+                + "|" + (h.getReadyUntil() == null ? "" : h.getReadyUntil()));
+        }
+        FileManager.writeLines(filename, lines);
+    }
+
+    /**
+     * Loads holds, replacing all current ones. Malformed lines are skipped.
+     * Copies for READY holds are set aside by CirculationService.restoreHoldings.
+     * @param filename The file to read from
+     * @throws Exception if file reading fails
+     */
+    public void loadFromFile(String filename) throws Exception {
+        List<String> lines = FileManager.readLines(filename);
+        queues.clear();
+        active.clear();
+        int maxId = 0;
+        for (String line : lines) {
+            String[] parts = line.split("\\|", -1);
+            if (parts.length != 8) continue;
+            Hold hold;
+            HoldStatus status;
+            try {
+                hold = new Hold(Integer.parseInt(parts[0]), parts[1], parts[2], Hold.Priority.valueOf(parts[3]),
+                    LocalDate.parse(parts[5]), LocalDate.parse(parts[6]));
+                status = HoldStatus.valueOf(parts[4]);
+                if (status == HoldStatus.READY) hold.setReadyUntil(LocalDate.parse(parts[7]));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (!status.isActive() || active.containsKey(key(hold.getBorrowerId(), hold.getBookIsbn()))) continue;
+            Queue q = queues.computeIfAbsent(hold.getBookIsbn(), k -> new Queue());
+            hold.setStatus(status);
+            if (status == HoldStatus.READY) q.ready.add(hold);
+            else q.waiting.add(hold);
+            active.put(key(hold.getBorrowerId(), hold.getBookIsbn()), hold);
+            maxId = Math.max(maxId, hold.getId());
+        }
+        nextId.set(maxId + 1);
+    }
+}
@@ -0,0 +1,126 @@
+package library.data;
+
+import library.model.Book;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * SortedBookViews keeps the catalogue in balanced search trees ordered by title, year and ISBN.
+ * The trees are updated on every add/remove, so a sorted listing never re-sorts the catalogue
+ * and a range query (e.g. years 1990-2000) costs O(log n + k).
+ * Titles are ordered by a collation key, so case and accents sort the way readers expect.
+ * The trees are concurrent skip lists; callers serialize changes to the same ISBN.
+ */
+public class SortedBookViews {
+    // Collator used to build title sort keys (case-insensitive, accent-aware)
+    private final Collator collator;
+    // Title sort key -> book
+    private final ConcurrentSkipListMap<TitleKey, Book> byTitle = new ConcurrentSkipListMap<>();
+    // Year -> (title sort key -> book); empty years are kept so concurrent adds are never lost
+    private final ConcurrentSkipListMap<Integer, ConcurrentSkipListMap<TitleKey, Book>> byYear = new ConcurrentSkipListMap<>();
+    // ISBN -> book
+    private final ConcurrentSkipListMap<String, Book> byIsbn = new ConcurrentSkipListMap<>();
+    // ISBN -> title key the book was filed under (needed to remove it again)
+    private final Map<String, TitleKey> titleKeys = new ConcurrentHashMap<>();
+
+    public SortedBookViews() {
+        collator = Collator.getInstance(Locale.ENGLISH);
+        collator.setStrength(Collator.SECONDARY);
+    }
+
+    /**
+     * Sort key for a title: its collation key, with the ISBN as a tie-breaker
+     * so books with identical titles are kept apart.
+     */
+    private static final class TitleKey implements Comparable<TitleKey> {
+        private final CollationKey collationKey;
+        private final String isbn;
+
+        private TitleKey(CollationKey collationKey, String isbn) {
+            this.collationKey = collationKey;
+            this.isbn = isbn;
+        }
+
+        @Override
+        public int compareTo(TitleKey other) {
+            int cmp = collationKey.compareTo(other.collationKey);
+            return cmp != 0 ? cmp : isbn.compareTo(other.isbn);
+        }
+    }
+
+    /**
+     * Files a book in every view, replacing any book with the same ISBN.
+     * @param book The book to add
+     */
+    public void add(Book book) {
+        remove(book.getIsbn());
+        CollationKey collationKey;
+        synchronized (collator) { // Collator instances are not thread-safe
+            collationKey = collator.getCollationKey(book.getTitle());
+        }
+        TitleKey key = new TitleKey(collationKey, book.getIsbn());
+        titleKeys.put(book.getIsbn(), key);
+        byTitle.put(key, book);
+        byYear.computeIfAbsent(book.getYear(), y -> new ConcurrentSkipListMap<>()).put(key, book);
+        byIsbn.put(book.getIsbn(), book);
+    }
+
+    /**
+     * Removes the book with the given ISBN from every view.
+     * @param isbn The ISBN to remove
+     */
+    public void remove(String isbn) {
+        Book book = byIsbn.remove(isbn);
+        if (book == null) return;
+        TitleKey key = titleKeys.remove(isbn);
+        byTitle.remove(key);
+        ConcurrentSkipListMap<TitleKey, Book> sameYear = byYear.get(book.getYear());
+        if (sameYear != null) sameYear.remove(key);
+    }
+
+    public void clear() {
+        byTitle.clear();
+        byYear.clear();
+        byIsbn.clear();
+        titleKeys.clear();
+    }
+
+    /**
+     * @return All books ordered by title
+     */
+    public List<Book> byTitle() {
+        return new ArrayList<>(byTitle.values());
+    }
+
+    /**
+     * @return All books ordered by year, then title
+     */
+    public List<Book> byYear() {
+        return yearRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return All books ordered by ISBN
+     */
+    public List<Book> byIsbn() {
+        return new ArrayList<>(byIsbn.values());
+    }
+
+    /**
+     * Returns the books published in a range of years, ordered by year then title.
+     * @param fromYear First year (inclusive)
+     * @param toYear Last year (inclusive)
+     * @return Books in the range
+     */
+    public List<Book> yearRange(int fromYear, int toYear) {
+        List<Book> result = new ArrayList<>();
+        if (fromYear > toYear) return result;
+        for (ConcurrentSkipListMap<TitleKey, Book> sameYear : byYear.subMap(fromYear, true, toYear, true).values()) {
+            result.addAll(sameYear.values());
+        }
+        return result;
+    }
+}
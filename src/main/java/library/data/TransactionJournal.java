@@ -0,0 +1,233 @@
+package library.data;
+
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import library.util.FileManager;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * TransactionJournal is an append-only write-ahead log for the LendingTracker.
+ * Every new loan and every status change is appended as a single pipe-delimited record,
+ * so committing a change costs O(1) disk I/O instead of rewriting the whole transactions file.
+ * Records are buffered and forced to disk in batches (group commit).
+ * A write that fails marks the journal as failed: later appends are refused until the next
+ * snapshot resets it, so the file never holds records after a torn one.
+ */
+public class TransactionJournal {
+    /**
+     * Thrown on replay when the journal refers to rows the snapshot does not have (or skips some),
+     * i.e. the snapshot and the journal do not belong together.
+     */
+    public static class OutOfStepException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public OutOfStepException(String message) {
+            super(message);
+        }
+    }
+
+    // Record type for a newly recorded transaction
+    static final String BORROW_RECORD = "B";
+    // Record type for a status/return-date change of an existing transaction
+    static final String UPDATE_RECORD = "U";
+    // Number of buffered records after which the journal is forced to disk
+    private static final int SYNC_BATCH = 64;
+
+    private final String filename;
+    private FileOutputStream out;
+    private Writer writer;
+    // Records appended since the last sync
+    private int pendingRecords;
+    // Records written since the last compaction (used to decide when to compact)
+    private int recordCount;
+    // Set when a write or sync fails; cleared by reset()
+    private boolean failed;
+
+    /**
+     * Opens (or creates) a journal file for appending. A torn last record left by a crash
+     * (anything after the last line break) is cut off first, so new records start on a line
+     * of their own.
+     * @param filename The journal file
+     * @throws IOException if the file cannot be opened or repaired
+     */
+    public TransactionJournal(String filename) throws IOException {
+        this.filename = filename;
+        truncateTornTail();
+        open(true);
+        this.recordCount = readRecords().size();
+    }
+
+    private void truncateTornTail() throws IOException {
+        File file = new File(filename);
+        if (!file.exists()) return;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long end = raf.length();
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') break;
+                end--;
+            }
+            if (end < raf.length()) {
+                raf.setLength(end);
+                raf.getChannel().force(false);
+            }
+        }
+    }
+
+    private void open(boolean append) throws IOException {
+        out = new FileOutputStream(filename, append);
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends a record for a newly recorded transaction.
+     * Format: B|id|isbn|borrowerId|borrowDate|returnDate|status
+     * @param t The transaction (its id must already be assigned)
+     * @throws IOException if writing fails
+     */
+    public void appendBorrow(Transaction t) throws IOException {
+        appendBorrow(t.getId(), t);
+    }
+
+    /**
+     * Appends a record for a transaction that is about to be stored as the given row.
+     * @param id The row the transaction will get
+     * @param t The transaction
+     * @throws IOException if writing fails
+     */
+    public void appendBorrow(int id, Transaction t) throws IOException {
+        append(String.join("|",
+            BORROW_RECORD,
+            String.valueOf(id),
+            t.getBookIsbn(),
+            t.getBorrowerId(),
+            t.getBorrowDate().toString(),
+            t.getReturnDate() == null ? "" : t.getReturnDate().toString(),
+            t.getStatus().name()
+        ));
+    }
+
+    /**
+     * Appends a record for a status or return-date change of an existing transaction.
+     * Format: U|id|returnDate|status|fineAccruedThrough
+     * @param t The updated transaction
+     * @throws IOException if writing fails
+     */
+    public void appendUpdate(Transaction t) throws IOException {
+        appendUpdate(t.getId(), t.getReturnDate(), t.getStatus(), t.getFineAccruedThrough());
+    }
+
+    /**
+     * Appends a record for the state a transaction is about to be given.
+     * @param id The transaction id
+     * @param returnDate Its return date (may be null)
+     * @param status Its status
+     * @param fineAccruedThrough Date fines are charged up to (may be null)
+     * @throws IOException if writing fails
+     */
+    public void appendUpdate(int id, LocalDate returnDate, TransactionStatus status, LocalDate fineAccruedThrough) throws IOException {
+        append(String.join("|",
+            UPDATE_RECORD,
+            String.valueOf(id),
+            returnDate == null ? "" : returnDate.toString(),
+            status.name(),
+            fineAccruedThrough == null ? "" : fineAccruedThrough.toString()
+        ));
+    }
+
+    /**
+     * Writes one record. Syncing is left to syncIfDue(), so a record that was written is never
+     * reported as failed.
+     */
+    private void append(String record) throws IOException {
+        if (failed) throw new IOException("Journal is unusable after a failed write; a snapshot must be saved first");
+        try {
+            writer.write(record + System.lineSeparator());
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+        recordCount++;
+        pendingRecords++;
+    }
+
+    /**
+     * Forces the journal to disk once a batch of records is pending.
+     * @throws IOException if flushing fails
+     */
+    public void syncIfDue() throws IOException {
+        if (pendingRecords >= SYNC_BATCH) sync();
+    }
+
+    /**
+     * Flushes buffered records and forces them to disk.
+     * @throws IOException if flushing fails
+     */
+    public void sync() throws IOException {
+        try {
+            writer.flush();
+            if (pendingRecords > 0) {
+                FileChannel channel = out.getChannel();
+                channel.force(false);
+                pendingRecords = 0;
+            }
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * @return true after a write or sync failed, until the next reset()
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Reads all complete records currently in the journal file.
+     * @return List of raw records, oldest first
+     * @throws IOException if reading fails
+     */
+    public List<String> readRecords() throws IOException {
+        writer.flush();
+        return FileManager.readLines(filename);
+    }
+
+    /**
+     * Truncates the journal after its contents have been compacted into a snapshot.
+     * @throws IOException if the file cannot be truncated
+     */
+    public void reset() throws IOException {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // A failed journal may not flush; its records are all in the snapshot now
+        }
+        open(false);
+        pendingRecords = 0;
+        recordCount = 0;
+        failed = false;
+    }
+
+    /**
+     * Returns the number of records written since the last compaction.
+     * @return Record count
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Syncs and closes the journal file.
+     * @throws IOException if closing fails
+     */
+    public void close() throws IOException {
+        sync();
+        writer.close();
+    }
+}
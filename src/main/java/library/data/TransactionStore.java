@@ -0,0 +1,250 @@
+package library.data;
+
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TransactionStore keeps the lending history in parallel primitive arrays (one column per field)
+ * instead of one object per transaction. ISBNs and borrower IDs are interned into a shared key
+ * table and stored as int references, dates as epoch days and the status as a byte, so a row
+ * costs about 21 bytes and a scan over a column is a plain array loop.
+ * Rows are addressed by their position in the history; get(row) returns a read-only Transaction
+ * view of the columns, for callers that work with Transaction objects. Rows are changed only
+ * through the column setters, which LendingTracker calls after journaling the change.
+ * Not thread-safe; LendingTracker serializes access. The one exception is keyId, which
+ * may be called without the lock: the key-to-id map is concurrent and ids never change
+ * until clear().
+ */
+public class TransactionStore {
+    // Epoch-day value used for a missing date
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    // Statuses by ordinal; the status column stores the ordinal
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Interned ISBNs and borrower IDs: key -> id and id -> key
+    private final Map<String, Integer> keyIds = new ConcurrentHashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    // Columns, one entry per row
+    private int[] isbnRefs = new int[INITIAL_CAPACITY];
+    private int[] borrowerRefs = new int[INITIAL_CAPACITY];
+    private int[] borrowDays = new int[INITIAL_CAPACITY];
+    private int[] returnDays = new int[INITIAL_CAPACITY];
+    private int[] fineDays = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int size;
+    // Read-only list view over all rows
+    private final List<Transaction> view = new RowList();
+
+    // --- Keys ---
+
+    /**
+     * Returns the id of a key (ISBN or borrower ID), adding it to the key table if needed.
+     * @param key The key to intern
+     * @return Its id
+     */
+    public int intern(String key) {
+        Integer id = keyIds.putIfAbsent(key, keys.size());
+        if (id != null) return id;
+        keys.add(key);
+        return keys.size() - 1;
+    }
+
+    /**
+     * Returns the id of a key without adding it.
+     * @param key The key to look up
+     * @return Its id, or -1 if the key has never been stored
+     */
+    public int keyId(String key) {
+        Integer id = keyIds.get(key);
+        return id == null ? -1 : id;
+    }
+
+    public String key(int id) { return keys.get(id); }
+    public int keyCount() { return keys.size(); }
+
+    // --- Rows ---
+
+    /**
+     * Appends a row.
+     * @return The new row number
+     */
+    public int add(int isbnRef, int borrowerRef, int borrowDay, int returnDay, TransactionStatus status, int fineDay) {
+        if (status == null) throw new IllegalArgumentException("Transaction status is required");
+        if (size == statuses.length) grow();
+        isbnRefs[size] = isbnRef;
+        borrowerRefs[size] = borrowerRef;
+        borrowDays[size] = borrowDay;
+        returnDays[size] = returnDay;
+        statuses[size] = (byte) status.ordinal();
+        fineDays[size] = fineDay;
+        return size++;
+    }
+
+    /**
+     * Appends a copy of a transaction.
+     * @param t The transaction to copy
+     * @return The new row number
+     * @throws IllegalArgumentException if the status is missing
+     */
+    public int add(Transaction t) {
+        if (t.getStatus() == null) throw new IllegalArgumentException("Transaction status is required");
+        return add(intern(t.getBookIsbn()), intern(t.getBorrowerId()), toDay(t.getBorrowDate()),
+            toDay(t.getReturnDate()), t.getStatus(), toDay(t.getFineAccruedThrough()));
+    }
+
+    private void grow() {
+        int capacity = statuses.length + (statuses.length >> 1);
+        isbnRefs = Arrays.copyOf(isbnRefs, capacity);
+        borrowerRefs = Arrays.copyOf(borrowerRefs, capacity);
+        borrowDays = Arrays.copyOf(borrowDays, capacity);
+        returnDays = Arrays.copyOf(returnDays, capacity);
+        fineDays = Arrays.copyOf(fineDays, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+    }
+
+    public int size() { return size; }
+
+    /**
+     * Removes all rows and keys.
+     */
+    public void clear() {
+        keyIds.clear();
+        keys.clear();
+        size = 0;
+    }
+
+    public int isbnRef(int row) { return isbnRefs[checkRow(row)]; }
+    public int borrowerRef(int row) { return borrowerRefs[checkRow(row)]; }
+    public int borrowDay(int row) { return borrowDays[checkRow(row)]; }
+    public int returnDay(int row) { return returnDays[checkRow(row)]; }
+    public int fineAccruedDay(int row) { return fineDays[checkRow(row)]; }
+    public TransactionStatus status(int row) { return STATUSES[statuses[checkRow(row)]]; }
+
+    public void setReturnDay(int row, int day) { returnDays[checkRow(row)] = day; }
+    public void setFineAccruedDay(int row, int day) { fineDays[checkRow(row)] = day; }
+
+    /**
+     * Moves a row to a new state.
+     * @throws IllegalStateException if the transition is not allowed
+     */
+    public void setStatus(int row, TransactionStatus status) {
+        TransactionStatus current = status(row);
+        if (status == null || !current.canTransitionTo(status)) {
+            throw new IllegalStateException("Illegal status change " + current + " -> " + status);
+        }
+        statuses[row] = (byte) status.ordinal();
+    }
+
+    /**
+     * Overwrites the state of a row without checking the transition. Only for restoring
+     * logged state (journal replay), where the last record wins.
+     */
+    public void restoreStatus(int row, TransactionStatus status) {
+        statuses[checkRow(row)] = (byte) status.ordinal();
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+        return row;
+    }
+
+    /**
+     * Returns a Transaction view of a row. The view's setters throw UnsupportedOperationException.
+     * @param row The row number
+     * @return View of the row
+     */
+    public Transaction get(int row) {
+        return new Row(checkRow(row));
+    }
+
+    /**
+     * Returns a read-only list of views over all rows, in history order.
+     */
+    public List<Transaction> asList() {
+        return view;
+    }
+
+    /**
+     * Returns the approximate heap bytes used by the columns (excluding the key table).
+     */
+    public long columnBytes() {
+        return (long) statuses.length * (5 * Integer.BYTES + 1);
+    }
+
+    // --- Conversions ---
+
+    public static int toDay(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    public static LocalDate toDate(int day) {
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Returns the status stored under an ordinal.
+     * @return The status, or null if the ordinal is out of range
+     */
+    public static TransactionStatus statusOf(int ordinal) {
+        return ordinal >= 0 && ordinal < STATUSES.length ? STATUSES[ordinal] : null;
+    }
+
+    /**
+     * Transaction backed by a row of the store.
+     */
+    private final class Row extends Transaction {
+        private final int row;
+
+        Row(int row) {
+            this.row = row;
+        }
+
+        @Override public String getBookIsbn() { return keys.get(isbnRefs[row]); }
+        @Override public void setBookIsbn(String bookIsbn) { throw readOnly(); }
+        @Override public String getBorrowerId() { return keys.get(borrowerRefs[row]); }
+        @Override public void setBorrowerId(String borrowerId) { throw readOnly(); }
+        @Override public LocalDate getBorrowDate() { return toDate(borrowDays[row]); }
+        @Override public void setBorrowDate(LocalDate borrowDate) { throw readOnly(); }
+        @Override public LocalDate getReturnDate() { return toDate(returnDays[row]); }
+        @Override public void setReturnDate(LocalDate returnDate) { throw readOnly(); }
+        @Override public TransactionStatus getStatus() { return status(row); }
+        @Override public void setStatus(TransactionStatus status) { throw readOnly(); }
+        @Override public LocalDate getFineAccruedThrough() { return toDate(fineDays[row]); }
+        @Override public void setFineAccruedThrough(LocalDate date) { throw readOnly(); }
+        @Override public int getId() { return row; }
+        @Override public void setId(int id) { throw new UnsupportedOperationException("Row views have a fixed id"); }
+
+        private TransactionStore store() { return TransactionStore.this; }
+
+        // Changes skipping LendingTracker would miss the journal and leave its indexes stale
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Row views are read-only; change loans through LendingTracker");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Row && ((Row) o).row == row && ((Row) o).store() == TransactionStore.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return row;
+        }
+    }
+
+    private final class RowList extends AbstractList<Transaction> implements RandomAccess {
+        @Override
+        public Transaction get(int index) {
+            return TransactionStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
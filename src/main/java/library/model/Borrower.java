@@ -1,21 +1,21 @@
 package library.model;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Borrower {
     private String name;
     private String idNumber;
     private String contactInfo;
     private double finesOwed;
-    private List<String> borrowedBooks; // List of borrowed book ISBNs
+    private List<String> borrowedBooks; // List of borrowed book ISBNs (copy-on-write, so saving can read it while loans change)
 
     public Borrower(String name, String idNumber, String contactInfo) {
         this.name = name;
         this.idNumber = idNumber;
         this.contactInfo = contactInfo;
         this.finesOwed = 0.0;
-        this.borrowedBooks = new ArrayList<>();
+        this.borrowedBooks = new CopyOnWriteArrayList<>();
     }
 
     public String getName() { return name; }
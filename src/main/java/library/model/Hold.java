@@ -0,0 +1,55 @@
+package library.model;
+
+import java.time.LocalDate;
+
+/**
+ * A borrower's request for the next available copy of a title.
+ */
+public class Hold {
+    /**
+     * Priority class of a hold. Holds of a higher class are served first; within a class,
+     * in the order they were placed.
+     */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private final int id; // Increases in the order holds are placed
+    private final String bookIsbn;
+    private final String borrowerId;
+    private final Priority priority;
+    private final LocalDate placedOn;
+    private final LocalDate expiresOn; // Last day the hold may still be served
+    private volatile HoldStatus status;
+    private volatile LocalDate readyUntil; // Last day to collect the copy set aside, while READY
+
+    public Hold(int id, String bookIsbn, String borrowerId, Priority priority, LocalDate placedOn, LocalDate expiresOn) {
+        this.id = id;
+        this.bookIsbn = bookIsbn;
+        this.borrowerId = borrowerId;
+        this.priority = priority;
+        this.placedOn = placedOn;
+        this.expiresOn = expiresOn;
+        this.status = HoldStatus.WAITING;
+    }
+
+    public int getId() { return id; }
+    public String getBookIsbn() { return bookIsbn; }
+    public String getBorrowerId() { return borrowerId; }
+    public Priority getPriority() { return priority; }
+    public LocalDate getPlacedOn() { return placedOn; }
+    public LocalDate getExpiresOn() { return expiresOn; }
+    public HoldStatus getStatus() { return status; }
+    public void setStatus(HoldStatus status) { this.status = status; }
+    public LocalDate getReadyUntil() { return readyUntil; }
+    public void setReadyUntil(LocalDate readyUntil) { this.readyUntil = readyUntil; }
+
+    @Override
+    public String toString() {
+        String s = String.format("Hold #%d: Book ISBN=%s, Borrower ID=%s, Priority=%s, Placed=%s, Expires=%s, Status=%s",
+                id, bookIsbn, borrowerId, priority, placedOn, expiresOn, status);
+        return status == HoldStatus.READY ? s + ", Collect by=" + readyUntil : s;
+    }
+}
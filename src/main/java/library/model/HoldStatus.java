@@ -0,0 +1,21 @@
+package library.model;
+
+/**
+ * Lifecycle states of a hold. A hold waits in its title's queue until a copy is set aside
+ * for it (READY); it ends FULFILLED when the borrower collects the copy, or CANCELLED or
+ * EXPIRED if they do not.
+ */
+public enum HoldStatus {
+    WAITING,
+    READY,
+    FULFILLED,
+    CANCELLED,
+    EXPIRED;
+
+    /**
+     * @return true for the states of a hold that is still in effect
+     */
+    public boolean isActive() {
+        return this == WAITING || this == READY;
+    }
+}
@@ -7,9 +7,17 @@ public class Transaction {
     private String borrowerId;
     private LocalDate borrowDate;
     private LocalDate returnDate;
-    private String status; // e.g., "BORROWED", "RETURNED", "OVERDUE"
+    private TransactionStatus status;
+    private LocalDate fineAccruedThrough; // Date up to which overdue fines have been charged
+    private int id = -1; // Position in the lending history, assigned by LendingTracker
 
-    public Transaction(String bookIsbn, String borrowerId, LocalDate borrowDate, LocalDate returnDate, String status) {
+    /**
+     * For subclasses that keep the fields elsewhere (e.g. a row view of a columnar store).
+     */
+    protected Transaction() {
+    }
+
+    public Transaction(String bookIsbn, String borrowerId, LocalDate borrowDate, LocalDate returnDate, TransactionStatus status) {
         this.bookIsbn = bookIsbn;
         this.borrowerId = borrowerId;
         this.borrowDate = borrowDate;
@@ -25,12 +33,30 @@ public class Transaction {
     public void setBorrowDate(LocalDate borrowDate) { this.borrowDate = borrowDate; }
     public LocalDate getReturnDate() { return returnDate; }
     public void setReturnDate(LocalDate returnDate) { this.returnDate = returnDate; }
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public TransactionStatus getStatus() { return status; }
+
+    /**
+     * Moves the transaction to a new state.
+     * @throws IllegalStateException if the transition is not allowed (e.g. RETURNED to OVERDUE)
+     */
+    public void setStatus(TransactionStatus status) {
+        checkTransition(this.status, status);
+        this.status = status;
+    }
+    public LocalDate getFineAccruedThrough() { return fineAccruedThrough; }
+    public void setFineAccruedThrough(LocalDate fineAccruedThrough) { this.fineAccruedThrough = fineAccruedThrough; }
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    protected static void checkTransition(TransactionStatus from, TransactionStatus to) {
+        if (to == null || (from != null && !from.canTransitionTo(to))) {
+            throw new IllegalStateException("Illegal status change " + from + " -> " + to);
+        }
+    }
 
     @Override
     public String toString() {
         return String.format("Transaction: Book ISBN=%s, Borrower ID=%s, Borrowed=%s, Return=%s, Status=%s",
-                bookIsbn, borrowerId, borrowDate, returnDate, status);
+                getBookIsbn(), getBorrowerId(), getBorrowDate(), getReturnDate(), getStatus());
     }
 }
@@ -0,0 +1,33 @@
+package library.model;
+
+/**
+ * Lifecycle states of a loan. A loan starts BORROWED, may become OVERDUE,
+ * and ends RETURNED; no other transitions are allowed.
+ */
+public enum TransactionStatus {
+    BORROWED,
+    RETURNED,
+    OVERDUE;
+
+    /**
+     * Checks whether a loan in this state may move to the given state.
+     * Staying in the same state is allowed, so repeated updates are harmless.
+     * @param next The target state
+     * @return true if the transition is allowed
+     */
+    public boolean canTransitionTo(TransactionStatus next) {
+        if (next == this) return true;
+        switch (this) {
+            case BORROWED: return next == OVERDUE || next == RETURNED;
+            case OVERDUE: return next == RETURNED;
+            default: return false;
+        }
+    }
+
+    /**
+     * @return true for the states of a loan that has not come back yet
+     */
+    public boolean isOpen() {
+        return this != RETURNED;
+    }
+}
@@ -0,0 +1,217 @@
+package library.report;
+
+import library.model.Borrower;
+import library.model.Transaction;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelReportEngine computes full-history reports with fork/join.
+ * The transaction list is split into a few chunks per worker. Monthly trends count each chunk
+ * into a small int array indexed by epoch month and merge them pairwise; borrower activity
+ * counts into one int array per worker thread, indexed by borrower position, which are summed
+ * once at the end, so memory and merge work grow with the number of workers rather than chunks.
+ * No strings are built per transaction. Results are identical to the sequential ReportGenerator versions.
+ * The list must not be modified while a report runs.
+ */
+public class ParallelReportEngine {
+    // Smallest chunk worth forking; larger lists are split into CHUNKS_PER_WORKER chunks per worker
+    private static final int MIN_CHUNK_SIZE = 16384;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an engine that runs on the common fork/join pool.
+     */
+    public ParallelReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an engine that runs on the given pool.
+     * @param pool The pool to run report tasks on
+     */
+    public ParallelReportEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns a map of year-month (YYYY-MM) to number of books borrowed in that month.
+     * Same result as ReportGenerator.borrowingTrends.
+     * @param transactions List of all transactions
+     * @return Map of YYYY-MM string to borrow count
+     */
+    public Map<String, Integer> borrowingTrends(List<Transaction> transactions) {
+        MonthCounts counts = pool.invoke(new TrendTask(transactions, 0, transactions.size(), chunkSize(transactions.size())));
+        Map<String, Integer> trends = new TreeMap<>();
+        for (int i = 0; i < counts.counts.length; i++) {
+            if (counts.counts[i] == 0) continue;
+            int month = counts.base + i;
+            trends.put(String.format("%d-%02d", month / 12, month % 12 + 1), counts.counts[i]);
+        }
+        return trends;
+    }
+
+    /**
+     * Returns the borrowers sorted by borrow count for a given month and year.
+     * Same result as ReportGenerator.mostActiveBorrowers.
+     * @param transactions List of all transactions
+     * @param borrowers List of all borrowers
+     * @param month Month to filter (1-12), or 0 for all months
+     * @param year Year to filter, or 0 for all years
+     * @return List of borrowers sorted by borrow count (most active first)
+     */
+    public List<Borrower> mostActiveBorrowers(List<Transaction> transactions, List<Borrower> borrowers, int month, int year) {
+        return mostActiveBorrowers(transactions, borrowers, month, year, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns at most limit of the most active borrowers for a given month and year.
+     * Same result as ReportGenerator.mostActiveBorrowers with a limit.
+     * @param transactions List of all transactions
+     * @param borrowers List of all borrowers
+     * @param month Month to filter (1-12), or 0 for all months
+     * @param year Year to filter, or 0 for all years
+     * @param limit Maximum number of borrowers to return
+     * @return List of borrowers sorted by borrow count (most active first)
+     */
+    public List<Borrower> mostActiveBorrowers(List<Transaction> transactions, List<Borrower> borrowers, int month, int year, int limit) {
+        // Borrowers are counted by their position in the list; IDs not in the list cannot be reported anyway
+        Map<String, Integer> positions = new HashMap<>();
+        List<Borrower> distinct = new ArrayList<>();
+        for (Borrower b : borrowers) {
+            if (positions.putIfAbsent(b.getIdNumber(), distinct.size()) == null) distinct.add(b);
+        }
+        Map<Thread, int[]> perWorker = new ConcurrentHashMap<>();
+        pool.invoke(new BorrowerTask(transactions, 0, transactions.size(), chunkSize(transactions.size()),
+            positions, month, year, perWorker));
+        int[] counts = new int[distinct.size()];
+        for (int[] workerCounts : perWorker.values()) {
+            for (int i = 0; i < counts.length; i++) counts[i] += workerCounts[i];
+        }
+        Map<String, Integer> borrowCount = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) borrowCount.put(distinct.get(i).getIdNumber(), counts[i]);
+        }
+        return ReportGenerator.topByCount(borrowCount, Integer::intValue, id -> distinct.get(positions.get(id)), limit);
+    }
+
+    private int chunkSize(int size) {
+        int chunks = pool.getParallelism() * CHUNKS_PER_WORKER;
+        return Math.max(MIN_CHUNK_SIZE, (size + chunks - 1) / chunks);
+    }
+
+    /**
+     * Borrow counts for a contiguous range of epoch months (year * 12 + month - 1),
+     * grown on demand as months outside the current range are seen.
+     */
+    private static final class MonthCounts {
+        private int base;
+        private int[] counts = new int[0];
+
+        void add(int month, int n) {
+            if (counts.length == 0) {
+                base = month;
+                counts = new int[1];
+            } else if (month < base) {
+                int[] grown = new int[counts.length + (base - month)];
+                System.arraycopy(counts, 0, grown, base - month, counts.length);
+                counts = grown;
+                base = month;
+            } else if (month >= base + counts.length) {
+                counts = Arrays.copyOf(counts, month - base + 1);
+            }
+            counts[month - base] += n;
+        }
+
+        MonthCounts merge(MonthCounts other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) add(other.base + i, other.counts[i]);
+            }
+            return this;
+        }
+    }
+
+    private static final class TrendTask extends RecursiveTask<MonthCounts> {
+        private static final long serialVersionUID = 1L;
+        private final List<Transaction> transactions;
+        private final int from, to, chunkSize;
+
+        TrendTask(List<Transaction> transactions, int from, int to, int chunkSize) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected MonthCounts compute() {
+            if (to - from <= chunkSize) {
+                MonthCounts counts = new MonthCounts();
+                for (int i = from; i < to; i++) {
+                    LocalDate date = transactions.get(i).getBorrowDate();
+                    counts.add(date.getYear() * 12 + date.getMonthValue() - 1, 1);
+                }
+                return counts;
+            }
+            int mid = (from + to) >>> 1;
+            TrendTask left = new TrendTask(transactions, from, mid, chunkSize);
+            left.fork();
+            MonthCounts right = new TrendTask(transactions, mid, to, chunkSize).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Counts the borrows per borrower position into the array of the thread running each chunk.
+     * A thread runs one chunk at a time, so its array needs no synchronization.
+     */
+    private static final class BorrowerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Transaction> transactions;
+        private final int from, to, chunkSize, month, year;
+        private final Map<String, Integer> positions;
+        // Counter array of each thread that has run a chunk, created on its first match
+        private final Map<Thread, int[]> perWorker;
+
+        BorrowerTask(List<Transaction> transactions, int from, int to, int chunkSize,
+                     Map<String, Integer> positions, int month, int year, Map<Thread, int[]> perWorker) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.positions = positions;
+            this.month = month;
+            this.year = year;
+            this.perWorker = perWorker;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                int[] counts = null;
+                for (int i = from; i < to; i++) {
+                    Transaction t = transactions.get(i);
+                    LocalDate date = t.getBorrowDate();
+                    if (month > 0 && date.getMonthValue() != month) continue;
+                    if (year > 0 && date.getYear() != year) continue;
+                    Integer position = positions.get(t.getBorrowerId());
+                    if (position == null) continue;
+                    if (counts == null) counts = perWorker.computeIfAbsent(Thread.currentThread(), k -> new int[positions.size()]);
+                    counts[position]++;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            BorrowerTask left = new BorrowerTask(transactions, from, mid, chunkSize, positions, month, year, perWorker);
+            left.fork();
+            new BorrowerTask(transactions, mid, to, chunkSize, positions, month, year, perWorker).compute();
+            left.join();
+        }
+    }
+}
@@ -1,15 +1,34 @@
 package library.report;
 
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.LendingTracker;
+import library.data.ReportAggregates;
 import library.model.Book;
 import library.model.Borrower;
 import library.model.Transaction;
+import library.util.Metrics;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
  * ReportGenerator provides static methods for generating library reports.
  * Includes most borrowed books, top fines, and inventory by category.
+ * Trends, category counts and never-borrowed books can also be read directly from ReportAggregates.
  */
 public class ReportGenerator {
+    // Latency timers (no-ops unless metrics are enabled)
+    private static final Metrics.Timer MOST_BORROWED_TIME = Metrics.timer("report.mostBorrowedBooks");
+    private static final Metrics.Timer MOST_BORROWED_AGG_TIME = Metrics.timer("report.mostBorrowedBooks.aggregates");
+    private static final Metrics.Timer TOP_FINES_TIME = Metrics.timer("report.topFines");
+    private static final Metrics.Timer CATEGORY_TIME = Metrics.timer("report.inventoryByCategory");
+    private static final Metrics.Timer MOST_ACTIVE_TIME = Metrics.timer("report.mostActiveBorrowers");
+    private static final Metrics.Timer MOST_ACTIVE_AGG_TIME = Metrics.timer("report.mostActiveBorrowers.aggregates");
+    private static final Metrics.Timer TRENDS_TIME = Metrics.timer("report.borrowingTrends");
+    private static final Metrics.Timer NEVER_BORROWED_TIME = Metrics.timer("report.booksNeverBorrowed");
+
     /**
      * Returns a list of the most borrowed books for a given month and year, sorted by borrow count.
      * @param transactions List of all transactions
@@ -19,24 +38,38 @@ public class ReportGenerator {
      * @return List of most borrowed books (most frequent first)
      */
     public static List<Book> mostBorrowedBooks(List<Transaction> transactions, List<Book> books, int month, int year) {
-        Map<String, Integer> borrowCount = new HashMap<>();
-        for (Transaction t : transactions) {
-            if (t.getBorrowDate().getMonthValue() == month && t.getBorrowDate().getYear() == year) {
-                borrowCount.put(t.getBookIsbn(), borrowCount.getOrDefault(t.getBookIsbn(), 0) + 1);
+        return mostBorrowedBooks(transactions, books, month, year, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns at most limit of the most borrowed books for a given month and year.
+     * Counts are gathered in one pass over the transactions and joined to books by ISBN;
+     * books with equal counts are ordered by ISBN.
+     * @param transactions List of all transactions
+     * @param books List of all books
+     * @param month Month to filter (1-12)
+     * @param year Year to filter
+     * @param limit Maximum number of books to return
+     * @return List of most borrowed books (most frequent first)
+     */
+    public static List<Book> mostBorrowedBooks(List<Transaction> transactions, List<Book> books, int month, int year, int limit) {
+        long start = Metrics.start();
+        try {
+            Map<String, int[]> borrowCount = new HashMap<>();
+            for (Transaction t : transactions) {
+                LocalDate date = t.getBorrowDate();
+                if (date.getMonthValue() == month && date.getYear() == year) {
+                    borrowCount.computeIfAbsent(t.getBookIsbn(), k -> new int[1])[0]++;
+                }
             }
-        }
-        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(borrowCount.entrySet());
-        sorted.sort((a, b) -> b.getValue() - a.getValue());
-        List<Book> result = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : sorted) {
+            Map<String, Book> booksByIsbn = new HashMap<>();
             for (Book b : books) {
-                if (b.getIsbn().equals(entry.getKey())) {
-                    result.add(b);
-                    break;
-                }
+                if (borrowCount.containsKey(b.getIsbn())) booksByIsbn.putIfAbsent(b.getIsbn(), b);
             }
+            return topByCount(borrowCount, c -> c[0], booksByIsbn::get, limit);
+        } finally {
+            MOST_BORROWED_TIME.stop(start);
         }
-        return result;
     }
 
     /**
@@ -45,9 +78,14 @@ public class ReportGenerator {
      * @return List of borrowers with highest fines first
      */
     public static List<Borrower> topFines(List<Borrower> borrowers) {
-        List<Borrower> sorted = new ArrayList<>(borrowers);
-        sorted.sort((a, b) -> Double.compare(b.getFinesOwed(), a.getFinesOwed()));
-        return sorted;
+        long start = Metrics.start();
+        try {
+            List<Borrower> sorted = new ArrayList<>(borrowers);
+            sorted.sort((a, b) -> Double.compare(b.getFinesOwed(), a.getFinesOwed()));
+            return sorted;
+        } finally {
+            TOP_FINES_TIME.stop(start);
+        }
     }
 
     /**
@@ -56,11 +94,16 @@ public class ReportGenerator {
      * @return Map of category name to number of books
      */
     public static Map<String, Integer> inventoryByCategory(List<Book> books) {
-        Map<String, Integer> map = new HashMap<>();
-        for (Book b : books) {
-            map.put(b.getCategory(), map.getOrDefault(b.getCategory(), 0) + 1);
+        long start = Metrics.start();
+        try {
+            Map<String, Integer> map = new HashMap<>();
+            for (Book b : books) {
+                map.put(b.getCategory(), map.getOrDefault(b.getCategory(), 0) + 1);
+            }
+            return map;
+        } finally {
+            CATEGORY_TIME.stop(start);
         }
-        return map;
     }
 
     /**
@@ -72,41 +115,151 @@ public class ReportGenerator {
      * @return List of borrowers sorted by borrow count (most active first)
      */
     public static List<Borrower> mostActiveBorrowers(List<Transaction> transactions, List<Borrower> borrowers, int month, int year) {
-        Map<String, Integer> borrowCount = new HashMap<>();
-        for (Transaction t : transactions) {
-            boolean match = true;
-            if (month > 0 && t.getBorrowDate().getMonthValue() != month) match = false;
-            if (year > 0 && t.getBorrowDate().getYear() != year) match = false;
-            if (match) {
-                borrowCount.put(t.getBorrowerId(), borrowCount.getOrDefault(t.getBorrowerId(), 0) + 1);
+        return mostActiveBorrowers(transactions, borrowers, month, year, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns at most limit of the most active borrowers for a given month and year.
+     * Counts are gathered in one pass over the transactions and joined to borrowers by ID;
+     * borrowers with equal counts are ordered by ID.
+     * @param transactions List of all transactions
+     * @param borrowers List of all borrowers
+     * @param month Month to filter (1-12), or 0 for all months
+     * @param year Year to filter, or 0 for all years
+     * @param limit Maximum number of borrowers to return
+     * @return List of borrowers sorted by borrow count (most active first)
+     */
+    public static List<Borrower> mostActiveBorrowers(List<Transaction> transactions, List<Borrower> borrowers, int month, int year, int limit) {
+        long start = Metrics.start();
+        try {
+            Map<String, int[]> borrowCount = new HashMap<>();
+            for (Transaction t : transactions) {
+                LocalDate date = t.getBorrowDate();
+                if (month > 0 && date.getMonthValue() != month) continue;
+                if (year > 0 && date.getYear() != year) continue;
+                borrowCount.computeIfAbsent(t.getBorrowerId(), k -> new int[1])[0]++;
             }
-        }
-        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(borrowCount.entrySet());
-        sorted.sort((a, b) -> b.getValue() - a.getValue());
-        List<Borrower> result = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : sorted) {
+            Map<String, Borrower> borrowersById = new HashMap<>();
             for (Borrower b : borrowers) {
-                if (b.getIdNumber().equals(entry.getKey())) {
-                    result.add(b);
-                    break;
-                }
+                if (borrowCount.containsKey(b.getIdNumber())) borrowersById.putIfAbsent(b.getIdNumber(), b);
+            }
+            return topByCount(borrowCount, c -> c[0], borrowersById::get, limit);
+        } finally {
+            MOST_ACTIVE_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Returns at most limit of the most active borrowers for a year, or a month of it. Only that
+     * date range is read from the tracker's borrow-date index, and borrowers are joined through
+     * the registry by ID. All-time counts are kept by ReportAggregates instead.
+     * @param tracker The lending tracker
+     * @param registry The borrower registry
+     * @param month Month to filter (1-12), or 0 for the whole year
+     * @param year Year to filter
+     * @param limit Maximum number of borrowers to return
+     * @return List of borrowers sorted by borrow count (most active first)
+     * @throws IllegalArgumentException if the month or year is out of range
+     */
+    public static List<Borrower> mostActiveBorrowers(LendingTracker tracker, BorrowerRegistry registry, int month, int year, int limit) {
+        if (month < 0 || month > 12) throw new IllegalArgumentException("Month must be 1-12, or 0 for the whole year");
+        if (year < 1 || year > 9999) throw new IllegalArgumentException("Year must be 1-9999");
+        long start = Metrics.start();
+        try {
+            List<Transaction> transactions = month > 0 ? tracker.transactionsInMonth(year, month)
+                : tracker.transactionsBetween(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+            Map<String, int[]> borrowCount = new HashMap<>();
+            for (Transaction t : transactions) {
+                borrowCount.computeIfAbsent(t.getBorrowerId(), k -> new int[1])[0]++;
             }
+            return topByCount(borrowCount, c -> c[0], registry::getBorrowerById, limit);
+        } finally {
+            MOST_ACTIVE_TIME.stop(start);
         }
+    }
+
+    /**
+     * Selects the limit highest counts with a bounded min-heap and resolves each key through the lookup.
+     * Keys the lookup cannot resolve are skipped. Ties are broken by key so results are deterministic.
+     */
+    static <V, T> List<T> topByCount(Map<String, V> counts, ToIntFunction<V> count, Function<String, T> lookup, int limit) {
+        Comparator<Map.Entry<String, Integer>> ranking = (a, b) -> {
+            int cmp = Integer.compare(b.getValue(), a.getValue());
+            return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+        };
+        if (limit <= 0) return new ArrayList<>();
+        // Heap head is the weakest entry kept so far; counts are copied so later updates cannot reorder it
+        PriorityQueue<Map.Entry<String, Integer>> heap = new PriorityQueue<>(Math.min(limit, Math.max(1, counts.size())), ranking.reversed());
+        List<T> result = new ArrayList<>();
+        Map<String, T> resolved = new HashMap<>();
+        for (Map.Entry<String, V> entry : counts.entrySet()) {
+            Map.Entry<String, Integer> candidate = new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), count.applyAsInt(entry.getValue()));
+            if (heap.size() >= limit && ranking.compare(candidate, heap.peek()) >= 0) continue;
+            T item = lookup.apply(candidate.getKey());
+            if (item == null) continue;
+            resolved.put(candidate.getKey(), item);
+            if (heap.size() >= limit) resolved.remove(heap.poll().getKey());
+            heap.add(candidate);
+        }
+        List<Map.Entry<String, Integer>> top = new ArrayList<>(heap);
+        top.sort(ranking);
+        for (Map.Entry<String, Integer> entry : top) result.add(resolved.get(entry.getKey()));
         return result;
     }
 
+    /**
+     * Returns at most limit of the most borrowed books for a month, read from the report counters
+     * and joined to the inventory by ISBN. Books no longer in the inventory are skipped.
+     * @param aggregates Report counters kept by the inventory and lending tracker
+     * @param inventory The book inventory
+     * @param month Month (1-12)
+     * @param year Year
+     * @param limit Maximum number of books to return
+     * @return List of most borrowed books (most frequent first)
+     */
+    public static List<Book> mostBorrowedBooks(ReportAggregates aggregates, BookInventory inventory, int month, int year, int limit) {
+        long start = Metrics.start();
+        try {
+            return topByCount(aggregates.borrowsByIsbn(month, year), Integer::intValue, inventory::getBookByIsbn, limit);
+        } finally {
+            MOST_BORROWED_AGG_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Returns at most limit of the most active borrowers of all time, read from the report counters
+     * and joined to the registry by ID.
+     * @param aggregates Report counters kept by the lending tracker
+     * @param registry The borrower registry
+     * @param limit Maximum number of borrowers to return
+     * @return List of borrowers sorted by borrow count (most active first)
+     */
+    public static List<Borrower> mostActiveBorrowers(ReportAggregates aggregates, BorrowerRegistry registry, int limit) {
+        long start = Metrics.start();
+        try {
+            return topByCount(aggregates.borrowsByBorrower(), Integer::intValue, registry::getBorrowerById, limit);
+        } finally {
+            MOST_ACTIVE_AGG_TIME.stop(start);
+        }
+    }
+
     /**
      * Returns a map of year-month (YYYY-MM) to number of books borrowed in that month.
      * @param transactions List of all transactions
      * @return Map of YYYY-MM string to borrow count
      */
     public static Map<String, Integer> borrowingTrends(List<Transaction> transactions) {
-        Map<String, Integer> trends = new TreeMap<>();
-        for (Transaction t : transactions) {
-            String key = t.getBorrowDate().getYear() + "-" + String.format("%02d", t.getBorrowDate().getMonthValue());
-            trends.put(key, trends.getOrDefault(key, 0) + 1);
+        long start = Metrics.start();
+        try {
+            Map<String, Integer> trends = new TreeMap<>();
+            for (Transaction t : transactions) {
+                String key = t.getBorrowDate().getYear() + "-" + String.format("%02d", t.getBorrowDate().getMonthValue());
+                trends.put(key, trends.getOrDefault(key, 0) + 1);
+            }
+            return trends;
+        } finally {
+            TRENDS_TIME.stop(start);
         }
-        return trends;
     }
 
     /**
@@ -116,16 +269,21 @@ public class ReportGenerator {
      * @return List of books never borrowed
      */
     public static List<Book> booksNeverBorrowed(List<Book> books, List<Transaction> transactions) {
-        Set<String> borrowedIsbns = new HashSet<>();
-        for (Transaction t : transactions) {
-            borrowedIsbns.add(t.getBookIsbn());
-        }
-        List<Book> neverBorrowed = new ArrayList<>();
-        for (Book b : books) {
-            if (!borrowedIsbns.contains(b.getIsbn())) {
-                neverBorrowed.add(b);
+        long start = Metrics.start();
+        try {
+            Set<String> borrowedIsbns = new HashSet<>();
+            for (Transaction t : transactions) {
+                borrowedIsbns.add(t.getBookIsbn());
+            }
+            List<Book> neverBorrowed = new ArrayList<>();
+            for (Book b : books) {
+                if (!borrowedIsbns.contains(b.getIsbn())) {
+                    neverBorrowed.add(b);
+                }
             }
+            return neverBorrowed;
+        } finally {
+            NEVER_BORROWED_TIME.stop(start);
         }
-        return neverBorrowed;
     }
 }
@@ -0,0 +1,543 @@
+package library.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.CirculationService;
+import library.data.Holdings;
+import library.data.LendingTracker;
+import library.data.ReportAggregates;
+import library.model.Book;
+import library.model.Borrower;
+import library.model.Hold;
+import library.model.Transaction;
+import library.report.ReportGenerator;
+import library.util.Json;
+import library.util.Metrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LibraryHttpServer exposes the catalogue, borrowers, circulation and reports as a JSON API
+ * on the JDK's built-in HTTP server, for kiosks and the web catalogue.
+ * Each request runs on its own virtual thread when the JVM has them (Java 21+); on older JVMs
+ * a fixed pool of platform threads is used instead. Handlers call straight into the thread-safe
+ * stores and CirculationService, so requests for different books and borrowers run in parallel.
+ *
+ * Endpoints:
+ * <pre>
+ * GET  /health
+ * GET  /books/{isbn}                       one book, with its copies and how many are available
+ * GET  /books?q=words&amp;limit=20             keyword search
+ * GET  /borrowers/{id}                     one borrower
+ * GET  /borrowers/{id}/loans?offset=0&amp;limit=20   loan history, newest first
+ * GET  /books/{isbn}/loans?offset=0&amp;limit=20     loan history of a book, newest first
+ * POST /loans?borrower=ID&amp;isbn=ISBN        borrow (parameters may also be a form body; optional branch)
+ * POST /returns?borrower=ID&amp;isbn=ISBN      return
+ * POST /holds?borrower=ID&amp;isbn=ISBN        place a hold (optional priority HIGH|NORMAL|LOW)
+ * POST /holds/cancel?borrower=ID&amp;isbn=ISBN cancel a hold
+ * GET  /borrowers/{id}/holds               a borrower's holds
+ * GET  /books/{isbn}/holds                 hold queue of a book, in the order it will be served
+ * GET  /reports/most-borrowed?limit=10     this month
+ * GET  /reports/most-active?limit=10       all time, or &amp;year=2024[&amp;month=3]
+ * GET  /reports/top-fines?limit=10
+ * GET  /reports/categories
+ * GET  /reports/trends
+ * GET  /reports/never-borrowed
+ * GET  /metrics[?format=text]
+ * </pre>
+ */
+public class LibraryHttpServer {
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 1000;
+    // Pending connections the listening socket queues up
+    private static final int BACKLOG = 4096;
+    private static final Logger LOG = Logger.getLogger(LibraryHttpServer.class.getName());
+
+    static {
+        // The JDK server writes headers and body separately; without TCP_NODELAY every response
+        // waits ~40ms for the client's delayed ACK. Must be set before the server classes load.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final BookInventory inventory;
+    private final BorrowerRegistry registry;
+    private final LendingTracker tracker;
+    private final CirculationService circulation;
+    private final ReportAggregates aggregates;
+    // Told the name of each store a request changed ("borrowers", "transactions", "holds")
+    private final Consumer<String> onChange;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to a port. Call start() to accept requests.
+     * @param port TCP port (0 picks a free one)
+     * @param inventory The book inventory
+     * @param registry The borrower registry
+     * @param tracker The lending tracker (loan histories)
+     * @param circulation Performs borrows and returns
+     * @param aggregates Report counters
+     * @param onChange Called with the name of each store a request changed, e.g. to schedule a save
+     * @param fallbackThreads Request threads used when virtual threads are not available
+     * @throws IOException if the port cannot be bound
+     */
+    public LibraryHttpServer(int port, BookInventory inventory, BorrowerRegistry registry, LendingTracker tracker,
+                             CirculationService circulation,
+                             ReportAggregates aggregates, Consumer<String> onChange, int fallbackThreads) throws IOException {
+        this.inventory = inventory;
+        this.registry = registry;
+        this.tracker = tracker;
+        this.circulation = circulation;
+        this.aggregates = aggregates;
+        this.onChange = onChange;
+        this.executor = newRequestExecutor(fallbackThreads);
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor if the JVM supports one, else a fixed pool.
+     * Looked up by reflection so the code still compiles for Java 17.
+     * @param fallbackThreads Size of the fallback pool
+     * @return The executor
+     */
+    public static ExecutorService newRequestExecutor(int fallbackThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(fallbackThreads, r -> {
+                Thread t = new Thread(r, "http-request");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * @return true if requests run on virtual threads
+     */
+    public static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the given time for running ones, and shuts down the executor.
+     * @param delaySeconds Seconds to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // --- Routing ---
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            // Split the raw path so an encoded '/' stays inside its segment; IDs are decoded once below
+            String[] path = exchange.getRequestURI().getRawPath().replaceAll("^/+|/+$", "").split("/");
+            Map<String, String> params = params(exchange);
+            String first = path[0];
+            if (first.equals("health") && path.length == 1) {
+                requireGet(method);
+                send(exchange, 200, "{\"status\":\"ok\"}");
+            } else if (first.equals("books")) {
+                requireGet(method);
+                if (path.length == 2) sendBook(exchange, inventory.getBookByIsbn(decodeSegment(path[1])));
+                else if (path.length == 1) searchBooks(exchange, params);
+                else if (path.length == 3 && path[2].equals("loans")) bookHistory(exchange, decodeSegment(path[1]), params);
+                else if (path.length == 3 && path[2].equals("holds")) bookHolds(exchange, decodeSegment(path[1]));
+                else notFound(exchange);
+            } else if (first.equals("borrowers") && (path.length == 2
+                    || (path.length == 3 && (path[2].equals("loans") || path[2].equals("holds"))))) {
+                requireGet(method);
+                Borrower b = registry.getBorrowerById(decodeSegment(path[1]));
+                if (b == null) send(exchange, 404, error("Borrower not found"));
+                else if (path.length == 3 && path[2].equals("holds")) send(exchange, 200, holds(circulation.getReservations().holdsOf(b.getIdNumber())));
+                else if (path.length == 3) borrowerHistory(exchange, b.getIdNumber(), params);
+                else send(exchange, 200, borrower(b));
+            } else if ((first.equals("loans") || first.equals("returns")) && path.length == 1) {
+                if (!method.equals("POST")) throw new MethodNotAllowed();
+                circulate(exchange, first.equals("loans"), params);
+            } else if (first.equals("holds") && (path.length == 1 || (path.length == 2 && path[1].equals("cancel")))) {
+                if (!method.equals("POST")) throw new MethodNotAllowed();
+                hold(exchange, path.length == 1, params);
+            } else if (first.equals("reports") && path.length == 2) {
+                requireGet(method);
+                report(exchange, path[1], params);
+            } else if (first.equals("metrics") && path.length == 1) {
+                requireGet(method);
+                if ("text".equals(params.get("format"))) send(exchange, 200, "text/plain", Metrics.toText());
+                else send(exchange, 200, Metrics.toJson());
+            } else {
+                notFound(exchange);
+            }
+        } catch (MethodNotAllowed e) {
+            send(exchange, 405, error("Method not allowed"));
+        } catch (BadRequest e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (Exception e) {
+            // Details stay in the server log; clients only learn that the request failed
+            LOG.log(Level.SEVERE, "Request failed: " + exchange.getRequestMethod() + " " + exchange.getRequestURI(), e);
+            send(exchange, 500, error("Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static final class MethodNotAllowed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** A malformed or missing request parameter; the only failure reported back as 400 with its message. */
+    private static final class BadRequest extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    private static void requireGet(String method) {
+        if (!method.equals("GET")) throw new MethodNotAllowed();
+    }
+
+    private void notFound(HttpExchange exchange) throws IOException {
+        send(exchange, 404, error("No such endpoint"));
+    }
+
+    // --- Handlers ---
+
+    private void sendBook(HttpExchange exchange, Book b) throws IOException {
+        if (b == null) {
+            send(exchange, 404, error("Book not found"));
+            return;
+        }
+        Holdings holdings = inventory.getHoldings();
+        String json = book(b);
+        send(exchange, 200, json.substring(0, json.length() - 1)
+            + ",\"copies\":" + holdings.copyCount(b.getIsbn())
+            + ",\"available\":" + holdings.availableCount(b.getIsbn())
+            + ",\"branches\":" + counts(holdings.availabilityByBranch(b.getIsbn())) + "}");
+    }
+
+    private void searchBooks(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String query = params.get("q");
+        if (query == null || query.isBlank()) throw new BadRequest("Missing search query 'q'");
+        send(exchange, 200, books(inventory.searchBooks(query, limit(params))));
+    }
+
+    private void borrowerHistory(HttpExchange exchange, String borrowerId, Map<String, String> params) throws IOException {
+        int offset = offset(params);
+        send(exchange, 200, history(tracker.historySizeOfBorrower(borrowerId), offset,
+            tracker.historyOfBorrower(borrowerId, offset, limit(params))));
+    }
+
+    private void bookHistory(HttpExchange exchange, String isbn, Map<String, String> params) throws IOException {
+        if (inventory.getBookByIsbn(isbn) == null && tracker.historySizeOfBook(isbn) == 0) {
+            send(exchange, 404, error("Book not found"));
+            return;
+        }
+        int offset = offset(params);
+        send(exchange, 200, history(tracker.historySizeOfBook(isbn), offset, tracker.historyOfBook(isbn, offset, limit(params))));
+    }
+
+    private void circulate(HttpExchange exchange, boolean borrow, Map<String, String> params) throws IOException {
+        String borrowerId = required(params, "borrower");
+        String isbn = required(params, "isbn");
+        String branch = params.get("branch");
+        if (branch != null && branch.isBlank()) branch = null;
+        CirculationService.Result result = borrow
+            ? circulation.borrowBook(borrowerId, isbn, branch, LocalDate.now())
+            : circulation.returnBook(borrowerId, isbn, LocalDate.now());
+        int status;
+        switch (result) {
+            case SUCCESS: status = 200; break;
+            case BORROWER_NOT_FOUND:
+            case BOOK_NOT_FOUND: status = 404; break;
+            default: status = 409;
+        }
+        if (result == CirculationService.Result.SUCCESS) {
+            onChange.accept("borrowers");
+            onChange.accept("transactions");
+            onChange.accept("holds");
+        }
+        send(exchange, status, "{\"result\":" + Json.quote(result.name())
+            + ",\"borrower\":" + Json.quote(borrowerId) + ",\"isbn\":" + Json.quote(isbn) + "}");
+    }
+
+    private void hold(HttpExchange exchange, boolean place, Map<String, String> params) throws IOException {
+        String borrowerId = required(params, "borrower");
+        String isbn = required(params, "isbn");
+        CirculationService.Result result;
+        if (place) {
+            Hold.Priority priority;
+            try {
+                String value = params.get("priority");
+                priority = value == null || value.isBlank() ? Hold.Priority.NORMAL : Hold.Priority.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequest("Parameter 'priority' must be HIGH, NORMAL or LOW");
+            }
+            result = circulation.placeHold(borrowerId, isbn, priority, LocalDate.now());
+        } else {
+            result = circulation.cancelHold(borrowerId, isbn, LocalDate.now());
+        }
+        int status;
+        switch (result) {
+            case SUCCESS: status = 200; break;
+            case BORROWER_NOT_FOUND:
+            case BOOK_NOT_FOUND:
+            case NOT_HELD: status = 404; break;
+            default: status = 409;
+        }
+        String json = "{\"result\":" + Json.quote(result.name())
+            + ",\"borrower\":" + Json.quote(borrowerId) + ",\"isbn\":" + Json.quote(isbn);
+        if (result == CirculationService.Result.SUCCESS) {
+            onChange.accept("holds");
+            if (place) json += ",\"position\":" + circulation.getReservations().position(isbn, borrowerId);
+        }
+        send(exchange, status, json + "}");
+    }
+
+    private void bookHolds(HttpExchange exchange, String isbn) throws IOException {
+        if (inventory.getBookByIsbn(isbn) == null) {
+            send(exchange, 404, error("Book not found"));
+            return;
+        }
+        send(exchange, 200, holds(circulation.getReservations().queueOf(isbn)));
+    }
+
+    private void report(HttpExchange exchange, String name, Map<String, String> params) throws IOException {
+        LocalDate today = LocalDate.now();
+        switch (name) {
+            case "most-borrowed":
+                send(exchange, 200, books(ReportGenerator.mostBorrowedBooks(
+                    aggregates, inventory, today.getMonthValue(), today.getYear(), limit(params))));
+                break;
+            case "most-active": {
+                // All-time counts come from the report counters, a year or month from the borrow-date index
+                String year = params.get("year");
+                if (year == null && params.containsKey("month")) throw new BadRequest("Parameter 'month' needs a 'year'");
+                List<Borrower> top = year == null
+                    ? ReportGenerator.mostActiveBorrowers(aggregates, registry, limit(params))
+                    : ReportGenerator.mostActiveBorrowers(tracker, registry, intParam(params, "month", 0),
+                        intParam(params, "year", 0), limit(params));
+                send(exchange, 200, borrowers(top));
+                break;
+            }
+            case "top-fines": {
+                List<Borrower> top = ReportGenerator.topFines(registry.listAllBorrowers());
+                send(exchange, 200, borrowers(top.subList(0, Math.min(limit(params), top.size()))));
+                break;
+            }
+            case "categories":
+                send(exchange, 200, counts(new TreeMap<>(aggregates.inventoryByCategory())));
+                break;
+            case "trends":
+                send(exchange, 200, counts(aggregates.borrowingTrends()));
+                break;
+            case "never-borrowed":
+                send(exchange, 200, books(aggregates.booksNeverBorrowed()));
+                break;
+            default:
+                send(exchange, 404, error("No such report"));
+        }
+    }
+
+    // --- Parameters ---
+
+    /**
+     * Collects the query parameters and, for form posts, the body parameters.
+     */
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) return;
+        try {
+            for (String pair : form.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq < 0) params.put(decode(pair), "");
+                else params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest("Malformed parameter encoding");
+        }
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes one raw path segment. Unlike form values a '+' in a path is literal, not a space.
+     */
+    private static String decodeSegment(String s) {
+        return decode(s.replace("+", "%2B"));
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) throw new BadRequest("Missing parameter '" + name + "'");
+        return value.trim();
+    }
+
+    private static int limit(Map<String, String> params) {
+        String value = params.get("limit");
+        if (value == null) return DEFAULT_LIMIT;
+        try {
+            int limit = Integer.parseInt(value.trim());
+            if (limit <= 0) throw new BadRequest("Parameter 'limit' must be positive");
+            return Math.min(limit, MAX_LIMIT);
+        } catch (NumberFormatException e) {
+            throw new BadRequest("Parameter 'limit' must be a number");
+        }
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequest("Parameter '" + name + "' must be a number");
+        }
+    }
+
+    private static int offset(Map<String, String> params) {
+        String value = params.get("offset");
+        if (value == null) return 0;
+        try {
+            int offset = Integer.parseInt(value.trim());
+            if (offset < 0) throw new BadRequest("Parameter 'offset' must not be negative");
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new BadRequest("Parameter 'offset' must be a number");
+        }
+    }
+
+    // --- JSON ---
+
+    private static String book(Book b) {
+        return "{\"isbn\":" + Json.quote(b.getIsbn()) + ",\"title\":" + Json.quote(b.getTitle())
+            + ",\"author\":" + Json.quote(b.getAuthor()) + ",\"category\":" + Json.quote(b.getCategory())
+            + ",\"year\":" + b.getYear() + ",\"publisher\":" + Json.quote(b.getPublisher())
+            + ",\"shelfLocation\":" + Json.quote(b.getShelfLocation()) + "}";
+    }
+
+    private static String books(List<Book> books) {
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (Book b : books) if (b != null) json.add(book(b));
+        return json.toString();
+    }
+
+    private static String borrower(Borrower b) {
+        StringJoiner borrowed = new StringJoiner(",", "[", "]");
+        for (String isbn : b.getBorrowedBooks()) borrowed.add(Json.quote(isbn));
+        return "{\"id\":" + Json.quote(b.getIdNumber()) + ",\"name\":" + Json.quote(b.getName())
+            + ",\"contact\":" + Json.quote(b.getContactInfo())
+            + ",\"finesOwed\":" + String.format(Locale.ROOT, "%.2f", b.getFinesOwed())
+            + ",\"borrowedBooks\":" + borrowed + "}";
+    }
+
+    private static String borrowers(List<Borrower> borrowers) {
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (Borrower b : borrowers) if (b != null) json.add(borrower(b));
+        return json.toString();
+    }
+
+    private static String transaction(Transaction t) {
+        return "{\"id\":" + t.getId() + ",\"isbn\":" + Json.quote(t.getBookIsbn())
+            + ",\"borrower\":" + Json.quote(t.getBorrowerId())
+            + ",\"borrowDate\":" + Json.quote(t.getBorrowDate().toString())
+            + ",\"returnDate\":" + (t.getReturnDate() == null ? "null" : Json.quote(t.getReturnDate().toString()))
+            + ",\"status\":" + Json.quote(t.getStatus().name()) + "}";
+    }
+
+    private static String history(int total, int offset, List<Transaction> loans) {
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (Transaction t : loans) json.add(transaction(t));
+        return "{\"total\":" + total + ",\"offset\":" + offset + ",\"loans\":" + json + "}";
+    }
+
+    private static String holds(List<Hold> holds) {
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (Hold h : holds) {
+            LocalDate readyUntil = h.getReadyUntil();
+            json.add("{\"id\":" + h.getId() + ",\"isbn\":" + Json.quote(h.getBookIsbn())
+                + ",\"borrower\":" + Json.quote(h.getBorrowerId())
+                + ",\"priority\":" + Json.quote(h.getPriority().name())
+                + ",\"status\":" + Json.quote(h.getStatus().name())
+                + ",\"placedOn\":" + Json.quote(h.getPlacedOn().toString())
+                + ",\"expiresOn\":" + Json.quote(h.getExpiresOn().toString())
+                + ",\"readyUntil\":" + (readyUntil == null ? "null" : Json.quote(readyUntil.toString())) + "}");
+        }
+        return json.toString();
+    }
+
+    private static String counts(Map<String, Integer> counts) {
+        StringJoiner json = new StringJoiner(",", "{", "}");
+        for (Map.Entry<String, Integer> e : counts.entrySet()) json.add(Json.quote(e.getKey()) + ":" + e.getValue());
+        return json.toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json", json);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
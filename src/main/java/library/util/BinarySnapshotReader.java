@@ -0,0 +1,129 @@
+package library.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * BinarySnapshotReader reads files written by BinarySnapshotWriter.
+ * The CRC32 trailer and the header are validated when the reader is opened,
+ * so a corrupt or truncated snapshot is rejected before any store is cleared.
+ */
+public class BinarySnapshotReader implements Closeable {
+    private final FileChannel channel;
+    // Read window over the file, refilled in 64 KB blocks
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Opens a snapshot, verifies its checksum and checks its magic number, version and store type.
+     * @param filename The file to read
+     * @param storeType The expected store tag
+     * @throws IOException if the file is missing, corrupt, of another store, or of an unsupported version
+     */
+    public BinarySnapshotReader(String filename, byte storeType) throws IOException {
+        verifyChecksum(filename);
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        buffer.flip();
+        if (readInt() != BinarySnapshotWriter.MAGIC) throw new IOException(filename + " is not a binary snapshot");
+        ensure(Short.BYTES);
+        short version = buffer.getShort();
+        if (version != BinarySnapshotWriter.VERSION) throw new IOException("Unsupported snapshot version " + version);
+        byte type = (byte) readByte();
+        if (type != storeType) throw new IOException(filename + " holds store '" + (char) type + "', expected '" + (char) storeType + "'");
+    }
+
+    /**
+     * Computes the CRC32 of everything before the 8-byte trailer and compares it with the trailer.
+     */
+    private static void verifyChecksum(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long payload = channel.size() - Long.BYTES;
+            if (payload < 0) throw new IOException(filename + " is truncated");
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            long position = 0;
+            while (position < payload) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), payload - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) throw new EOFException(filename);
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+            while (trailer.hasRemaining()) {
+                if (channel.read(trailer, payload + trailer.position()) < 0) throw new EOFException(filename);
+            }
+            trailer.flip();
+            if (trailer.getLong() != crc.getValue()) throw new IOException("Snapshot checksum mismatch in " + filename);
+        }
+    }
+
+    /**
+     * Makes sure at least the given number of bytes are buffered, refilling from the file.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) throw new EOFException("Unexpected end of snapshot");
+        }
+        buffer.flip();
+    }
+
+    public int readInt() throws IOException {
+        ensure(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    public int readByte() throws IOException {
+        ensure(1);
+        return buffer.get() & 0xFF;
+    }
+
+    public double readDouble() throws IOException {
+        ensure(Double.BYTES);
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * @return The string, or null if it was written as null
+     * @throws IOException if reading fails
+     */
+    public String readString() throws IOException {
+        int length = readInt();
+        if (length < 0) return null;
+        if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+        int copied = 0;
+        while (copied < length) {
+            if (!buffer.hasRemaining()) ensure(1);
+            int chunk = Math.min(length - copied, buffer.remaining());
+            buffer.get(scratch, copied, chunk);
+            copied += chunk;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an epoch-day date.
+     * @return The date, or null if none was written
+     * @throws IOException if reading fails
+     */
+    public LocalDate readDate() throws IOException {
+        int epochDay = readInt();
+        return epochDay == BinarySnapshotWriter.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
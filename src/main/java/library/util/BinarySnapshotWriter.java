@@ -0,0 +1,135 @@
+package library.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * BinarySnapshotWriter writes the compact binary snapshot format used by the data stores.
+ * Layout: magic, format version, store type, payload, then a CRC32 of everything before it.
+ * Strings are length-prefixed UTF-8, dates are epoch-day ints.
+ * The snapshot is written to a temporary file and only renamed over the target by commit(),
+ * so a failed or interrupted save leaves the previous snapshot in place.
+ */
+public class BinarySnapshotWriter implements Closeable {
+    // "LIBS" in ASCII
+    public static final int MAGIC = 0x4C494253;
+    public static final short VERSION = 1;
+    // Epoch-day value used for a missing date
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final CRC32 crc = new CRC32();
+    private final FileOutputStream file;
+    private final OutputStream out;
+    private final Path target;
+    private final Path temp;
+    private boolean committed;
+    // Values are encoded into this buffer and written (and checksummed) in 64 KB blocks
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Starts a snapshot and writes its header.
+     * @param filename The file to write
+     * @param storeType One-byte tag identifying the store ('B', 'R' or 'T')
+     * @throws IOException if the file cannot be written
+     */
+    public BinarySnapshotWriter(String filename, byte storeType) throws IOException {
+        target = Paths.get(filename);
+        temp = FileManager.tempFileFor(target);
+        file = new FileOutputStream(temp.toFile());
+        out = new CheckedOutputStream(file, crc);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put(storeType);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    public void writeByte(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    public void writeDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string (length -1 for null).
+     * @param value The string to write
+     * @throws IOException if writing fails
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        if (bytes.length > buffer.capacity()) {
+            flushBuffer();
+            out.write(bytes);
+            return;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes a date as an epoch-day int.
+     * @param date The date, or null
+     * @throws IOException if writing fails
+     */
+    public void writeDate(LocalDate date) throws IOException {
+        writeInt(date == null ? NO_DATE : (int) date.toEpochDay());
+    }
+
+    /**
+     * Appends the checksum trailer, syncs the file and renames it over the target.
+     * @throws IOException if writing fails
+     */
+    public void commit() throws IOException {
+        flushBuffer();
+        long checksum = crc.getValue();
+        buffer.putLong(checksum);
+        flushBuffer();
+        out.flush();
+        file.getFD().sync();
+        out.close();
+        FileManager.replace(temp, target);
+        committed = true;
+    }
+
+    /**
+     * Closes the file. A snapshot that was not committed is discarded.
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) return;
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package library.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * DiskHashFile is a persistent hash table from String keys to byte[] values.
+ * The file holds a header, a bucket directory of record offsets (memory-mapped) and an
+ * append-only data area of chained records, so a lookup costs one directory probe plus
+ * a few positional reads and the heap only holds what callers keep.
+ * Updates append a new record and clear the live flag of the old one in place;
+ * the file is compacted (and the directory grown) once dead records or long chains pile up.
+ * Reads share a read lock; updates take the write lock.
+ * Durability: an update is written in the order record, header (data end), directory slot,
+ * old record's live flag, and readers stop at the data end, so a lookup never sees a half-written
+ * update. None of it is forced: an update survives a crash of the process at once, and a crash
+ * of the machine only once sync() (or close()) has returned. After a power failure a key changed
+ * since the last sync may be lost, but the rest of the file stays usable.
+ * The header records whether the file is open; a file that was not closed cleanly has its
+ * directory rebuilt from the records on the next open, which links a record that was written
+ * but not linked yet and retires the older copy of a key the crash left live.
+ * Callers that need a durability point call sync(), e.g. on every persistence flush.
+ *
+ * Layout: header (magic, version, bucket count, open flag, live count, data end, record count),
+ * directory (bucket count longs), then records: live byte, next offset, key length, key, value length, value.
+ */
+public class DiskHashFile implements Closeable {
+    private static final int MAGIC = 0x4C494458; // "LIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    // Header offset of the open flag: 1 from open until a clean close
+    private static final int OPEN_FLAG_OFFSET = 12;
+    private static final int RECORD_HEADER = 1 + 8 + 4;
+    private static final int MIN_BUCKETS = 1024;
+    // The directory is a single mapping, so it is capped well below 2 GB
+    private static final int MAX_BUCKETS = 1 << 26;
+    // Compact when dead records outnumber live ones, or chains average more than this many records
+    private static final int MAX_LOAD = 4;
+    // Bytes read speculatively with each record header, enough for most keys and small values
+    private static final int READ_AHEAD = 512;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer directory;
+    private int bucketCount;
+    private long liveCount;
+    private long recordCount;
+    private long dataEnd;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Opens a hash file, creating an empty one if it does not exist.
+     * @param filename The file to open
+     * @throws IOException if the file cannot be opened or is not a hash file
+     */
+    public DiskHashFile(String filename) throws IOException {
+        this.path = Paths.get(filename);
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            create(path, MIN_BUCKETS);
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            channel.close();
+            throw new IOException("Not a hash file: " + path);
+        }
+        bucketCount = header.getInt();
+        boolean unclean = header.getInt() != 0;
+        liveCount = header.getLong();
+        dataEnd = header.getLong();
+        recordCount = header.getLong();
+        directory = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, (long) bucketCount * 8);
+        if (unclean) {
+            rebuildDirectory();
+        } else {
+            writeOpenFlag(1);
+        }
+        // The flag must be on disk before any update that could need the rebuild
+        channel.force(false);
+    }
+
+    private static void create(Path target, int buckets) throws IOException {
+        try (FileChannel ch = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(buckets).putInt(0).putLong(0)
+                .putLong(HEADER_SIZE + (long) buckets * 8).putLong(0);
+            header.flip();
+            while (header.hasRemaining()) ch.write(header, HEADER_SIZE - header.remaining());
+            // Extend the file over the (zeroed) directory
+            ch.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) buckets * 8 - 1);
+        }
+    }
+
+    /**
+     * Looks up a key.
+     * @param key The key
+     * @return The stored value, or null if absent
+     * @throws IOException if reading fails
+     */
+    public byte[] get(String key) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            long offset = find(keyBytes, bucket(keyBytes));
+            return offset < 0 ? null : readValue(offset, keyBytes.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a value under a key, replacing any previous value.
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or null if the key was absent
+     * @throws IOException if writing fails
+     */
+    public byte[] put(String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int bucket = bucket(keyBytes);
+            long old = find(keyBytes, bucket);
+            byte[] previous = old >= 0 ? readValue(old, keyBytes.length) : null;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + keyBytes.length + 4 + value.length);
+            record.put((byte) 1).putLong(chainHead(bucket)).putInt(keyBytes.length).put(keyBytes)
+                .putInt(value.length).put(value);
+            record.flip();
+            // Record, then the header that covers it, then the link, then retire the old record
+            long offset = dataEnd;
+            writeFully(record, offset);
+            dataEnd += record.capacity();
+            recordCount++;
+            if (old < 0) liveCount++;
+            writeHeader();
+            directory.putLong(bucket * 8, offset);
+            if (old >= 0) markDead(old);
+            maybeCompact();
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a key.
+     * @param key The key
+     * @return The removed value, or null if the key was absent
+     * @throws IOException if writing fails
+     */
+    public byte[] remove(String key) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            long offset = find(keyBytes, bucket(keyBytes));
+            if (offset < 0) return null;
+            byte[] previous = readValue(offset, keyBytes.length);
+            markDead(offset);
+            liveCount--;
+            writeHeader();
+            maybeCompact();
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of live keys.
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Calls the consumer for every live entry, reading the data area sequentially.
+     * @param consumer Receives each key and value
+     * @throws IOException if reading fails
+     */
+    public void forEach(BiConsumer<String, byte[]> consumer) throws IOException {
+        lock.readLock().lock();
+        try {
+            scan(consumer);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every entry.
+     * @throws IOException if the file cannot be rewritten
+     */
+    public void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeChannel();
+            create(path, MIN_BUCKETS);
+            open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all changes to disk: records and header first, then the directory that points to them.
+     * @throws IOException if syncing fails
+     */
+    public void sync() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.force(true);
+            directory.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(true);
+                directory.force();
+                writeOpenFlag(0);
+                channel.force(false);
+                closeChannel();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Internals (callers hold the lock) ---
+
+    private int bucket(byte[] keyBytes) {
+        int h = java.util.Arrays.hashCode(keyBytes);
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % bucketCount;
+    }
+
+    /**
+     * Returns the first record of a bucket chain, or 0 if the chain is empty. A slot pointing at
+     * or past the data end (linked before a crash cut the data end back) counts as empty.
+     */
+    private long chainHead(int bucket) {
+        long offset = directory.getLong(bucket * 8);
+        return offset + RECORD_HEADER > dataEnd ? 0 : offset;
+    }
+
+    /**
+     * Walks a bucket chain and returns the offset of the live record with the key, or -1.
+     * The chain ends at a zero offset or at an offset past the data end.
+     */
+    private long find(byte[] keyBytes, int bucket) throws IOException {
+        long offset = chainHead(bucket);
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER + keyBytes.length);
+        while (offset != 0 && offset + RECORD_HEADER <= dataEnd) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), dataEnd - offset));
+            readFully(buf, offset);
+            buf.flip();
+            boolean live = buf.get() != 0;
+            long next = buf.getLong();
+            int keyLength = buf.getInt();
+            if (live && keyLength == keyBytes.length && buf.remaining() >= keyLength) {
+                boolean same = true;
+                for (int i = 0; i < keyLength && same; i++) same = buf.get() == keyBytes[i];
+                if (same) return offset;
+            }
+            offset = next;
+        }
+        return -1;
+    }
+
+    private byte[] readValue(long offset, int keyLength) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        long valueStart = offset + RECORD_HEADER + keyLength;
+        readFully(length, valueStart);
+        length.flip();
+        ByteBuffer value = ByteBuffer.allocate(length.getInt());
+        readFully(value, valueStart + 4);
+        return value.array();
+    }
+
+    private void markDead(long offset) throws IOException {
+        writeFully(ByteBuffer.wrap(new byte[] {0}), offset);
+    }
+
+    private void scan(BiConsumer<String, byte[]> consumer) throws IOException {
+        long offset = HEADER_SIZE + (long) bucketCount * 8;
+        ByteBuffer buf = ByteBuffer.allocate(READ_AHEAD);
+        while (offset + RECORD_HEADER <= dataEnd) {
+            buf.clear();
+            buf.limit((int) Math.min(READ_AHEAD, dataEnd - offset));
+            readFully(buf, offset);
+            buf.flip();
+            boolean live = buf.get() != 0;
+            buf.getLong();
+            int keyLength = buf.getInt();
+            byte[] key = new byte[keyLength];
+            int valueLength;
+            if (buf.remaining() >= keyLength + 4) {
+                buf.get(key);
+                valueLength = buf.getInt();
+            } else {
+                ByteBuffer rest = ByteBuffer.allocate(keyLength + 4);
+                readFully(rest, offset + RECORD_HEADER);
+                rest.flip();
+                rest.get(key);
+                valueLength = rest.getInt();
+            }
+            if (live) {
+                byte[] value = new byte[valueLength];
+                if (buf.remaining() >= valueLength) {
+                    buf.get(value);
+                } else {
+                    ByteBuffer rest = ByteBuffer.wrap(value);
+                    readFully(rest, offset + RECORD_HEADER + keyLength + 4);
+                }
+                consumer.accept(new String(key, StandardCharsets.UTF_8), value);
+            }
+            offset += RECORD_HEADER + keyLength + 4 + valueLength;
+        }
+    }
+
+    /**
+     * Rewrites the live entries into a fresh file when dead records dominate or chains get long.
+     */
+    private void maybeCompact() throws IOException {
+        boolean crowded = liveCount > (long) bucketCount * MAX_LOAD;
+        boolean wasteful = recordCount > 2 * liveCount + MIN_BUCKETS;
+        if (!crowded && !wasteful) return;
+        long buckets = Math.min(MAX_BUCKETS, Math.max(MIN_BUCKETS, Long.highestOneBit(liveCount) * 2));
+        if (!wasteful && buckets <= bucketCount) return; // already at the largest directory
+        Path temp = Paths.get(path + ".tmp");
+        create(temp, (int) buckets);
+        DiskHashFile target = new DiskHashFile(temp.toString());
+        try {
+            IOException[] failure = new IOException[1];
+            scan((key, value) -> {
+                if (failure[0] != null) return;
+                try {
+                    target.appendNew(key, value);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            target.writeHeader();
+        } finally {
+            target.close();
+        }
+        closeChannel();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    /**
+     * Appends a record for a key known to be absent (used while compacting).
+     */
+    private void appendNew(String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int bucket = bucket(keyBytes);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + keyBytes.length + 4 + value.length);
+        record.put((byte) 1).putLong(directory.getLong(bucket * 8)).putInt(keyBytes.length).put(keyBytes)
+            .putInt(value.length).put(value);
+        record.flip();
+        writeFully(record, dataEnd);
+        directory.putLong(bucket * 8, dataEnd);
+        dataEnd += record.capacity();
+        liveCount++;
+        recordCount++;
+    }
+
+    /**
+     * Relinks every record up to the data end after the file was not closed cleanly, in file
+     * order so the newest record of a key is found first. A key left live twice (crash before
+     * its old record was retired) keeps only the newer record; a torn record at the end is cut off.
+     * The counts are recomputed and everything is forced before the file is used.
+     */
+    private void rebuildDirectory() throws IOException {
+        for (int i = 0; i < bucketCount; i++) directory.putLong(i * 8, 0);
+        liveCount = 0;
+        recordCount = 0;
+        long end = dataEnd;
+        long offset = HEADER_SIZE + (long) bucketCount * 8;
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER);
+        ByteBuffer length = ByteBuffer.allocate(4);
+        ByteBuffer next = ByteBuffer.allocate(8);
+        while (offset + RECORD_HEADER + 4 <= end) {
+            head.clear();
+            readFully(head, offset);
+            head.flip();
+            boolean live = head.get() != 0;
+            head.getLong();
+            int keyLength = head.getInt();
+            if (keyLength < 0 || offset + RECORD_HEADER + keyLength + 4 > end) break;
+            byte[] key = new byte[keyLength];
+            readFully(ByteBuffer.wrap(key), offset + RECORD_HEADER);
+            length.clear();
+            readFully(length, offset + RECORD_HEADER + keyLength);
+            length.flip();
+            int valueLength = length.getInt();
+            long size = RECORD_HEADER + keyLength + 4L + valueLength;
+            if (valueLength < 0 || offset + size > end) break;
+            dataEnd = offset + size;
+            recordCount++;
+            if (live) {
+                int bucket = bucket(key);
+                long older = find(key, bucket);
+                if (older >= 0) markDead(older);
+                else liveCount++;
+                next.clear();
+                next.putLong(chainHead(bucket)).flip();
+                writeFully(next, offset + 1);
+                directory.putLong(bucket * 8, offset);
+            }
+            offset += size;
+        }
+        dataEnd = offset;
+        writeHeader();
+        writeOpenFlag(1);
+        channel.force(true);
+        directory.force();
+    }
+
+    private void writeOpenFlag(int open) throws IOException {
+        ByteBuffer flag = ByteBuffer.allocate(4);
+        flag.putInt(open).flip();
+        writeFully(flag, OPEN_FLAG_OFFSET);
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer counts = ByteBuffer.allocate(24);
+        counts.putLong(liveCount).putLong(dataEnd).putLong(recordCount);
+        counts.flip();
+        writeFully(counts, 16);
+    }
+
+    private void closeChannel() throws IOException {
+        MappedRecordReader.unmap(directory);
+        directory = null;
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) throw new IOException("Unexpected end of hash file " + path);
+            position += n;
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package library.util;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 
 /**
@@ -8,6 +9,10 @@ import java.util.*;
  * Used for file-based persistence of books, borrowers, and transactions.
  */
 public class FileManager {
+    // Latency timers (no-ops unless metrics are enabled)
+    private static final Metrics.Timer READ_TIME = Metrics.timer("file.readLines");
+    private static final Metrics.Timer WRITE_TIME = Metrics.timer("file.writeLines");
+
     /**
      * Reads all lines from a file into a list of strings.
      * @param filename The file to read
@@ -15,28 +20,73 @@ public class FileManager {
      * @throws IOException if file reading fails
      */
     public static List<String> readLines(String filename) throws IOException {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                lines.add(line);
+        long start = Metrics.start();
+        try {
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    lines.add(line);
+                }
             }
+            return lines;
+        } finally {
+            READ_TIME.stop(start);
         }
-        return lines;
     }
 
     /**
      * Writes a list of strings to a file, one per line.
+     * The lines go to a temporary file next to the target, which is synced and then renamed
+     * over the target, so a crash leaves either the old file or the new one, never a torn one.
      * @param filename The file to write to
      * @param lines The lines to write
      * @throws IOException if file writing fails
      */
     public static void writeLines(String filename, List<String> lines) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
-            for (String line : lines) {
-                bw.write(line);
-                bw.newLine();
+        long start = Metrics.start();
+        try {
+            Path target = Paths.get(filename);
+            Path temp = tempFileFor(target);
+            try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out))) {
+                for (String line : lines) {
+                    bw.write(line);
+                    bw.newLine();
+                }
+                bw.flush();
+                out.getFD().sync();
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
             }
+            replace(temp, target);
+        } finally {
+            WRITE_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Returns the temporary file used while a new version of a file is written.
+     * @param target The file being replaced
+     * @return The target's path with ".tmp" appended
+     */
+    public static Path tempFileFor(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    /**
+     * Renames a fully written temporary file over its target, atomically where the file
+     * system supports it.
+     * @param temp The new contents
+     * @param target The file to replace
+     * @throws IOException if the rename fails
+     */
+    public static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 }
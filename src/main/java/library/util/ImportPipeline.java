@@ -0,0 +1,291 @@
+package library.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * ImportPipeline streams a delimited file into a store through four stages:
+ * parse, validate, dedupe and insert.
+ * A reader thread cuts the file into batches of lines, worker threads parse and validate
+ * the batches in parallel, and the calling thread dedupes and inserts them in file order,
+ * so the first row of a duplicated key always wins. Queues between the stages are bounded,
+ * so memory use does not depend on the file size.
+ * Rows that fail to parse or validate, or repeat a key, are rejected and reported; nothing
+ * is persisted here, so the caller saves once when the import is done.
+ * Files ending in .csv are comma-separated (with double-quoted fields), others pipe-delimited.
+ * Blank lines and lines starting with # are skipped.
+ */
+public class ImportPipeline<T> {
+    private static final int BATCH_SIZE = 1024;
+    // Batches waiting between two stages, per worker
+    private static final int QUEUE_BATCHES_PER_WORKER = 4;
+
+    /**
+     * Turns the fields of one row into a record.
+     * Throws IllegalArgumentException with the reason if the row cannot be parsed.
+     */
+    public interface Parser<T> {
+        T parse(List<String> fields);
+    }
+
+    /**
+     * Checks a parsed record.
+     * Returns null if it is valid, otherwise the reason it is rejected.
+     */
+    public interface Validator<T> {
+        String validate(T record);
+    }
+
+    private final Parser<T> parser;
+    private final Validator<T> validator;
+    private final Function<T, String> key;
+    private final Predicate<String> existing;
+    private final Consumer<T> sink;
+    private final int workers;
+
+    /**
+     * Creates a pipeline.
+     * @param parser Parses the fields of a row
+     * @param validator Checks parsed records
+     * @param key Key used to drop duplicates (e.g. the ISBN)
+     * @param existing Tells whether a key is already in the store; such rows are rejected too
+     * @param sink Inserts accepted records, called from the calling thread in file order
+     * @param workers Number of parse/validate threads
+     */
+    public ImportPipeline(Parser<T> parser, Validator<T> validator, Function<T, String> key,
+                          Predicate<String> existing, Consumer<T> sink, int workers) {
+        if (workers <= 0) throw new IllegalArgumentException("At least one worker is required: " + workers);
+        this.parser = parser;
+        this.validator = validator;
+        this.key = key;
+        this.existing = existing;
+        this.sink = sink;
+        this.workers = workers;
+    }
+
+    /**
+     * A run of consecutive rows. Workers fill in the parsed record or the rejection reason.
+     */
+    private static final class Batch<T> {
+        private final long seq;
+        private final long[] lineNumbers = new long[BATCH_SIZE];
+        private final String[] lines = new String[BATCH_SIZE];
+        private final Object[] records = new Object[BATCH_SIZE];
+        private final String[] reasons = new String[BATCH_SIZE];
+        private int size;
+
+        Batch(long seq) {
+            this.seq = seq;
+        }
+    }
+
+    // Marks the end of the stream on a queue
+    private static final Batch<?> END = new Batch<>(-1);
+
+    /**
+     * Imports a file.
+     * @param filename The file to read
+     * @return Counts, per-stage throughput and rejected rows
+     * @throws Exception if the file cannot be read or the sink fails; rows inserted
+     *         before the failure stay in the store
+     */
+    @SuppressWarnings("unchecked")
+    public ImportReport run(String filename) throws Exception {
+        long started = System.nanoTime();
+        char delimiter = filename.toLowerCase(Locale.ROOT).endsWith(".csv") ? ',' : '|';
+        BlockingQueue<Batch<T>> parsed = new ArrayBlockingQueue<>(workers * QUEUE_BATCHES_PER_WORKER);
+        BlockingQueue<Batch<T>> lines = new ArrayBlockingQueue<>(workers * QUEUE_BATCHES_PER_WORKER);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong rowsRead = new AtomicLong();
+        AtomicLong readNanos = new AtomicLong(), parseNanos = new AtomicLong(), validateNanos = new AtomicLong();
+        AtomicLong parsedRows = new AtomicLong(), validatedRows = new AtomicLong();
+        ExecutorService threads = Executors.newFixedThreadPool(workers + 1, r -> {
+            Thread t = new Thread(r, "import");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            threads.execute(() -> {
+                try (BufferedReader in = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+                    long lineNumber = 0, seq = 0, busy = System.nanoTime();
+                    Batch<T> batch = new Batch<>(seq++);
+                    for (String line; (line = in.readLine()) != null; ) {
+                        lineNumber++;
+                        if (line.isBlank() || line.startsWith("#")) continue;
+                        batch.lineNumbers[batch.size] = lineNumber;
+                        batch.lines[batch.size++] = line;
+                        if (batch.size == BATCH_SIZE) {
+                            rowsRead.addAndGet(batch.size);
+                            readNanos.addAndGet(System.nanoTime() - busy);
+                            lines.put(batch);
+                            busy = System.nanoTime();
+                            batch = new Batch<>(seq++);
+                        }
+                    }
+                    rowsRead.addAndGet(batch.size);
+                    readNanos.addAndGet(System.nanoTime() - busy);
+                    if (batch.size > 0) lines.put(batch);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    for (int i = 0; i < workers; i++) putQuietly(lines, (Batch<T>) END);
+                }
+            });
+            for (int w = 0; w < workers; w++) {
+                threads.execute(() -> {
+                    try {
+                        for (Batch<T> batch; (batch = lines.take()) != END; ) {
+                            long t0 = System.nanoTime();
+                            List<String> fields = new ArrayList<>();
+                            for (int i = 0; i < batch.size; i++) {
+                                try {
+                                    split(batch.lines[i], delimiter, fields);
+                                    batch.records[i] = parser.parse(fields);
+                                } catch (IllegalArgumentException e) {
+                                    batch.reasons[i] = e.getMessage();
+                                }
+                                batch.lines[i] = null;
+                            }
+                            long t1 = System.nanoTime();
+                            int valid = 0;
+                            for (int i = 0; i < batch.size; i++) {
+                                if (batch.records[i] == null) continue;
+                                String reason = validator.validate((T) batch.records[i]);
+                                if (reason != null) {
+                                    batch.records[i] = null;
+                                    batch.reasons[i] = reason;
+                                } else {
+                                    valid++;
+                                }
+                            }
+                            parseNanos.addAndGet(t1 - t0);
+                            validateNanos.addAndGet(System.nanoTime() - t1);
+                            parsedRows.addAndGet(batch.size);
+                            validatedRows.addAndGet(valid);
+                            parsed.put(batch);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        putQuietly(parsed, (Batch<T>) END);
+                    }
+                });
+            }
+
+            // Dedupe and insert in file order; batches finished early wait in pending
+            ImportReport report = new ImportReport();
+            Set<String> seen = new HashSet<>();
+            Map<Long, Batch<T>> pending = new HashMap<>();
+            long next = 0, dedupeNanos = 0, insertNanos = 0, deduped = 0, inserted = 0;
+            for (int ended = 0; ended < workers; ) {
+                Batch<T> batch = parsed.take();
+                if (failure.get() != null) break;
+                if (batch == END) {
+                    ended++;
+                    continue;
+                }
+                pending.put(batch.seq, batch);
+                while ((batch = pending.remove(next)) != null) {
+                    next++;
+                    for (int i = 0; i < batch.size; i++) {
+                        T record = (T) batch.records[i];
+                        if (record == null) {
+                            report.reject(batch.lineNumbers[i], batch.reasons[i]);
+                            continue;
+                        }
+                        long t0 = System.nanoTime();
+                        String k = key.apply(record);
+                        String reason = !seen.add(k) ? "Duplicate key " + k + " in file"
+                            : existing.test(k) ? "Key " + k + " already exists" : null;
+                        long t1 = System.nanoTime();
+                        dedupeNanos += t1 - t0;
+                        if (reason != null) {
+                            report.reject(batch.lineNumbers[i], reason);
+                            continue;
+                        }
+                        deduped++;
+                        sink.accept(record);
+                        insertNanos += System.nanoTime() - t1;
+                        inserted++;
+                    }
+                }
+            }
+            Throwable error = failure.get();
+            if (error instanceof Exception) throw (Exception) error;
+            if (error != null) throw new ExecutionException(error);
+
+            report.setRowsRead(rowsRead.get());
+            report.setInserted(inserted);
+            report.addStage("read", rowsRead.get(), readNanos.get());
+            report.addStage("parse", parsedRows.get(), parseNanos.get());
+            report.addStage("validate", validatedRows.get(), validateNanos.get());
+            report.addStage("dedupe", deduped, dedupeNanos);
+            report.addStage("insert", inserted, insertNanos);
+            report.setWallNanos(System.nanoTime() - started);
+            return report;
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static <B> void putQuietly(BlockingQueue<B> queue, B item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Splits a line into fields. With a comma delimiter, fields may be double-quoted
+     * and a quote inside a quoted field is written twice.
+     * @param line The line to split
+     * @param delimiter '|' or ','
+     * @param fields Cleared and filled with the fields
+     */
+    public static void split(String line, char delimiter, List<String> fields) {
+        fields.clear();
+        if (delimiter != ',') {
+            int start = 0;
+            for (int end; (end = line.indexOf(delimiter, start)) >= 0; start = end + 1) {
+                fields.add(line.substring(start, end));
+            }
+            fields.add(line.substring(start));
+            return;
+        }
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append(c);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(field.toString());
+    }
+}
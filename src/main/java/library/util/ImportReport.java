@@ -0,0 +1,114 @@
+package library.util;
+
+import java.util.*;
+
+/**
+ * ImportReport summarizes one bulk import: how many rows went in and out of each
+ * pipeline stage, how fast each stage ran, and which rows were rejected and why.
+ * Every rejected row is counted, but only the first MAX_SAMPLES are kept with their reason.
+ */
+public class ImportReport {
+    // Number of rejected rows kept with their line number and reason
+    public static final int MAX_SAMPLES = 100;
+
+    /**
+     * Work done by one pipeline stage. Busy time is summed over the stage's threads.
+     */
+    public static final class Stage {
+        private final String name;
+        private final long records;
+        private final long busyNanos;
+
+        Stage(String name, long records, long busyNanos) {
+            this.name = name;
+            this.records = records;
+            this.busyNanos = busyNanos;
+        }
+
+        public String getName() { return name; }
+        public long getRecords() { return records; }
+        public long getBusyNanos() { return busyNanos; }
+
+        /**
+         * @return Records handled per second of busy time (0 if the stage did no work)
+         */
+        public double getRecordsPerSecond() {
+            return busyNanos == 0 ? 0 : records * 1e9 / busyNanos;
+        }
+    }
+
+    /**
+     * A rejected row.
+     */
+    public static final class Rejection {
+        private final long lineNumber;
+        private final String reason;
+
+        Rejection(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() { return lineNumber; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason;
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<Rejection> samples = new ArrayList<>();
+    private long rowsRead;
+    private long inserted;
+    private long rejected;
+    private long wallNanos;
+
+    void addStage(String name, long records, long busyNanos) {
+        stages.add(new Stage(name, records, busyNanos));
+    }
+
+    void reject(long lineNumber, String reason) {
+        rejected++;
+        if (samples.size() < MAX_SAMPLES) samples.add(new Rejection(lineNumber, reason));
+    }
+
+    void setRowsRead(long rowsRead) { this.rowsRead = rowsRead; }
+    void setInserted(long inserted) { this.inserted = inserted; }
+    void setWallNanos(long wallNanos) { this.wallNanos = wallNanos; }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getInserted() { return inserted; }
+    public long getRejected() { return rejected; }
+    public long getWallNanos() { return wallNanos; }
+    public List<Stage> getStages() { return Collections.unmodifiableList(stages); }
+
+    /**
+     * @return The first rejected rows (at most MAX_SAMPLES), sorted by line number
+     */
+    public List<Rejection> getRejections() {
+        List<Rejection> sorted = new ArrayList<>(samples);
+        sorted.sort(Comparator.comparingLong(Rejection::getLineNumber));
+        return sorted;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        double seconds = wallNanos / 1e9;
+        sb.append(String.format("Read %d rows, inserted %d, rejected %d in %.2f s (%.0f rows/s)%n",
+            rowsRead, inserted, rejected, seconds, seconds == 0 ? 0 : rowsRead / seconds));
+        for (Stage s : stages) {
+            sb.append(String.format("  %-9s %10d records %10.0f records/s%n", s.getName(), s.getRecords(), s.getRecordsPerSecond()));
+        }
+        List<Rejection> rejections = getRejections();
+        if (!rejections.isEmpty()) {
+            sb.append(rejected > rejections.size()
+                ? String.format("First %d rejected rows (by line):%n", rejections.size())
+                : String.format("Rejected rows:%n"));
+            for (Rejection r : rejections) sb.append("  ").append(r).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
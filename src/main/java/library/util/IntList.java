@@ -0,0 +1,67 @@
+package library.util;
+
+import java.util.Arrays;
+
+/**
+ * IntList is a growable array of primitive ints.
+ * Used for postings and row-id lists where boxed Integer lists would cost several times the memory.
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int initialCapacity) {
+        values = new int[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Appends a value, growing the backing array when needed.
+     * @param value The value to append
+     */
+    public void add(int value) {
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    /**
+     * @param index Position in the list
+     * @return The value at that position
+     */
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        return values[index];
+    }
+
+    /**
+     * Replaces the value at a position.
+     * @param index Position in the list
+     * @param value The new value
+     */
+    public void set(int index, int value) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        values[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return A copy of the values as an array
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,32 @@
+package library.util;
+
+/**
+ * Json holds the few helpers needed to write JSON by hand.
+ */
+public final class Json {
+    private Json() {}
+
+    /**
+     * Returns a string as a quoted JSON string literal, or null for null.
+     * @param s The string to quote
+     * @return The JSON literal
+     */
+    public static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
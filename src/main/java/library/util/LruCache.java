@@ -0,0 +1,112 @@
+package library.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * LruCache is a bounded map that evicts the least recently used entry once it is full.
+ * It counts hits, misses and evictions so cache sizing can be checked against real traffic.
+ * All methods are synchronized, except that get(key, loader) releases the lock while loading.
+ */
+public class LruCache<K, V> {
+    private final int capacity;
+    private final LinkedHashMap<K, V> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    // Count of put, remove and clear calls, so a load that raced a write is not cached
+    private long writes;
+
+    /**
+     * Creates a cache.
+     * @param capacity Maximum number of entries kept
+     */
+    public LruCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= LruCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for a key, loading and caching it on a miss.
+     * The loader runs without the cache lock, so a slow load does not stall other lookups;
+     * two threads missing the same key may both load it, and the first value cached wins.
+     * A value is not cached if the cache was written (put, remove, clear) while it loaded,
+     * since it may predate that write. Null results are not cached.
+     * @param key The key
+     * @param loader Loads the value on a miss
+     * @return The value, or null if the loader found none
+     */
+    public V get(K key, Function<K, V> loader) {
+        long seenWrites;
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits++;
+                return value;
+            }
+            misses++;
+            seenWrites = writes;
+        }
+        V loaded = loader.apply(key);
+        if (loaded == null) return null;
+        synchronized (this) {
+            if (writes != seenWrites) return loaded;
+            V raced = entries.putIfAbsent(key, loaded);
+            return raced != null ? raced : loaded;
+        }
+    }
+
+    /**
+     * Returns the cached value for a key without loading it. Counts as a hit or miss.
+     */
+    public synchronized V getIfPresent(K key) {
+        V value = entries.get(key);
+        if (value != null) hits++;
+        else misses++;
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        writes++;
+        entries.put(key, value);
+    }
+
+    public synchronized void remove(K key) {
+        writes++;
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        writes++;
+        entries.clear();
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public int getCapacity() { return capacity; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+
+    /**
+     * @return Fraction of lookups served from the cache (0 when there were none)
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("size=%d/%d, hits=%d, misses=%d, evictions=%d, hit rate=%.1f%%",
+            entries.size(), capacity, hits, misses, evictions, getHitRate() * 100);
+    }
+}
@@ -0,0 +1,226 @@
+package library.util;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * MappedRecordReader streams pipe-delimited records straight out of a memory-mapped file.
+ * Field boundaries are found by scanning bytes in the mapped buffer, and numbers and dates
+ * are parsed from those bytes directly, so no line list, no per-line regex split and
+ * no intermediate substrings are created. Only fields read as strings are decoded.
+ */
+public class MappedRecordReader {
+    // Size of each mapped window; records are never split across windows
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    // sun.misc.Unsafe.invokeCleaner, or null when not available on this JVM
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", java.nio.ByteBuffer.class);
+        } catch (Exception e) {
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Callback that receives each record in file order.
+     */
+    public interface RecordHandler {
+        void onRecord(Record record) throws Exception;
+    }
+
+    /**
+     * A single record (line) of the file. Only valid during the callback.
+     */
+    public static final class Record {
+        private MappedByteBuffer buffer;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int fieldCount;
+        private byte[] scratch = new byte[256];
+
+        private void addField(int start, int end) {
+            if (fieldCount == starts.length) {
+                starts = java.util.Arrays.copyOf(starts, fieldCount * 2);
+                ends = java.util.Arrays.copyOf(ends, fieldCount * 2);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            fieldCount++;
+        }
+
+        /**
+         * @return Number of pipe-separated fields in the record (trailing empty fields included)
+         */
+        public int fieldCount() { return fieldCount; }
+
+        /**
+         * @param i Field index
+         * @return true if the field has no characters
+         */
+        public boolean isEmpty(int i) { return starts[i] == ends[i]; }
+
+        /**
+         * Decodes a field as a UTF-8 string.
+         * @param i Field index
+         * @return The field text
+         */
+        public String getString(int i) {
+            int len = ends[i] - starts[i];
+            if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+            buffer.get(starts[i], scratch, 0, len);
+            return new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Parses a field as a decimal int without creating a string.
+         * @param i Field index
+         * @return The parsed value
+         * @throws NumberFormatException if the field is not an integer
+         */
+        public int getInt(int i) {
+            int pos = starts[i], end = ends[i];
+            boolean negative = pos < end && buffer.get(pos) == '-';
+            if (negative) pos++;
+            if (pos == end) throw new NumberFormatException("Empty number in field " + i);
+            long value = 0;
+            for (; pos < end; pos++) {
+                int d = buffer.get(pos) - '0';
+                if (d < 0 || d > 9) throw new NumberFormatException("For input string: \"" + getString(i) + "\"");
+                value = value * 10 + d;
+                if (value > (long) Integer.MAX_VALUE + 1) throw new NumberFormatException("Out of range: " + getString(i));
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) throw new NumberFormatException("Out of range: " + getString(i));
+            return (int) value;
+        }
+
+        /**
+         * Parses a field as a double.
+         * @param i Field index
+         * @return The parsed value
+         */
+        public double getDouble(int i) {
+            return Double.parseDouble(getString(i));
+        }
+
+        /**
+         * Parses an ISO date (yyyy-MM-dd) from the field bytes.
+         * @param i Field index
+         * @return The date, or null if the field is empty
+         */
+        public LocalDate getDate(int i) {
+            int pos = starts[i];
+            int len = ends[i] - pos;
+            if (len == 0) return null;
+            if (len != 10 || buffer.get(pos + 4) != '-' || buffer.get(pos + 7) != '-') {
+                return LocalDate.parse(getString(i));
+            }
+            return LocalDate.of(digits(pos, 4), digits(pos + 5, 2), digits(pos + 8, 2));
+        }
+
+        private int digits(int pos, int count) {
+            int value = 0;
+            for (int k = 0; k < count; k++) {
+                int d = buffer.get(pos + k) - '0';
+                if (d < 0 || d > 9) throw new java.time.format.DateTimeParseException("Invalid date", "", pos);
+                value = value * 10 + d;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Reads every non-empty line of a pipe-delimited file and passes it to the handler.
+     * @param filename The file to read
+     * @param handler Receives each record
+     * @throws Exception if reading fails or the handler throws
+     */
+    public static void read(String filename, RecordHandler handler) throws Exception {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            Record record = new Record();
+            while (windowStart < size) {
+                int windowLength = (int) Math.min(WINDOW_SIZE, size - windowStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                record.buffer = buffer;
+                boolean lastWindow = windowStart + windowLength == size;
+                int lineStart = 0;
+                try {
+                    lineStart = scanWindow(buffer, windowLength, lastWindow, record, handler);
+                } finally {
+                    record.buffer = null;
+                    unmap(buffer);
+                }
+                if (lineStart == 0 && !lastWindow) throw new IOException("Record longer than " + WINDOW_SIZE + " bytes in " + filename);
+                windowStart += lineStart;
+            }
+        }
+    }
+
+    /**
+     * Scans complete lines in a window. Returns the offset of the first unconsumed byte
+     * (the start of a line that continues into the next window), or the window length.
+     */
+    private static int scanWindow(MappedByteBuffer buffer, int length, boolean lastWindow,
+                                  Record record, RecordHandler handler) throws Exception {
+        int lineStart = 0;
+        int fieldStart = 0;
+        record.fieldCount = 0;
+        for (int pos = 0; pos < length; pos++) {
+            byte b = buffer.get(pos);
+            if (b == '|') {
+                record.addField(fieldStart, pos);
+                fieldStart = pos + 1;
+            } else if (b == '\n') {
+                int end = (pos > fieldStart && buffer.get(pos - 1) == '\r') ? pos - 1 : pos;
+                dispatch(record, fieldStart, end, lineStart, handler);
+                lineStart = fieldStart = pos + 1;
+                record.fieldCount = 0;
+            }
+        }
+        if (lineStart < length && lastWindow) {
+            int end = buffer.get(length - 1) == '\r' ? length - 1 : length;
+            dispatch(record, fieldStart, Math.max(end, fieldStart), lineStart, handler);
+            return length;
+        }
+        return lastWindow ? length : lineStart;
+    }
+
+    private static void dispatch(Record record, int fieldStart, int end, int lineStart, RecordHandler handler) throws Exception {
+        if (end == lineStart && record.fieldCount == 0) return; // blank line
+        record.addField(fieldStart, end);
+        handler.onRecord(record);
+    }
+
+    /**
+     * Releases a mapping eagerly so the file can be rewritten straight away (required on Windows).
+     * Falls back to letting the garbage collector unmap it when the JDK hook is unavailable.
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            // The mapping is released when the buffer is garbage collected
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package library.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics is the process-wide registry of counters, latency timers and gauges.
+ * Instrumented classes create their metrics once, in static fields, and call them on the hot path:
+ * <pre>
+ *     private static final Metrics.Timer LOAD = Metrics.timer("inventory.load");
+ *     long start = Metrics.start();
+ *     try { ... } finally { LOAD.stop(start); }
+ * </pre>
+ * Metrics are off unless the JVM is started with -Dlibrary.metrics=true. The switch is a
+ * static final constant, so when it is off the JIT removes the calls entirely.
+ * Snapshots can be exported as text or JSON.
+ */
+public final class Metrics {
+    // Read once at startup so the disabled path compiles away
+    private static final boolean ENABLED = Boolean.getBoolean("library.metrics");
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            if (ENABLED) value.increment();
+        }
+
+        public void add(long n) {
+            if (ENABLED) value.add(n);
+        }
+
+        public long get() { return value.sum(); }
+    }
+
+    /**
+     * Latency distribution of an operation.
+     */
+    public static final class Timer {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        /**
+         * Records the time since a start() reading.
+         * @param start Value returned by Metrics.start()
+         */
+        public void stop(long start) {
+            if (ENABLED) histogram.record(System.nanoTime() - start);
+        }
+
+        public LatencyHistogram getHistogram() { return histogram; }
+    }
+
+    /**
+     * Returns the current time for a later Timer.stop, or 0 when metrics are off.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Returns the counter with a name, creating it on first use.
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * Returns the timer with a name, creating it on first use.
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    /**
+     * Registers a gauge, read whenever a snapshot is exported. Replaces a gauge with the same name.
+     * @param name The gauge name
+     * @param value Supplies the current value
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Clears all counters and timers (gauges are kept).
+     */
+    public static void reset() {
+        for (Counter c : counters.values()) c.value.reset();
+        for (Timer t : timers.values()) t.histogram.reset();
+    }
+
+    // --- Export ---
+
+    private static long gaugeValue(LongSupplier gauge) {
+        try {
+            return gauge.getAsLong();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Formats all metrics as aligned text, sorted by name, leaving out counters and timers
+     * that are still zero. Latencies are in microseconds.
+     */
+    public static String toText() {
+        StringBuilder sb = new StringBuilder();
+        if (!ENABLED) sb.append(String.format("(metrics are disabled; start with -Dlibrary.metrics=true)%n"));
+        for (Map.Entry<String, LongSupplier> e : new TreeMap<>(gauges).entrySet()) {
+            sb.append(String.format("gauge   %-40s %d%n", e.getKey(), gaugeValue(e.getValue())));
+        }
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+            if (e.getValue().get() == 0) continue;
+            sb.append(String.format("counter %-40s %d%n", e.getKey(), e.getValue().get()));
+        }
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram h = e.getValue().histogram;
+            if (h.getCount() == 0) continue;
+            sb.append(String.format("timer   %-40s n=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                e.getKey(), h.getCount(), h.getMean() / 1e3, h.getPercentile(50) / 1e3,
+                h.getPercentile(99) / 1e3, h.getPercentile(99.9) / 1e3, h.getMax() / 1e3));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats all metrics as a JSON object with "gauges", "counters" and "timers" members.
+     * Timer values are in nanoseconds.
+     */
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("{\"enabled\":").append(ENABLED).append(",\"gauges\":{");
+        String sep = "";
+        for (Map.Entry<String, LongSupplier> e : new TreeMap<>(gauges).entrySet()) {
+            sb.append(sep).append(Json.quote(e.getKey())).append(':').append(gaugeValue(e.getValue()));
+            sep = ",";
+        }
+        sb.append("},\"counters\":{");
+        sep = "";
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+            sb.append(sep).append(Json.quote(e.getKey())).append(':').append(e.getValue().get());
+            sep = ",";
+        }
+        sb.append("},\"timers\":{");
+        sep = "";
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram h = e.getValue().histogram;
+            sb.append(sep).append(Json.quote(e.getKey()))
+                .append(":{\"count\":").append(h.getCount())
+                .append(",\"mean\":").append(Math.round(h.getMean()))
+                .append(",\"p50\":").append(h.getPercentile(50))
+                .append(",\"p90\":").append(h.getPercentile(90))
+                .append(",\"p99\":").append(h.getPercentile(99))
+                .append(",\"p999\":").append(h.getPercentile(99.9))
+                .append(",\"max\":").append(h.getMax()).append('}');
+            sep = ",";
+        }
+        return sb.append("}}").toString();
+    }
+
+    /**
+     * Writes a snapshot to a file: JSON if the name ends in .json, text otherwise.
+     * @param filename The file to write
+     * @throws java.io.IOException if writing fails
+     */
+    public static void writeTo(String filename) throws java.io.IOException {
+        String content = filename.endsWith(".json") ? toJson() : toText();
+        FileManager.writeLines(filename, Arrays.asList(content.split("\\R")));
+    }
+}
@@ -0,0 +1,192 @@
+package library.util;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * PersistenceScheduler takes file writes off the interactive path.
+ * Stores are registered with a flush action; callers mark a store dirty after changing it
+ * and carry on. A background thread flushes the dirty stores once per interval, or as soon
+ * as the number of unflushed changes reaches a threshold, so any number of changes to a
+ * store between two flushes costs a single write. close() always flushes what is left.
+ * A failed flush is reported to the error handler and retried on the next round.
+ * With an interval of 0, every markDirty flushes immediately on the calling thread.
+ */
+public class PersistenceScheduler implements AutoCloseable {
+    /**
+     * Writes one store to its file.
+     */
+    public interface Flusher {
+        void flush() throws Exception;
+    }
+
+    /**
+     * A registered store and how far it has been flushed.
+     */
+    private static final class Store {
+        private final String name;
+        private final Flusher flusher;
+        // Number of changes marked so far
+        private final AtomicLong changes = new AtomicLong();
+        // Value of changes covered by the last successful flush (flush lock held)
+        private long flushed;
+
+        Store(String name, Flusher flusher) {
+            this.name = name;
+            this.flusher = flusher;
+        }
+    }
+
+    private final long intervalMillis;
+    private final int threshold;
+    private final BiConsumer<String, Exception> onError;
+    private final Map<String, Store> stores = new LinkedHashMap<>();
+    // Changes marked since the last flush round started, across all stores
+    private final AtomicLong pending = new AtomicLong();
+    // Serializes flush rounds (background thread, flushNow and close)
+    private final Object flushLock = new Object();
+    // Wakes the background thread early
+    private final Object signal = new Object();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong marked = new AtomicLong();
+    private Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * Creates a scheduler. Register the stores, then call start().
+     * @param intervalMillis Longest time a change waits before it is flushed (0 to flush every change at once)
+     * @param threshold Number of unflushed changes that triggers an early flush
+     * @param onError Called with the store name when a flush fails
+     */
+    public PersistenceScheduler(long intervalMillis, int threshold, BiConsumer<String, Exception> onError) {
+        if (intervalMillis < 0) throw new IllegalArgumentException("Flush interval must not be negative: " + intervalMillis);
+        if (threshold <= 0) throw new IllegalArgumentException("Flush threshold must be positive: " + threshold);
+        this.intervalMillis = intervalMillis;
+        this.threshold = threshold;
+        this.onError = onError;
+    }
+
+    /**
+     * Registers a store.
+     * @param name Name used with markDirty and in error reports
+     * @param flusher Writes the store
+     */
+    public synchronized void register(String name, Flusher flusher) {
+        if (worker != null) throw new IllegalStateException("Stores must be registered before start()");
+        if (stores.putIfAbsent(name, new Store(name, flusher)) != null) {
+            throw new IllegalArgumentException("Store already registered: " + name);
+        }
+    }
+
+    /**
+     * Starts the background flush thread (not needed with an interval of 0).
+     */
+    public synchronized void start() {
+        if (worker != null || intervalMillis == 0) return;
+        worker = new Thread(this::run, "persistence-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Records a change to a store. Returns at once; the write happens on the next flush.
+     * @param name The changed store
+     */
+    public void markDirty(String name) {
+        Store store = stores.get(name);
+        if (store == null) throw new IllegalArgumentException("Unknown store: " + name);
+        store.changes.incrementAndGet();
+        marked.incrementAndGet();
+        if (intervalMillis == 0 || closed) {
+            flushNow();
+        } else if (pending.incrementAndGet() >= threshold) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @param name A registered store
+     * @return true if the store has changes that are not flushed yet
+     */
+    public boolean isDirty(String name) {
+        Store store = stores.get(name);
+        synchronized (flushLock) {
+            return store != null && store.changes.get() != store.flushed;
+        }
+    }
+
+    /**
+     * Flushes every dirty store on the calling thread.
+     * @return true if all flushes succeeded
+     */
+    public boolean flushNow() {
+        synchronized (flushLock) {
+            pending.set(0);
+            boolean ok = true;
+            for (Store store : stores.values()) {
+                long version = store.changes.get();
+                if (version == store.flushed) continue;
+                try {
+                    store.flusher.flush();
+                    store.flushed = version;
+                    flushes.incrementAndGet();
+                } catch (Exception e) {
+                    ok = false;
+                    if (onError != null) onError.accept(store.name, e);
+                }
+            }
+            return ok;
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            synchronized (signal) {
+                try {
+                    if (!closed && pending.get() < threshold) signal.wait(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            if (!closed) flushNow();
+        }
+    }
+
+    /**
+     * Stops the background thread and flushes every dirty store. Changes marked afterwards
+     * are flushed immediately.
+     */
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            closed = true;
+            t = worker;
+            worker = null;
+        }
+        if (t != null) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushNow();
+    }
+
+    /**
+     * @return Number of store writes performed so far
+     */
+    public long getFlushCount() { return flushes.get(); }
+
+    /**
+     * @return Number of changes marked so far; the difference to getFlushCount is the writes saved
+     */
+    public long getChangeCount() { return marked.get(); }
+}
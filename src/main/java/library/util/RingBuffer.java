@@ -0,0 +1,291 @@
+package library.util;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * RingBuffer is a fixed-size, preallocated event ring in the style of the LMAX Disruptor.
+ * Any number of producers claim sequence numbers with one atomic increment, fill the slot
+ * in place and publish it; every subscribed consumer sees every event, in sequence order,
+ * on its own thread. Neither side takes a lock.
+ * <pre>
+ *     long seq = ring.next();
+ *     ring.get(seq).set(...);
+ *     ring.publish(seq);
+ * </pre>
+ * Consumers process whatever has been published since their last run as one batch and then
+ * move their sequence forward. A producer must never overwrite a slot the slowest consumer has
+ * not read yet: next() waits for it (backpressure, so a slow consumer throttles the writers),
+ * while tryNext() gives up at once and counts the event as dropped, for producers that must
+ * not block, e.g. because they hold a lock. Without consumers nothing is gated and slots are
+ * simply reused.
+ * Events are reused: handlers must copy what they need before returning.
+ * @param <E> The slot type
+ */
+public class RingBuffer<E> {
+    /**
+     * Receives the events of one consumer.
+     */
+    public interface Handler<E> {
+        /**
+         * @param event The event (valid only during the call)
+         * @param sequence Its sequence number
+         * @param endOfBatch true for the last event currently available, e.g. to flush buffered work
+         */
+        void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+    }
+
+    // Consumer idle: spin this many times, then yield, then park
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final long FULL_PARK_NANOS = 10_000;
+
+    private final Object[] slots;
+    private final int mask;
+    private final int shift;
+    // Round (sequence / capacity) of the last event published in each slot; -1 before the first
+    private final AtomicIntegerArray published;
+    // Highest claimed sequence
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // Lowest consumer sequence seen by a producer; may be stale but never ahead of the consumers
+    private volatile long gateCache = -1;
+    // Replaced, never modified, when a consumer is added
+    private volatile List<Consumer> consumers = new ArrayList<>();
+    private final BiConsumer<String, Exception> onError;
+    private final AtomicLong producerWaits = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean started;
+    private volatile boolean stopping;
+
+    /**
+     * Creates a ring with every slot preallocated.
+     * @param capacity Number of slots, a power of two
+     * @param factory Creates the slot objects
+     * @param onError Called with the consumer name when a handler throws (the event is skipped)
+     */
+    public RingBuffer(int capacity, Supplier<E> factory, BiConsumer<String, Exception> onError) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new Object[capacity];
+        for (int i = 0; i < capacity; i++) slots[i] = factory.get();
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) published.set(i, -1);
+        this.onError = onError;
+    }
+
+    /**
+     * A consumer with its own thread and position in the ring.
+     */
+    private final class Consumer implements Runnable {
+        private final String name;
+        private final Handler<E> handler;
+        // Last sequence this consumer has finished with
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final AtomicLong batches = new AtomicLong();
+        private Thread thread;
+
+        Consumer(String name, Handler<E> handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (true) {
+                long available = highestPublished(next, claimed.get());
+                if (available >= next) {
+                    for (long seq = next; seq <= available; seq++) {
+                        try {
+                            handler.onEvent(get(seq), seq, seq == available);
+                        } catch (Exception e) {
+                            if (onError != null) onError.accept(name, e);
+                        }
+                    }
+                    sequence.lazySet(available);
+                    batches.incrementAndGet();
+                    next = available + 1;
+                    idle = 0;
+                } else if (stopping && next > claimed.get()) {
+                    return;
+                } else if (idle < SPIN_TRIES) {
+                    idle++;
+                    Thread.onSpinWait();
+                } else if (idle < YIELD_TRIES) {
+                    idle++;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a consumer. All consumers must be added before start().
+     * @param name Thread name suffix and the name passed to the error handler
+     * @param handler Receives every event published from now on
+     */
+    public synchronized void subscribe(String name, Handler<E> handler) {
+        if (started) throw new IllegalStateException("Consumers must be subscribed before start()");
+        Consumer consumer = new Consumer(name, handler);
+        consumer.sequence.set(claimed.get());
+        List<Consumer> grown = new ArrayList<>(consumers);
+        grown.add(consumer);
+        consumers = grown;
+    }
+
+    /**
+     * Starts one thread per consumer.
+     */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        for (Consumer c : consumers) {
+            c.thread = new Thread(c, "ring-" + c.name);
+            c.thread.setDaemon(true);
+            c.thread.start();
+        }
+    }
+
+    /**
+     * Claims the next sequence, waiting while the ring is full.
+     * @return The sequence; fill get(sequence) and then publish it
+     */
+    public long next() {
+        long seq = claimed.incrementAndGet();
+        long wrapPoint = seq - slots.length;
+        if (wrapPoint > gateCache) {
+            long min;
+            while (wrapPoint > (min = minimumSequence(seq - 1))) {
+                producerWaits.incrementAndGet();
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+            gateCache = min;
+        }
+        return seq;
+    }
+
+    /**
+     * Claims the next sequence if a slot is free, without waiting.
+     * @return The sequence (fill get(sequence) and then publish it), or -1 if the ring is full;
+     *         the refused event is counted by getDroppedCount
+     */
+    public long tryNext() {
+        long current, seq;
+        do {
+            current = claimed.get();
+            seq = current + 1;
+            long wrapPoint = seq - slots.length;
+            if (wrapPoint > gateCache) {
+                long min = minimumSequence(current);
+                gateCache = min;
+                if (wrapPoint > min) {
+                    dropped.incrementAndGet();
+                    return -1;
+                }
+            }
+        } while (!claimed.compareAndSet(current, seq));
+        return seq;
+    }
+
+    /**
+     * @param sequence A claimed or published sequence
+     * @return The slot for it
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    /**
+     * Makes a filled slot visible to the consumers.
+     * @param sequence A sequence returned by next()
+     */
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    /**
+     * Returns the end of the contiguous run of published sequences starting at from,
+     * or from - 1 if from itself is not published yet.
+     */
+    private long highestPublished(long from, long to) {
+        for (long seq = from; seq <= to; seq++) {
+            if (!isPublished(seq)) return seq - 1;
+        }
+        return to;
+    }
+
+    private long minimumSequence(long fallback) {
+        long min = fallback;
+        for (Consumer c : consumers) min = Math.min(min, c.sequence.get());
+        return min;
+    }
+
+    /**
+     * Lets the consumers finish every published event, then stops their threads.
+     * Producers must have stopped publishing.
+     */
+    public void close() {
+        stopping = true;
+        for (Consumer c : consumers) {
+            if (c.thread == null) continue;
+            LockSupport.unpark(c.thread);
+            try {
+                c.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getCapacity() { return slots.length; }
+
+    /**
+     * @return Number of sequences claimed so far
+     */
+    public long getPublishedCount() { return claimed.get() + 1; }
+
+    /**
+     * @return Number of times a producer found the ring full and had to wait
+     */
+    public long getProducerWaits() { return producerWaits.get(); }
+
+    /**
+     * @return Number of times tryNext found the ring full
+     */
+    public long getDroppedCount() { return dropped.get(); }
+
+    /**
+     * @param name A consumer
+     * @return Events claimed but not yet processed by that consumer, or -1 if there is no such consumer
+     */
+    public long getLag(String name) {
+        for (Consumer c : consumers) if (c.name.equals(name)) return claimed.get() - c.sequence.get();
+        return -1;
+    }
+
+    /**
+     * @param name A consumer
+     * @return Number of batches the consumer has processed, or -1 if there is no such consumer
+     */
+    public long getBatchCount(String name) {
+        for (Consumer c : consumers) if (c.name.equals(name)) return c.batches.get();
+        return -1;
+    }
+}
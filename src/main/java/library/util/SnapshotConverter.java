@@ -0,0 +1,58 @@
+package library.util;
+
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.LendingTracker;
+
+/**
+ * SnapshotConverter converts a data file between the text and binary storage formats.
+ * Usage: java -cp bin library.util.SnapshotConverter &lt;books|borrowers|transactions&gt; &lt;text|binary&gt; &lt;input&gt; &lt;output&gt;
+ * The second argument is the target format; the input is read in the other one.
+ */
+public class SnapshotConverter {
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4) {
+            System.out.println("Usage: SnapshotConverter <books|borrowers|transactions> <text|binary> <input> <output>");
+            return;
+        }
+        StorageFormat target = StorageFormat.fromName(args[1]);
+        StorageFormat source = target == StorageFormat.TEXT ? StorageFormat.BINARY : StorageFormat.TEXT;
+        long start = System.nanoTime();
+        convert(args[0], source, target, args[2], args[3]);
+        System.out.printf("Converted %s (%s -> %s) in %d ms%n", args[2], source, target, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Loads a store from one file and writes it to another in a different format.
+     * @param store "books", "borrowers" or "transactions"
+     * @param source Format of the input file
+     * @param target Format of the output file
+     * @param input The file to read
+     * @param output The file to write
+     * @throws Exception if reading or writing fails
+     */
+    public static void convert(String store, StorageFormat source, StorageFormat target, String input, String output) throws Exception {
+        switch (store) {
+            case "books": {
+                BookInventory inventory = new BookInventory();
+                inventory.loadFromFile(input, source);
+                inventory.saveToFile(output, target);
+                break;
+            }
+            case "borrowers": {
+                BorrowerRegistry registry = new BorrowerRegistry();
+                registry.loadFromFile(input, source);
+                registry.saveToFile(output, target);
+                break;
+            }
+            case "transactions": {
+                LendingTracker tracker = new LendingTracker();
+                tracker.loadFromFile(input, source);
+                tracker.saveToFile(output, target);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown store: " + store);
+        }
+    }
+}
@@ -29,32 +29,38 @@ public class SortUtils {
 
     /**
      * Sorts a list of books in-place by year using merge sort.
+     * A single auxiliary array is allocated up front and reused by every merge.
      * @param books List of books to sort
      */
     public static void mergeSortByYear(List<Book> books) {
-        if (books.size() > 1) {
-            int mid = books.size() / 2;
-            List<Book> left = books.subList(0, mid);
-            List<Book> right = books.subList(mid, books.size());
-            mergeSortByYear(left);
-            mergeSortByYear(right);
-            merge(books, left, right);
+        Book[] items = books.toArray(new Book[0]);
+        mergeSortByYear(items, new Book[items.length], 0, items.length);
+        for (int i = 0; i < items.length; i++) books.set(i, items[i]);
+    }
+
+    private static void mergeSortByYear(Book[] items, Book[] aux, int from, int to) {
+        if (to - from > 1) {
+            int mid = (from + to) >>> 1;
+            mergeSortByYear(items, aux, from, mid);
+            mergeSortByYear(items, aux, mid, to);
+            merge(items, aux, from, mid, to);
         }
     }
 
     /**
-     * Helper method to merge two sorted lists of books by year.
+     * Helper method to merge two adjacent sorted ranges of books by year.
      */
-    private static void merge(List<Book> books, List<Book> left, List<Book> right) {
-        int i = 0, j = 0, k = 0;
-        while (i < left.size() && j < right.size()) {
-            if (left.get(i).getYear() <= right.get(j).getYear()) {
-                books.set(k++, left.get(i++));
+    private static void merge(Book[] items, Book[] aux, int from, int mid, int to) {
+        System.arraycopy(items, from, aux, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            if (aux[i].getYear() <= aux[j].getYear()) {
+                items[k++] = aux[i++];
             } else {
-                books.set(k++, right.get(j++));
+                items[k++] = aux[j++];
             }
         }
-        while (i < left.size()) books.set(k++, left.get(i++));
-        while (j < right.size()) books.set(k++, right.get(j++));
+        while (i < mid) items[k++] = aux[i++];
+        while (j < to) items[k++] = aux[j++];
     }
 }
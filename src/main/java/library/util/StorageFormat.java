@@ -0,0 +1,34 @@
+package library.util;
+
+/**
+ * StorageFormat selects how the data stores are persisted.
+ * TEXT is the original pipe-delimited format; BINARY is the versioned snapshot format
+ * written by BinarySnapshotWriter.
+ */
+public enum StorageFormat {
+    TEXT(".txt"),
+    BINARY(".dat");
+
+    private final String extension;
+
+    StorageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return The file extension conventionally used for this format (including the dot)
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parses a format name (case-insensitive), defaulting to TEXT when null or empty.
+     * @param name "text" or "binary"
+     * @return The matching format
+     */
+    public static StorageFormat fromName(String name) {
+        if (name == null || name.isEmpty()) return TEXT;
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,131 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Borrower;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import library.util.StorageFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+    @TempDir
+    Path dir;
+
+    private String file(String name) {
+        return dir.resolve(name).toString();
+    }
+
+    private static BookInventory inventory() {
+        BookInventory inventory = new BookInventory();
+        inventory.addBook(new Book("Things Fall Apart", "Chinua Achebe", "9780385474542", "Novel", 1958, "Heinemann", "A1"));
+        inventory.addBook(new Book("Pipes | and Bars", "Ünïcode Authör", "9780000000001", "Poetry", 2001, "", "B2"));
+        return inventory;
+    }
+
+    private static void flipByte(String filename, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(filename, "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0x5A);
+        }
+    }
+
+    @Test
+    void booksRoundTripIncludingDelimitersInFields() throws Exception {
+        String path = file("books.bin");
+        inventory().saveToFile(path, StorageFormat.BINARY);
+
+        BookInventory loaded = new BookInventory();
+        loaded.loadFromFile(path, StorageFormat.BINARY);
+        assertEquals(2, loaded.size());
+        Book book = loaded.getBookByIsbn("9780000000001");
+        assertEquals("Pipes | and Bars", book.getTitle());
+        assertEquals("Ünïcode Authör", book.getAuthor());
+        assertEquals("", book.getPublisher());
+        assertEquals(2001, book.getYear());
+    }
+
+    @Test
+    void borrowersRoundTripWithFines() throws Exception {
+        BorrowerRegistry registry = new BorrowerRegistry();
+        Borrower ama = new Borrower("Ama Owusu", "A1", "0244000000");
+        ama.setFinesOwed(12.5);
+        registry.addBorrower(ama);
+        registry.addBorrower(new Borrower("Kofi", "K2", "kofi@example.com"));
+        String path = file("borrowers.bin");
+        registry.saveToFile(path, StorageFormat.BINARY);
+
+        BorrowerRegistry loaded = new BorrowerRegistry();
+        loaded.loadFromFile(path, StorageFormat.BINARY);
+        assertEquals(2, loaded.size());
+        assertEquals(12.5, loaded.getBorrowerById("A1").getFinesOwed(), 0.0);
+        assertEquals("kofi@example.com", loaded.getBorrowerById("K2").getContactInfo());
+    }
+
+    @Test
+    void transactionsRoundTripWithStatusesAndDates() throws Exception {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        LendingTracker tracker = new LendingTracker();
+        tracker.borrowBook(new Transaction("1", "A", day, null, TransactionStatus.BORROWED));
+        tracker.borrowBook(new Transaction("2", "A", day, null, TransactionStatus.BORROWED));
+        tracker.borrowBook(new Transaction("1", "B", day.minusDays(30), null, TransactionStatus.BORROWED));
+        tracker.returnBook("A", "2", day.plusDays(3));
+        tracker.sweepOverdue(day);
+        String path = file("transactions.bin");
+        tracker.saveToFile(path, StorageFormat.BINARY);
+
+        LendingTracker loaded = new LendingTracker();
+        loaded.loadFromFile(path, StorageFormat.BINARY);
+        List<Transaction> all = loaded.getAllTransactions();
+        assertEquals(3, all.size());
+        assertEquals(TransactionStatus.BORROWED, all.get(0).getStatus());
+        assertEquals(TransactionStatus.RETURNED, all.get(1).getStatus());
+        assertEquals(day.plusDays(3), all.get(1).getReturnDate());
+        assertEquals(TransactionStatus.OVERDUE, all.get(2).getStatus());
+        assertEquals(day.minusDays(30), all.get(2).getBorrowDate());
+        assertNotNull(loaded.getOpenLoan("A", "1"));
+        assertNull(loaded.getOpenLoan("A", "2"));
+        assertEquals(1, loaded.getOverdueCount());
+    }
+
+    @Test
+    void corruptSnapshotIsRejectedBeforeTheStoreIsCleared() throws Exception {
+        String path = file("books.bin");
+        inventory().saveToFile(path, StorageFormat.BINARY);
+        flipByte(path, 20);
+
+        BookInventory target = new BookInventory();
+        target.addBook(new Book("Kept", "Someone", "111", "Novel", 1990, "P", "S"));
+        IOException e = assertThrows(IOException.class, () -> target.loadFromFile(path, StorageFormat.BINARY));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+        assertEquals(1, target.size());
+        assertNotNull(target.getBookByIsbn("111"));
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() throws Exception {
+        String path = file("books.bin");
+        inventory().saveToFile(path, StorageFormat.BINARY);
+        try (RandomAccessFile raf = new RandomAccessFile(path, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        assertThrows(IOException.class, () -> new BookInventory().loadFromFile(path, StorageFormat.BINARY));
+    }
+
+    @Test
+    void snapshotOfAnotherStoreIsRejected() throws Exception {
+        String path = file("books.bin");
+        inventory().saveToFile(path, StorageFormat.BINARY);
+        IOException e = assertThrows(IOException.class, () -> new BorrowerRegistry().loadFromFile(path, StorageFormat.BINARY));
+        assertTrue(e.getMessage().contains("expected"), e.getMessage());
+    }
+}
@@ -0,0 +1,78 @@
+package library.data;
+
+import library.model.Book;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multi-threaded stress test for BookInventory.
+ * Several threads add, replace, remove and look up books on a small shared ISBN range,
+ * then the ISBN map, category sets, sorted views and search index are checked for agreement.
+ */
+class BookInventoryStressTest {
+    private static final String[] CATEGORIES = {"Novel", "History", "Science", "Poetry"};
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 25_000;
+    private static final int ISBN_RANGE = 500;
+
+    @Test
+    void indexesAgreeAfterConcurrentUpdates() throws Exception {
+        BookInventory inventory = new BookInventory();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final long seed = t;
+            futures.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    String isbn = "ISBN-" + random.nextInt(ISBN_RANGE);
+                    int op = random.nextInt(10);
+                    if (op < 4) {
+                        String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                        inventory.addBook(new Book("Title " + isbn + " " + category, "Author " + random.nextInt(50),
+                            isbn, category, 1950 + random.nextInt(70), "Pub", "S" + random.nextInt(10)));
+                    } else if (op < 6) {
+                        inventory.removeBook(isbn);
+                    } else {
+                        inventory.getBookByIsbn(isbn);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<String> errors = new ArrayList<>();
+        List<Book> all = inventory.listAllBooks();
+        Set<Book> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        live.addAll(all);
+        int inCategories = 0;
+        for (String category : CATEGORIES) {
+            for (Book b : inventory.getBooksByCategory(category)) {
+                inCategories++;
+                if (!live.contains(b)) errors.add("Stale book in category " + category + ": " + b.getIsbn());
+                if (!b.getCategory().equals(category)) errors.add("Book filed under wrong category: " + b.getIsbn());
+            }
+        }
+        if (inCategories != all.size()) errors.add("Category sets hold " + inCategories + " books, ISBN map " + all.size());
+        if (inventory.listBooksSortedByIsbn().size() != all.size()) errors.add("ISBN view size differs from ISBN map");
+        if (inventory.listBooksSortedByTitle().size() != all.size()) errors.add("Title view size differs from ISBN map");
+        if (inventory.listBooksSortedByYear().size() != all.size()) errors.add("Year view size differs from ISBN map");
+        for (Book b : all) {
+            if (inventory.getBookByIsbn(b.getIsbn()) != b) errors.add("Lookup mismatch for " + b.getIsbn());
+            List<Book> hits = inventory.searchBooks(b.getTitle(), 5);
+            if (hits.isEmpty() || hits.get(0) != b) errors.add("Search index out of date for " + b.getIsbn());
+        }
+        assertTrue(errors.isEmpty(), errors.size() + " errors, first: " + errors.subList(0, Math.min(20, errors.size())));
+    }
+}
@@ -0,0 +1,69 @@
+package library.data;
+
+import library.model.Borrower;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeEventBusTest {
+    @Test
+    void storesPublishTypedEventsInOrder() {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        ChangeEventBus bus = new ChangeEventBus(16, null);
+        bus.subscribe("log", (event, endOfBatch) -> received.add(event.getType() + " " + event.getBorrowerId()));
+        bus.start();
+        BorrowerRegistry registry = new BorrowerRegistry();
+        registry.setEventBus(bus);
+        registry.addBorrower(new Borrower("Ama", "B1", "ama@example.com"));
+        registry.addBorrower(new Borrower("Ama Mensah", "B1", "ama@example.com"));
+        registry.removeBorrower("B1");
+        registry.setEventBus(null);
+        bus.close();
+        assertEquals(List.of("BORROWER_ADDED B1", "BORROWER_REMOVED B1", "BORROWER_ADDED B1", "BORROWER_REMOVED B1"), received);
+        assertEquals(0, bus.getDroppedCount());
+    }
+
+    @Test
+    void fullRingDropsEventsWithoutBlockingTheStore() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1), release = new CountDownLatch(1);
+        AtomicLong events = new AtomicLong(), dropped = new AtomicLong();
+        ChangeEventBus bus = new ChangeEventBus(2, null);
+        bus.subscribe("slow", new ChangeEventBus.Listener() {
+            @Override
+            public void onEvent(ChangeEvent event, boolean endOfBatch) throws Exception {
+                if (events.getAndIncrement() == 0) {
+                    entered.countDown();
+                    release.await();
+                }
+            }
+
+            @Override
+            public void onDropped(long count) {
+                dropped.addAndGet(count);
+            }
+        });
+        bus.start();
+        BorrowerRegistry registry = new BorrowerRegistry();
+        registry.setEventBus(bus);
+        try {
+            registry.addBorrower(new Borrower("Borrower 0", "B0", "b0@example.com"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // The listener is stuck on the first event; the writer must still get through
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                for (int i = 1; i < 6; i++) registry.addBorrower(new Borrower("Borrower " + i, "B" + i, "b" + i + "@example.com"));
+            });
+        } finally {
+            release.countDown();
+        }
+        registry.setEventBus(null);
+        bus.close();
+        assertEquals(6, registry.size());
+        assertEquals(2, events.get());
+        assertEquals(4, bus.getDroppedCount());
+        assertEquals(4, dropped.get());
+    }
+}
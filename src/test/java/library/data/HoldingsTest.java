@@ -0,0 +1,148 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoldingsTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    private static Holdings holdings(String... inventoryIsbns) {
+        Set<String> inventory = Set.of(inventoryIsbns);
+        return new Holdings(inventory::contains);
+    }
+
+    private static Transaction loan(String borrowerId, String isbn) {
+        return new Transaction(isbn, borrowerId, DAY, null, TransactionStatus.BORROWED);
+    }
+
+    @Test
+    void inventoryTitleWithoutHoldingsHasOneCopyAtTheMainBranch() {
+        Holdings holdings = holdings("111");
+        assertEquals(1, holdings.copyCount("111"));
+        assertEquals(Map.of(Holdings.DEFAULT_BRANCH, 1), holdings.availabilityByBranch("111"));
+        assertEquals(0, holdings.copyCount("999"));
+        assertEquals(-1, holdings.checkOut("999", null, "B1"));
+    }
+
+    @Test
+    void bitmapsTrackEveryCopyAcrossWordBoundaries() {
+        Holdings holdings = holdings("111");
+        for (int i = 0; i < 199; i++) holdings.addCopy("111", "Main");
+        for (int i = 0; i < 100; i++) holdings.addCopy("111", "East");
+        assertEquals(300, holdings.copyCount("111"));
+        Set<Integer> out = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            int copy = holdings.checkOut("111", "Main", "B" + i);
+            assertTrue(copy >= 0);
+            assertTrue(out.add(copy));
+            assertEquals("Main", holdings.branchOf(copy));
+        }
+        assertEquals(-1, holdings.checkOut("111", "Main", "B200"));
+        assertEquals(0, holdings.availableCount("111", "Main"));
+        assertEquals(100, holdings.availableCount("111"));
+        // Any branch falls through to the next one with a free copy
+        assertEquals("East", holdings.branchOf(holdings.checkOut("111", null, "B200")));
+
+        int returned = holdings.checkIn("111", "B130");
+        assertEquals(1, holdings.availableCount("111", "Main"));
+        assertEquals(returned, holdings.firstAvailableCopy("111", "Main"));
+        assertEquals(returned, holdings.checkOut("111", "Main", "B300"));
+        assertEquals(-1, holdings.checkIn("111", "B130"));
+    }
+
+    @Test
+    void reservedCopyStaysOffTheShelfUntilClaimedOrReleased() {
+        Holdings holdings = holdings("111");
+        int copy = holdings.reserve("111", "B1");
+        assertTrue(copy >= 0);
+        assertEquals(0, holdings.availableCount("111"));
+        assertEquals(-1, holdings.claimReserved("111", "B2"));
+        assertEquals(copy, holdings.claimReserved("111", "B1"));
+        assertEquals(copy, holdings.checkIn("111", "B1"));
+        assertEquals(1, holdings.availableCount("111"));
+
+        holdings.reserve("111", "B2");
+        assertEquals(copy, holdings.releaseReserved("111", "B2"));
+        assertEquals(1, holdings.availableCount("111"));
+    }
+
+    @Test
+    void loansBeyondTheRecordedCopiesAreReportedAndNotSaved() throws Exception {
+        Path file = dir.resolve("holdings.txt");
+        Files.write(file, List.of("111|Main|1", "222|East|2"));
+        Holdings holdings = holdings("111", "222");
+        holdings.loadFromFile(file.toString());
+
+        int unrecorded = holdings.restoreLoans(List.of(loan("B1", "111"), loan("B2", "111"), loan("B3", "111"), loan("B1", "222")));
+        assertEquals(2, unrecorded);
+        assertEquals(3, holdings.copyCount("111"));
+        assertEquals(0, holdings.availableCount("111"));
+        assertEquals(1, holdings.availableCount("222", "East"));
+        // Running it again finds every loan already covered
+        assertEquals(0, holdings.restoreLoans(List.of(loan("B1", "111"), loan("B2", "111"))));
+
+        holdings.saveToFile(file.toString());
+        assertEquals(Set.of("111|Main|1", "222|East|2"), new HashSet<>(Files.readAllLines(file)));
+
+        // Returned unrecorded copies are retired instead of going on the shelf
+        holdings.checkIn("111", "B3");
+        holdings.checkIn("111", "B2");
+        assertEquals(1, holdings.copyCount("111"));
+        assertEquals(0, holdings.availableCount("111"));
+        holdings.checkIn("111", "B1");
+        assertEquals(1, holdings.availableCount("111"));
+        assertEquals(1, holdings.copyCount("111"));
+    }
+
+    @Test
+    void copyCountsRoundTripThroughTheFile() throws Exception {
+        Holdings holdings = holdings("111", "222");
+        holdings.addCopy("111", "East");
+        holdings.addCopy("111", "East");
+        holdings.addCopy("222", "Main");
+        holdings.checkOut("111", "East", "B1");
+        Path file = dir.resolve("holdings.txt");
+        holdings.saveToFile(file.toString());
+
+        Holdings loaded = holdings("111", "222");
+        loaded.loadFromFile(file.toString());
+        assertEquals(Map.of("Main", 1, "East", 2), loaded.availabilityByBranch("111"));
+        assertEquals(2, loaded.copyCount("222"));
+        // Loans are not saved; restoreLoans hands them their copy again
+        assertEquals(0, loaded.restoreLoans(List.of(loan("B1", "111"))));
+        assertEquals(2, loaded.availableCount("111"));
+    }
+
+    @Test
+    void reloadingTheInventoryDropsTheOldHoldings() throws Exception {
+        BookInventory inventory = new BookInventory();
+        inventory.addBook(new Book("Title", "Author", "111", "Novel", 1999, "Publisher", "A1"));
+        Holdings holdings = inventory.getHoldings();
+        holdings.addCopy("111", "East");
+        holdings.checkOut("111", "East", "B1");
+        holdings.reserve("111", "B2");
+        Path books = dir.resolve("books.txt");
+        inventory.saveToFile(books.toString());
+
+        inventory.loadFromFile(books.toString());
+        // Only the default copy is left, and nothing is on loan or set aside
+        assertEquals(Map.of("Main", 1), holdings.availabilityByBranch("111"));
+        assertEquals(-1, holdings.checkIn("111", "B1"));
+        assertEquals(-1, holdings.claimReserved("111", "B2"));
+        Path file = dir.resolve("holdings.txt");
+        holdings.saveToFile(file.toString());
+        assertEquals(List.of("111|Main|1"), Files.readAllLines(file));
+    }
+}
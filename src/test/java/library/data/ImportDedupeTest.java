@@ -0,0 +1,87 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Borrower;
+import library.util.ImportReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportDedupeTest {
+    @TempDir
+    Path dir;
+
+    private static String bookRow(String title, String isbn) {
+        return title + "|Author|" + isbn + "|Novel|1999|Publisher|A1";
+    }
+
+    @Test
+    void firstRowOfARepeatedIsbnWinsAndLaterOnesAreRejected() throws Exception {
+        Path file = dir.resolve("books.txt");
+        Files.write(file, List.of(
+            bookRow("First", "111"),
+            bookRow("Other", "222"),
+            bookRow("Second", "111"),
+            "# comment",
+            "",
+            bookRow("Third", "111")));
+        BookInventory inventory = new BookInventory();
+        ImportReport report = inventory.importFromFile(file.toString(), 2);
+
+        assertEquals(2, report.getInserted());
+        assertEquals(2, report.getRejected());
+        assertEquals("First", inventory.getBookByIsbn("111").getTitle());
+        List<Long> lines = new ArrayList<>();
+        for (ImportReport.Rejection r : report.getRejections()) lines.add(r.getLineNumber());
+        assertEquals(List.of(3L, 6L), lines);
+    }
+
+    @Test
+    void isbnAlreadyInTheInventoryIsNotOverwritten() throws Exception {
+        BookInventory inventory = new BookInventory();
+        inventory.addBook(new Book("Existing", "Someone", "111", "History", 1980, "P", "B2"));
+        Path file = dir.resolve("books.csv");
+        Files.write(file, List.of("\"Imported, with comma\",Author,111,Novel,1999,Publisher,A1", "New,Author,333,Novel,2001,Pub,C3"));
+        ImportReport report = inventory.importFromFile(file.toString(), 1);
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getRejected());
+        assertEquals("Existing", inventory.getBookByIsbn("111").getTitle());
+        assertEquals("New", inventory.getBookByIsbn("333").getTitle());
+    }
+
+    @Test
+    void duplicatesAcrossBatchesAndWorkersKeepFileOrder() throws Exception {
+        Path file = dir.resolve("books.txt");
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) rows.add(bookRow("Copy " + i, "ISBN-" + (i % 1000)));
+        Files.write(file, rows);
+        BookInventory inventory = new BookInventory();
+        ImportReport report = inventory.importFromFile(file.toString(), 4);
+
+        assertEquals(1000, report.getInserted());
+        assertEquals(4000, report.getRejected());
+        assertEquals(1000, inventory.size());
+        for (int i = 0; i < 1000; i++) assertEquals("Copy " + i, inventory.getBookByIsbn("ISBN-" + i).getTitle());
+    }
+
+    @Test
+    void borrowerImportDedupesById() throws Exception {
+        BorrowerRegistry registry = new BorrowerRegistry();
+        registry.addBorrower(new Borrower("Existing", "B0", "020"));
+        Path file = dir.resolve("borrowers.txt");
+        Files.write(file, List.of("Ama|B1|024", "Kofi|B1|055", "Esi|B0|027", "Yaw|B2|050|5.5"));
+        ImportReport report = registry.importFromFile(file.toString(), 2);
+
+        assertEquals(2, report.getInserted());
+        assertEquals(2, report.getRejected());
+        assertEquals("Ama", registry.getBorrowerById("B1").getName());
+        assertEquals("Existing", registry.getBorrowerById("B0").getName());
+        assertEquals(5.5, registry.getBorrowerById("B2").getFinesOwed(), 0.0);
+    }
+}
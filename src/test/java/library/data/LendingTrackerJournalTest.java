@@ -0,0 +1,162 @@
+package library.data;
+
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LendingTrackerJournalTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+    private String snapshot;
+    private String journal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        snapshot = dir.resolve("transactions.txt").toString();
+        journal = dir.resolve("transactions.journal").toString();
+        // Start from an empty snapshot with an empty journal
+        LendingTracker empty = new LendingTracker();
+        empty.enableJournal(journal);
+        empty.saveToFile(snapshot);
+        empty.closeJournal();
+    }
+
+    private LendingTracker open() throws Exception {
+        LendingTracker tracker = new LendingTracker();
+        tracker.enableJournal(journal);
+        tracker.loadFromFile(snapshot);
+        return tracker;
+    }
+
+    private static Transaction loan(String isbn, String borrowerId) {
+        return new Transaction(isbn, borrowerId, DAY, null, TransactionStatus.BORROWED);
+    }
+
+    @Test
+    void replayRestoresLoansAndReturnsWithoutSnapshot() throws Exception {
+        LendingTracker tracker = open();
+        tracker.borrowBook(loan("111", "A"));
+        tracker.borrowBook(loan("222", "A"));
+        tracker.borrowBook(loan("111", "B"));
+        assertNotNull(tracker.returnBook("A", "111", DAY.plusDays(3)));
+        tracker.closeJournal();
+
+        LendingTracker reloaded = open();
+        assertEquals(3, reloaded.getTransactionCount());
+        assertEquals(2, reloaded.getOpenLoanCount());
+        assertNull(reloaded.getOpenLoan("A", "111"));
+        assertNotNull(reloaded.getOpenLoan("B", "111"));
+        Transaction returned = reloaded.getAllTransactions().get(0);
+        assertEquals(TransactionStatus.RETURNED, returned.getStatus());
+        assertEquals(DAY.plusDays(3), returned.getReturnDate());
+        reloaded.closeJournal();
+    }
+
+    @Test
+    void replaySkipsRecordsAlreadyInTheSnapshot() throws Exception {
+        LendingTracker tracker = open();
+        tracker.borrowBook(loan("111", "A"));
+        tracker.borrowBook(loan("222", "B"));
+        tracker.closeJournal();
+        List<String> records = Files.readAllLines(Path.of(journal));
+
+        // Snapshot written, then a crash before the journal was truncated
+        LendingTracker reopened = open();
+        reopened.saveToFile(snapshot);
+        reopened.closeJournal();
+        Files.write(Path.of(journal), records);
+
+        LendingTracker reloaded = open();
+        assertEquals(2, reloaded.getTransactionCount());
+        assertEquals(2, reloaded.getOpenLoanCount());
+        reloaded.closeJournal();
+    }
+
+    @Test
+    void replayFailsOnAGapInsteadOfDroppingLoans() throws Exception {
+        LendingTracker tracker = open();
+        tracker.borrowBook(loan("111", "A"));
+        tracker.borrowBook(loan("222", "B"));
+        tracker.borrowBook(loan("333", "C"));
+        tracker.closeJournal();
+        List<String> records = Files.readAllLines(Path.of(journal));
+        Files.write(Path.of(journal), records.subList(1, records.size()));
+
+        LendingTracker reloaded = new LendingTracker();
+        reloaded.enableJournal(journal);
+        assertThrows(TransactionJournal.OutOfStepException.class, () -> reloaded.loadFromFile(snapshot));
+        assertEquals(0, reloaded.getTransactionCount());
+        assertEquals(0, reloaded.getOpenLoanCount());
+        reloaded.closeJournal();
+    }
+
+    @Test
+    void replayFailsWhenAJournaledLoanContradictsTheSnapshot() throws Exception {
+        LendingTracker tracker = open();
+        tracker.borrowBook(loan("111", "A"));
+        tracker.closeJournal();
+        List<String> records = Files.readAllLines(Path.of(journal));
+
+        LendingTracker other = new LendingTracker();
+        other.borrowBook(loan("999", "Z"));
+        other.saveToFile(snapshot);
+        Files.write(Path.of(journal), records);
+
+        LendingTracker reloaded = new LendingTracker();
+        reloaded.enableJournal(journal);
+        assertThrows(TransactionJournal.OutOfStepException.class, () -> reloaded.loadFromFile(snapshot));
+        reloaded.closeJournal();
+    }
+
+    @Test
+    void updateForUnknownRowFails() throws Exception {
+        Files.write(Path.of(journal), List.of("U|5|2024-03-02|RETURNED|"));
+        LendingTracker reloaded = new LendingTracker();
+        reloaded.enableJournal(journal);
+        assertThrows(TransactionJournal.OutOfStepException.class, () -> reloaded.loadFromFile(snapshot));
+        reloaded.closeJournal();
+    }
+
+    @Test
+    void tornLastRecordIsIgnored() throws Exception {
+        LendingTracker tracker = open();
+        tracker.borrowBook(loan("111", "A"));
+        tracker.closeJournal();
+        Files.writeString(Path.of(journal), "B|1|222|B|2024-0", java.nio.file.StandardOpenOption.APPEND);
+
+        LendingTracker reloaded = open();
+        assertEquals(1, reloaded.getTransactionCount());
+        // The next record must not be glued onto the torn one
+        reloaded.borrowBook(loan("333", "C"));
+        reloaded.closeJournal();
+
+        LendingTracker again = open();
+        assertEquals(2, again.getTransactionCount());
+        assertEquals(List.of("111", "333"), again.getAllTransactions().stream().map(Transaction::getBookIsbn).toList());
+        again.closeJournal();
+    }
+
+    @Test
+    void commitCompactsIntoSnapshotAndTruncatesJournal() throws Exception {
+        LendingTracker tracker = open();
+        tracker.borrowBook(loan("111", "A"));
+        tracker.saveToFile(snapshot);
+        tracker.borrowBook(loan("222", "B"));
+        tracker.closeJournal();
+        assertEquals(1, Files.readAllLines(Path.of(journal)).size());
+
+        LendingTracker reloaded = open();
+        assertEquals(2, reloaded.getTransactionCount());
+        reloaded.closeJournal();
+    }
+}
@@ -0,0 +1,104 @@
+package library.data;
+
+import library.model.Borrower;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverdueFinesTest {
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @TempDir
+    Path dir;
+
+    private static Transaction loan(String isbn, String borrowerId, int daysAgo) {
+        return new Transaction(isbn, borrowerId, TODAY.minusDays(daysAgo), null, TransactionStatus.BORROWED);
+    }
+
+    @Test
+    void sweepMarksOnlyLoansPastTheirDueDate() {
+        LendingTracker tracker = new LendingTracker();
+        tracker.borrowBook(loan("1", "A", 20));
+        tracker.borrowBook(loan("2", "A", 14)); // due today, not overdue yet
+        tracker.borrowBook(loan("3", "B", 30));
+        tracker.borrowBook(loan("4", "B", 2));
+
+        List<Transaction> overdue = tracker.sweepOverdue(TODAY);
+        assertEquals(List.of("3", "1"), overdue.stream().map(Transaction::getBookIsbn).toList());
+        assertEquals(2, tracker.getOverdueCount());
+        assertTrue(tracker.sweepOverdue(TODAY).isEmpty(), "a second sweep finds nothing new");
+        assertEquals(1, tracker.sweepOverdue(TODAY.plusDays(1)).size());
+    }
+
+    @Test
+    void returnedLoansAreNotMarkedOverdue() {
+        LendingTracker tracker = new LendingTracker();
+        tracker.borrowBook(loan("1", "A", 20));
+        tracker.returnBook("A", "1", TODAY.minusDays(10));
+        assertTrue(tracker.sweepOverdue(TODAY).isEmpty());
+        assertEquals(0, tracker.getOverdueCount());
+    }
+
+    @Test
+    void finesAccrueFromTheDueDateAndAreNeverChargedTwice() {
+        BorrowerRegistry registry = new BorrowerRegistry();
+        registry.addBorrower(new Borrower("Ama", "A", "0200000000"));
+        LendingTracker tracker = new LendingTracker();
+        tracker.borrowBook(loan("1", "A", 20)); // due 6 days ago
+
+        tracker.updateOverdueFines(registry);
+        assertEquals(6.0, registry.getBorrowerById("A").getFinesOwed(), 1e-9);
+        tracker.updateOverdueFines(registry);
+        assertEquals(6.0, registry.getBorrowerById("A").getFinesOwed(), 1e-9);
+    }
+
+    @Test
+    void uncheckedOverdueLoanKeepsItsFinesAcrossARestart() throws Exception {
+        String file = dir.resolve("transactions.txt").toString();
+        LendingTracker tracker = new LendingTracker();
+        tracker.borrowBook(loan("1", "A", 20));
+        // Swept to OVERDUE but never charged, since the borrower was not found
+        tracker.updateOverdueFines(new BorrowerRegistry());
+        assertEquals(TransactionStatus.OVERDUE, tracker.getOpenLoan("A", "1").getStatus());
+        tracker.saveToFile(file);
+
+        LendingTracker reloaded = new LendingTracker();
+        reloaded.loadFromFile(file);
+        BorrowerRegistry registry = new BorrowerRegistry();
+        registry.addBorrower(new Borrower("Ama", "A", "0200000000"));
+        reloaded.updateOverdueFines(registry);
+        assertEquals(6.0, registry.getBorrowerById("A").getFinesOwed(), 1e-9);
+    }
+
+    @Test
+    void sweptLoanIsSavedWithItsDueDateAsAccrualDate() throws Exception {
+        Path file = dir.resolve("transactions.txt");
+        LendingTracker tracker = new LendingTracker();
+        tracker.borrowBook(loan("1", "A", 20));
+        tracker.sweepOverdue(TODAY);
+        assertEquals(TODAY.minusDays(6), tracker.getOpenLoan("A", "1").getFineAccruedThrough());
+        tracker.saveToFile(file.toString());
+        assertEquals(List.of("1|A|" + TODAY.minusDays(20) + "||OVERDUE|" + TODAY.minusDays(6)), Files.readAllLines(file));
+    }
+
+    @Test
+    void legacyOverdueLineWithoutAccrualDateIsAlreadySettled() throws Exception {
+        // Written when loans were charged in full before they were marked OVERDUE
+        Path file = dir.resolve("legacy.txt");
+        Files.write(file, List.of("1|A|" + TODAY.minusDays(24) + "||OVERDUE"));
+        LendingTracker tracker = new LendingTracker();
+        tracker.loadFromFile(file.toString());
+        BorrowerRegistry registry = new BorrowerRegistry();
+        registry.addBorrower(new Borrower("Ama", "A", "0200000000"));
+        tracker.updateOverdueFines(registry);
+        assertEquals(0.0, registry.getBorrowerById("A").getFinesOwed(), 1e-9);
+        assertEquals(TODAY, tracker.getOpenLoan("A", "1").getFineAccruedThrough());
+    }
+}
@@ -0,0 +1,132 @@
+package library.data;
+
+import library.model.Book;
+import library.model.Borrower;
+import library.model.Hold;
+import library.model.HoldStatus;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationsTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    private static List<String> serveAll(Reservations reservations, String isbn, LocalDate today) {
+        List<String> served = new ArrayList<>();
+        Hold hold;
+        while ((hold = reservations.allocate(isbn, today)) != null) served.add(hold.getBorrowerId());
+        return served;
+    }
+
+    @Test
+    void holdsAreServedByPriorityThenInTheOrderPlaced() {
+        Reservations reservations = new Reservations();
+        reservations.place("111", "N1", Hold.Priority.NORMAL, DAY);
+        reservations.place("111", "L1", Hold.Priority.LOW, DAY);
+        reservations.place("111", "H1", Hold.Priority.HIGH, DAY.plusDays(1));
+        reservations.place("111", "N2", Hold.Priority.NORMAL, DAY.plusDays(1));
+        reservations.place("111", "H2", Hold.Priority.HIGH, DAY.plusDays(2));
+
+        List<String> expected = List.of("H1", "H2", "N1", "N2", "L1");
+        assertEquals(expected, reservations.queueOf("111").stream().map(Hold::getBorrowerId).toList());
+        for (int i = 0; i < expected.size(); i++) assertEquals(i + 1, reservations.position("111", expected.get(i)));
+        assertEquals(expected, serveAll(reservations, "111", DAY.plusDays(3)));
+        assertEquals(0, reservations.position("111", "H1"));
+    }
+
+    @Test
+    void cancelledAndExpiredHoldsAreSkipped() {
+        Reservations reservations = new Reservations();
+        reservations.place("111", "A", Hold.Priority.HIGH, DAY);
+        reservations.place("111", "B", Hold.Priority.HIGH, DAY.plusDays(50));
+        reservations.place("111", "C", Hold.Priority.NORMAL, DAY.plusDays(50));
+        assertEquals(HoldStatus.WAITING, reservations.cancel("111", "B"));
+        assertNull(reservations.cancel("111", "B"));
+
+        LocalDate afterExpiry = DAY.plusDays(Reservations.HOLD_DAYS + 1);
+        Hold served = reservations.allocate("111", afterExpiry);
+        assertEquals("C", served.getBorrowerId());
+        assertEquals(afterExpiry.plusDays(Reservations.PICKUP_DAYS), served.getReadyUntil());
+        assertNull(reservations.getHold("111", "A"), "the expired hold is dropped");
+        assertNull(reservations.allocate("111", afterExpiry));
+    }
+
+    @Test
+    void expiredHoldMakesWayForANewOne() {
+        Reservations reservations = new Reservations();
+        Hold first = reservations.place("111", "A", Hold.Priority.NORMAL, DAY);
+        assertNull(reservations.place("111", "A", Hold.Priority.HIGH, DAY.plusDays(Reservations.HOLD_DAYS)));
+        Hold second = reservations.place("111", "A", Hold.Priority.HIGH, DAY.plusDays(Reservations.HOLD_DAYS + 1));
+        assertNotNull(second);
+        assertEquals(HoldStatus.EXPIRED, first.getStatus());
+        assertEquals(1, reservations.size());
+        assertEquals(List.of("A"), serveAll(reservations, "111", DAY.plusDays(Reservations.HOLD_DAYS + 1)));
+    }
+
+    @Test
+    void uncollectedReadyHoldExpiresAfterThePickupWindow() {
+        Reservations reservations = new Reservations();
+        reservations.place("111", "A", Hold.Priority.NORMAL, DAY);
+        Hold ready = reservations.allocate("111", DAY);
+        assertSame(ready, reservations.getReadyHold("111", "A"));
+
+        assertTrue(reservations.expireUncollected("111", DAY.plusDays(Reservations.PICKUP_DAYS)).isEmpty());
+        assertEquals(List.of(ready), reservations.expireUncollected("111", DAY.plusDays(Reservations.PICKUP_DAYS + 1)));
+        assertEquals(HoldStatus.EXPIRED, ready.getStatus());
+        assertNull(reservations.getHold("111", "A"));
+        assertFalse(reservations.hasHolds("111"));
+    }
+
+    @Test
+    void requeuedHoldKeepsItsPlace() {
+        Reservations reservations = new Reservations();
+        reservations.place("111", "A", Hold.Priority.NORMAL, DAY);
+        reservations.place("111", "B", Hold.Priority.NORMAL, DAY);
+        Hold a = reservations.allocate("111", DAY);
+        reservations.requeue(a);
+        assertEquals(HoldStatus.WAITING, a.getStatus());
+        assertNull(a.getReadyUntil());
+        assertEquals(1, reservations.position("111", "A"));
+        assertEquals(List.of("A", "B"), serveAll(reservations, "111", DAY));
+    }
+
+    @Test
+    void orderSurvivesCompactionOfCancelledHolds() {
+        Reservations reservations = new Reservations();
+        for (int i = 0; i < 100; i++) {
+            reservations.place("111", "B" + i, i % 2 == 0 ? Hold.Priority.NORMAL : Hold.Priority.HIGH, DAY);
+        }
+        for (int i = 0; i < 100; i++) if (i % 5 != 0) reservations.cancel("111", "B" + i);
+        // Left: B0, B10, ... (NORMAL) and B5, B15, ... (HIGH)
+        List<String> expected = new ArrayList<>();
+        for (int i = 5; i < 100; i += 10) expected.add("B" + i);
+        for (int i = 0; i < 100; i += 10) expected.add("B" + i);
+        assertEquals(expected, serveAll(reservations, "111", DAY));
+    }
+
+    @Test
+    void returnedCopyIsSetAsideForTheNextHold() {
+        BookInventory inventory = new BookInventory();
+        inventory.addBook(new Book("Title", "Author", "111", "Novel", 1999, "Publisher", "A1"));
+        BorrowerRegistry registry = new BorrowerRegistry();
+        for (String id : List.of("A", "B", "C")) registry.addBorrower(new Borrower("Borrower " + id, id, id + "@example.com"));
+        CirculationService circulation = new CirculationService(inventory, registry, new LendingTracker());
+        List<Hold> notified = new ArrayList<>();
+        circulation.setHoldReadyListener(notified::add);
+
+        assertEquals(CirculationService.Result.SUCCESS, circulation.borrowBook("A", "111", DAY));
+        assertEquals(CirculationService.Result.SUCCESS, circulation.placeHold("B", "111", Hold.Priority.NORMAL, DAY));
+        assertEquals(CirculationService.Result.SUCCESS, circulation.placeHold("C", "111", Hold.Priority.HIGH, DAY));
+        assertEquals(CirculationService.Result.SUCCESS, circulation.returnBook("A", "111", DAY.plusDays(1)));
+
+        assertEquals(List.of("C"), notified.stream().map(Hold::getBorrowerId).toList());
+        assertEquals(0, inventory.getHoldings().availableCount("111"));
+        assertEquals(CirculationService.Result.NOT_AVAILABLE, circulation.borrowBook("B", "111", DAY.plusDays(1)));
+        assertEquals(CirculationService.Result.SUCCESS, circulation.borrowBook("C", "111", DAY.plusDays(2)));
+        assertEquals(HoldStatus.FULFILLED, notified.get(0).getStatus());
+        assertEquals(1, circulation.getReservations().position("111", "B"));
+    }
+}
@@ -0,0 +1,49 @@
+package library.data;
+
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionViewTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    @Test
+    void viewsRejectEverySetter() {
+        LendingTracker tracker = new LendingTracker();
+        Transaction view = tracker.borrowBook(new Transaction("1", "A", DAY, null, TransactionStatus.BORROWED));
+
+        assertThrows(UnsupportedOperationException.class, () -> view.setStatus(TransactionStatus.RETURNED));
+        assertThrows(UnsupportedOperationException.class, () -> view.setReturnDate(DAY));
+        assertThrows(UnsupportedOperationException.class, () -> view.setBookIsbn("2"));
+        assertThrows(UnsupportedOperationException.class, () -> view.setBorrowerId("B"));
+        assertThrows(UnsupportedOperationException.class, () -> view.setBorrowDate(DAY));
+        assertThrows(UnsupportedOperationException.class, () -> view.setFineAccruedThrough(DAY));
+        assertThrows(UnsupportedOperationException.class, () -> view.setId(7));
+        assertEquals(TransactionStatus.BORROWED, view.getStatus());
+        assertTrue(tracker.hasOpenLoan("A", "1"));
+    }
+
+    @Test
+    void changesMadeThroughTheTrackerShowInViews() {
+        LendingTracker tracker = new LendingTracker();
+        Transaction view = tracker.borrowBook(new Transaction("1", "A", DAY, null, TransactionStatus.BORROWED));
+        tracker.returnBook("A", "1", DAY.plusDays(2));
+        assertEquals(TransactionStatus.RETURNED, view.getStatus());
+        assertEquals(DAY.plusDays(2), view.getReturnDate());
+        assertFalse(tracker.hasOpenLoan("A", "1"));
+    }
+
+    @Test
+    void allTransactionsIsASnapshot() {
+        LendingTracker tracker = new LendingTracker();
+        tracker.borrowBook(new Transaction("1", "A", DAY, null, TransactionStatus.BORROWED));
+        List<Transaction> all = tracker.getAllTransactions();
+        tracker.borrowBook(new Transaction("2", "A", DAY, null, TransactionStatus.BORROWED));
+        assertEquals(1, all.size());
+        assertEquals(2, tracker.getAllTransactions().size());
+    }
+}
@@ -0,0 +1,85 @@
+package library.report;
+
+import library.model.Borrower;
+import library.model.Transaction;
+import library.model.TransactionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelReportEngineTest {
+    // Enough rows for several chunks per worker
+    private static final int TRANSACTIONS = 150_000;
+    private static final int BORROWERS = 300;
+
+    private ForkJoinPool pool;
+    private List<Borrower> borrowers;
+    private List<Transaction> transactions;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        borrowers = new ArrayList<>();
+        for (int i = 0; i < BORROWERS; i++) borrowers.add(new Borrower("Borrower " + i, "B" + i, "b" + i + "@example.com"));
+        transactions = new ArrayList<>();
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            // Skewed towards low IDs, plus borrowers that are not in the registry
+            int borrower = random.nextInt(10) == 0 ? BORROWERS + random.nextInt(5) : (int) Math.sqrt(random.nextInt(BORROWERS * BORROWERS));
+            transactions.add(new Transaction("I" + random.nextInt(1000), "B" + borrower,
+                start.plusDays(random.nextInt(3 * 365)), null, TransactionStatus.BORROWED));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Sequential reference: count desc, then ID asc, borrowers in the list only.
+     */
+    private List<String> expectedMostActive(int month, int year, int limit) {
+        Set<String> known = new HashSet<>();
+        for (Borrower b : borrowers) known.add(b.getIdNumber());
+        Map<String, Integer> counts = new HashMap<>();
+        for (Transaction t : transactions) {
+            LocalDate d = t.getBorrowDate();
+            if (month > 0 && d.getMonthValue() != month) continue;
+            if (year > 0 && d.getYear() != year) continue;
+            if (known.contains(t.getBorrowerId())) counts.merge(t.getBorrowerId(), 1, Integer::sum);
+        }
+        List<String> ids = new ArrayList<>(counts.keySet());
+        ids.sort(Comparator.<String>comparingInt(counts::get).reversed().thenComparing(Comparator.naturalOrder()));
+        return ids.subList(0, Math.min(limit, ids.size()));
+    }
+
+    private static List<String> ids(List<Borrower> borrowers) {
+        return borrowers.stream().map(Borrower::getIdNumber).toList();
+    }
+
+    @Test
+    void mostActiveBorrowersMatchesASequentialCount() {
+        ParallelReportEngine engine = new ParallelReportEngine(pool);
+        assertEquals(expectedMostActive(0, 0, Integer.MAX_VALUE), ids(engine.mostActiveBorrowers(transactions, borrowers, 0, 0)));
+        assertEquals(expectedMostActive(0, 2023, 10), ids(engine.mostActiveBorrowers(transactions, borrowers, 0, 2023, 10)));
+        assertEquals(expectedMostActive(2, 2024, 25), ids(engine.mostActiveBorrowers(transactions, borrowers, 2, 2024, 25)));
+        assertTrue(engine.mostActiveBorrowers(transactions, borrowers, 0, 1999, 10).isEmpty());
+    }
+
+    @Test
+    void borrowingTrendsMatchesASequentialCount() {
+        Map<String, Integer> expected = new TreeMap<>();
+        for (Transaction t : transactions) {
+            LocalDate d = t.getBorrowDate();
+            expected.merge(String.format("%d-%02d", d.getYear(), d.getMonthValue()), 1, Integer::sum);
+        }
+        assertEquals(expected, new ParallelReportEngine(pool).borrowingTrends(transactions));
+    }
+}
@@ -0,0 +1,84 @@
+package library.server;
+
+import library.data.BookInventory;
+import library.data.BorrowerRegistry;
+import library.data.CirculationService;
+import library.data.LendingTracker;
+import library.data.ReportAggregates;
+import library.model.Book;
+import library.model.Borrower;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryHttpServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private LibraryHttpServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        BookInventory inventory = new BookInventory();
+        inventory.addBook(new Book("Title", "Author", "111", "Novel", 1999, "Publisher", "A1"));
+        BorrowerRegistry registry = new BorrowerRegistry();
+        registry.addBorrower(new Borrower("Plus", "A+B", "plus@example.com"));
+        registry.addBorrower(new Borrower("Percent", "C%41", "percent@example.com"));
+        LendingTracker tracker = new LendingTracker();
+        CirculationService circulation = new CirculationService(inventory, registry, tracker);
+        // A failing listener stands in for any internal error that is not about the request
+        server = new LibraryHttpServer(0, inventory, registry, tracker, circulation, new ReportAggregates(),
+            store -> { throw new IllegalArgumentException("store " + store + " is broken"); }, 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void pathIdsAreDecodedExactlyOnce() throws Exception {
+        HttpResponse<String> plus = get("/borrowers/A+B");
+        assertEquals(200, plus.statusCode());
+        assertTrue(plus.body().contains("\"A+B\""), plus.body());
+
+        HttpResponse<String> percent = get("/borrowers/C%2541");
+        assertEquals(200, percent.statusCode());
+        assertTrue(percent.body().contains("\"C%41\""), percent.body());
+
+        assertEquals(404, get("/borrowers/A%20B").statusCode());
+    }
+
+    @Test
+    void onlyParameterErrorsAreBadRequests() throws Exception {
+        HttpResponse<String> badLimit = get("/books?q=Title&limit=many");
+        assertEquals(400, badLimit.statusCode());
+        assertTrue(badLimit.body().contains("limit"), badLimit.body());
+        assertEquals(400, post("/loans", "borrower=A%2BB").statusCode());
+
+        HttpResponse<String> failed = post("/loans", "borrower=A%2BB&isbn=111");
+        assertEquals(500, failed.statusCode());
+        assertTrue(failed.body().contains("Internal error"), failed.body());
+        assertFalse(failed.body().contains("broken"), failed.body());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String form) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,164 @@
+package library.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskHashFileTest {
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void putGetRemoveAndReopen() throws Exception {
+        Path path = dir.resolve("store.db");
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            assertNull(file.put("a", bytes("1")));
+            assertEquals("1", string(file.put("a", bytes("2"))));
+            file.put("b", bytes("3"));
+            assertEquals("3", string(file.remove("b")));
+            assertNull(file.remove("b"));
+            assertEquals(1, file.size());
+        }
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            assertEquals("2", string(file.get("a")));
+            assertNull(file.get("b"));
+            assertEquals(1, file.size());
+        }
+    }
+
+    @Test
+    void overwritesAreCompactedAway() throws Exception {
+        Path path = dir.resolve("store.db");
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            for (int i = 0; i < 100; i++) file.put("key" + i, bytes("v0"));
+            long before = Files.size(path);
+            // Enough dead records to pass the compaction threshold several times over
+            for (int round = 1; round <= 50; round++) {
+                for (int i = 0; i < 100; i++) file.put("key" + i, bytes("v" + round));
+            }
+            assertEquals(100, file.size());
+            // 5,000 dead records would add about 125 KB; compaction runs once about 1,200 records exist
+            assertTrue(Files.size(path) < before + 1300 * 32, "file was not compacted: " + Files.size(path) + " bytes");
+            for (int i = 0; i < 100; i++) assertEquals("v50", string(file.get("key" + i)));
+        }
+        assertFalse(Files.exists(Path.of(path + ".tmp")));
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            assertEquals(100, file.size());
+            assertEquals("v50", string(file.get("key99")));
+        }
+    }
+
+    @Test
+    void directoryGrowsWhenChainsGetLong() throws Exception {
+        Path path = dir.resolve("store.db");
+        int keys = 20_000; // more than four per bucket of the initial 1024-bucket directory
+        Map<String, String> expected = new HashMap<>();
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            for (int i = 0; i < keys; i++) {
+                file.put("isbn-" + i, bytes("title " + i));
+                expected.put("isbn-" + i, "title " + i);
+            }
+            for (int i = 0; i < keys; i += 3) {
+                file.remove("isbn-" + i);
+                expected.remove("isbn-" + i);
+            }
+            assertEquals(expected.size(), file.size());
+        }
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            Map<String, String> scanned = new HashMap<>();
+            file.forEach((key, value) -> scanned.put(key, string(value)));
+            assertEquals(expected, scanned);
+            assertNull(file.get("isbn-0"));
+            assertEquals("title 1", string(file.get("isbn-1")));
+        }
+    }
+
+    @Test
+    void clearEmptiesTheFile() throws Exception {
+        try (DiskHashFile file = new DiskHashFile(dir.resolve("store.db").toString())) {
+            for (int i = 0; i < 10; i++) file.put("k" + i, bytes("v"));
+            file.clear();
+            assertEquals(0, file.size());
+            assertNull(file.get("k1"));
+            file.put("k1", bytes("again"));
+            file.sync();
+            assertEquals("again", string(file.get("k1")));
+        }
+    }
+
+    @Test
+    void fileLeftOpenByACrashIsRebuiltOnOpen() throws Exception {
+        Path path = dir.resolve("store.db");
+        Map<String, String> expected = new HashMap<>();
+        DiskHashFile crashed = new DiskHashFile(path.toString());
+        for (int i = 0; i < 3000; i++) {
+            crashed.put("k" + i, bytes("v" + i));
+            expected.put("k" + i, "v" + i);
+        }
+        for (int i = 0; i < 3000; i += 7) {
+            crashed.put("k" + i, bytes("new" + i));
+            expected.put("k" + i, "new" + i);
+        }
+        for (int i = 1; i < 3000; i += 11) {
+            crashed.remove("k" + i);
+            expected.remove("k" + i);
+        }
+        // Never closed: the next open finds the open flag still set
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            assertEquals(expected.size(), file.size());
+            Map<String, String> scanned = new HashMap<>();
+            file.forEach((key, value) -> scanned.put(key, string(value)));
+            assertEquals(expected, scanned);
+            assertEquals("new7", string(file.get("k7")));
+            assertNull(file.get("k1"));
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void directoryLinkedPastTheDataEndIsIgnored() throws Exception {
+        Path path = dir.resolve("store.db");
+        long syncedEnd;
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            for (int i = 0; i < 2000; i++) file.put("old" + i, bytes("v" + i));
+            file.sync();
+            syncedEnd = Files.size(path);
+            for (int i = 0; i < 50; i++) file.put("new" + i, bytes("lost"));
+        }
+        // Power loss after the directory page reached the disk but before the header did:
+        // the header still has the old data end and the open flag
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, 1), 12);
+            ch.write(ByteBuffer.allocate(8).putLong(0, syncedEnd), 24);
+        }
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            assertEquals(2000, file.size());
+            for (int i = 0; i < 2000; i++) assertEquals("v" + i, string(file.get("old" + i)));
+            assertNull(file.get("new0"));
+            file.put("new0", bytes("again"));
+            assertEquals("again", string(file.get("new0")));
+        }
+        try (DiskHashFile file = new DiskHashFile(path.toString())) {
+            assertEquals(2001, file.size());
+            assertEquals("v1999", string(file.get("old1999")));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package library.util;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.getIfPresent("a");
+        cache.put("c", "3");
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("1", cache.getIfPresent("a"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void loaderRunsWithoutTheCacheLock() throws Exception {
+        LruCache<String, String> cache = new LruCache<>(10);
+        cache.put("hot", "cached");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = pool.submit(() -> cache.get("cold", k -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "loaded";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // Would block until the slow load finished if the loader held the lock
+            assertEquals("cached", cache.get("hot", k -> fail("hit should not load")));
+            release.countDown();
+            assertEquals("loaded", slow.get(5, TimeUnit.SECONDS));
+            assertEquals("loaded", cache.getIfPresent("cold"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void loadRacingAWriteIsNotCached() {
+        LruCache<String, String> cache = new LruCache<>(10);
+        String value = cache.get("k", k -> {
+            cache.remove(k); // e.g. the record was deleted while it was being read
+            return "stale";
+        });
+        assertEquals("stale", value);
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void firstCachedValueWins() {
+        LruCache<String, String> cache = new LruCache<>(10);
+        String value = cache.get("k", k -> {
+            // Another thread's load of the same key finishes first
+            cache.get(k, x -> "first");
+            return "second";
+        });
+        assertEquals("first", value);
+        assertEquals("first", cache.getIfPresent("k"));
+    }
+}
@@ -0,0 +1,111 @@
+package library.util;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+    /**
+     * A ring of long[1] slots whose single consumer records the values and waits on the
+     * release latch while handling the first one.
+     */
+    private static RingBuffer<long[]> blockedRing(int capacity, List<Long> received, CountDownLatch entered, CountDownLatch release) {
+        RingBuffer<long[]> ring = new RingBuffer<>(capacity, () -> new long[1], null);
+        ring.subscribe("slow", (event, sequence, endOfBatch) -> {
+            received.add(event[0]);
+            if (sequence == 0) {
+                entered.countDown();
+                release.await();
+            }
+        });
+        ring.start();
+        return ring;
+    }
+
+    private static boolean offer(RingBuffer<long[]> ring, long value) {
+        long seq = ring.tryNext();
+        if (seq < 0) return false;
+        ring.get(seq)[0] = value;
+        ring.publish(seq);
+        return true;
+    }
+
+    @Test
+    void consumerSeesEveryEventInOrder() {
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+        RingBuffer<long[]> ring = new RingBuffer<>(8, () -> new long[1], null);
+        ring.subscribe("all", (event, sequence, endOfBatch) -> received.add(event[0]));
+        ring.start();
+        for (long i = 0; i < 1000; i++) {
+            long seq = ring.next();
+            ring.get(seq)[0] = i;
+            ring.publish(seq);
+        }
+        ring.close();
+        assertEquals(1000, received.size());
+        for (int i = 0; i < 1000; i++) assertEquals(i, received.get(i));
+        assertEquals(1000, ring.getPublishedCount());
+        assertEquals(0, ring.getLag("all"));
+    }
+
+    @Test
+    void nextWaitsForASlowConsumer() throws Exception {
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch entered = new CountDownLatch(1), release = new CountDownLatch(1);
+        RingBuffer<long[]> ring = blockedRing(4, received, entered, release);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> producer = pool.submit(() -> {
+                for (long i = 0; i < 10; i++) {
+                    long seq = ring.next();
+                    ring.get(seq)[0] = i;
+                    ring.publish(seq);
+                }
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // The fifth event would overwrite the slot the consumer is still reading
+            assertThrows(TimeoutException.class, () -> producer.get(200, TimeUnit.MILLISECONDS));
+            assertTrue(ring.getProducerWaits() > 0);
+            release.countDown();
+            producer.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        ring.close();
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), received);
+        assertEquals(0, ring.getDroppedCount());
+    }
+
+    @Test
+    void tryNextDropsInsteadOfWaiting() throws Exception {
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch entered = new CountDownLatch(1), release = new CountDownLatch(1);
+        RingBuffer<long[]> ring = blockedRing(4, received, entered, release);
+        try {
+            assertTrue(offer(ring, 0));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            for (long i = 1; i < 4; i++) assertTrue(offer(ring, i));
+            assertFalse(offer(ring, 4));
+            assertFalse(offer(ring, 5));
+            assertEquals(2, ring.getDroppedCount());
+            assertEquals(4, ring.getPublishedCount());
+        } finally {
+            release.countDown();
+        }
+        ring.close();
+        assertEquals(List.of(0L, 1L, 2L, 3L), received);
+        // Once the consumer has caught up there is room again
+        assertTrue(offer(ring, 6));
+    }
+
+    @Test
+    void withoutConsumersSlotsAreReused() {
+        RingBuffer<long[]> ring = new RingBuffer<>(2, () -> new long[1], null);
+        for (long i = 0; i < 10; i++) assertTrue(offer(ring, i));
+        assertEquals(0, ring.getDroppedCount());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(3, () -> new long[1], null));
+    }
+}